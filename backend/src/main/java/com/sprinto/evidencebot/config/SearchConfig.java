@@ -0,0 +1,46 @@
+package com.sprinto.evidencebot.config;
+
+import com.sprinto.evidencebot.search.EmbeddingProvider;
+import com.sprinto.evidencebot.search.HashingEmbeddingProvider;
+import com.sprinto.evidencebot.search.HnswIndex;
+import com.sprinto.evidencebot.search.InvertedIndex;
+import com.sprinto.evidencebot.search.NearDuplicateIndex;
+import com.sprinto.evidencebot.search.TextChunker;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class SearchConfig {
+
+    @Bean
+    public InvertedIndex invertedIndex(@Value("${search.bm25.k1:1.2}") double k1,
+                                       @Value("${search.bm25.b:0.75}") double b) {
+        return new InvertedIndex(k1, b);
+    }
+
+    @Bean
+    public TextChunker textChunker(@Value("${retrieval.chunk.size:800}") int chunkSize,
+                                   @Value("${retrieval.chunk.overlap:150}") int overlap) {
+        return new TextChunker(chunkSize, overlap);
+    }
+
+    @Bean
+    public HnswIndex vectorIndex(@Value("${retrieval.hnsw.m:16}") int m,
+                                 @Value("${retrieval.hnsw.ef-construction:100}") int efConstruction,
+                                 @Value("${retrieval.hnsw.ef-search:64}") int efSearch) {
+        return new HnswIndex(m, efConstruction, efSearch);
+    }
+
+    @Bean
+    public NearDuplicateIndex nearDuplicateIndex(@Value("${dedup.near-duplicate.threshold:0.8}") double threshold) {
+        return new NearDuplicateIndex(threshold);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "embedding.provider", havingValue = "local", matchIfMissing = true)
+    public EmbeddingProvider hashingEmbeddingProvider(@Value("${embedding.local.dimensions:384}") int dimensions) {
+        return new HashingEmbeddingProvider(dimensions);
+    }
+}
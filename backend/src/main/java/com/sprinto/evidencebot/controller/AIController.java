@@ -1,54 +1,101 @@
 package com.sprinto.evidencebot.controller;
 
-import com.sprinto.evidencebot.model.Document;
+import com.sprinto.evidencebot.model.DocumentSummary;
+import com.sprinto.evidencebot.prompt.PromptPacker;
+import com.sprinto.evidencebot.search.DocumentChunk;
+import com.sprinto.evidencebot.service.ConversationSessionStore;
 import com.sprinto.evidencebot.service.DocumentService;
+import com.sprinto.evidencebot.service.LlmResponseCache;
+import com.sprinto.evidencebot.service.LlmScheduler;
 import com.sprinto.evidencebot.service.OpenAIService;
+import com.sprinto.evidencebot.service.ResilientLlmClient;
+import com.sprinto.evidencebot.service.RetrievalService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import io.reactivex.Flowable;
+import io.reactivex.disposables.Disposable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 @RestController
 @RequestMapping("/api/ai")
 @CrossOrigin(origins = "*")
 public class AIController {
 
+    private static final Logger log = LoggerFactory.getLogger(AIController.class);
+
     @Autowired
     private OpenAIService openAIService;
     
     @Autowired
     private DocumentService documentService;
 
+    @Autowired
+    private RetrievalService retrievalService;
+
+    @Autowired
+    private LlmResponseCache responseCache;
+
+    @Autowired
+    private LlmScheduler llmScheduler;
+
+    @Autowired
+    private PromptPacker promptPacker;
+
+    @Autowired
+    private ResilientLlmClient resilientClient;
+
+    @Autowired
+    private ConversationSessionStore chatSessions;
+
+    @Value("${retrieval.top-k:8}")
+    private int retrievalTopK;
+
+    @Value("${ai.stream.timeout-ms:120000}")
+    private long streamTimeoutMs;
+
+    /**
+     * History is kept server-side: clients send the {@code sessionId} from the
+     * previous response along with the new question. A missing, unknown or
+     * expired id starts a new session.
+     */
     @PostMapping("/chat")
     public ResponseEntity<Map<String, Object>> chatWithDocuments(@RequestBody Map<String, String> request) {
         String userQuery = request.get("query");
-        String conversationHistory = request.get("history");
         
         if (userQuery == null || userQuery.trim().isEmpty()) {
             return ResponseEntity.badRequest().body(Map.of("error", "Query is required"));
         }
         
-        // Get all documents for context
-        List<Document> allDocs = documentService.getAllDocuments();
-        List<String> documentContents = allDocs.stream()
-                .map(Document::getContent)
-                .filter(content -> content != null && !content.trim().isEmpty())
-                .collect(Collectors.toList());
+        String sessionId = chatSessions.resolve(request.get("sessionId"));
+        String conversationHistory = chatSessions.history(sessionId);
+        
+        // Only the chunks closest to the question are sent as context
+        List<DocumentChunk> chunks = retrievalService.retrieve(userQuery, retrievalTopK);
         
         String response;
-        if (documentContents.isEmpty()) {
+        if (chunks.isEmpty()) {
             response = "I don't have access to any documents yet. Please upload some compliance documents first, and I'll be happy to help you analyze them!";
         } else {
-            response = openAIService.chatWithDocuments(userQuery, documentContents, conversationHistory);
+            response = openAIService.chatWithDocuments(userQuery, RetrievalService.toPassages(chunks), conversationHistory);
         }
+        chatSessions.append(sessionId, userQuery, response);
         
         Map<String, Object> result = new HashMap<>();
+        result.put("sessionId", sessionId);
         result.put("response", response);
-        result.put("documentsCount", allDocs.size());
+        result.put("documentsCount", documentService.countDocuments());
+        result.put("chunksUsed", chunks.size());
         result.put("timestamp", java.time.LocalDateTime.now());
         
         return ResponseEntity.ok(result);
@@ -63,20 +110,21 @@ public class AIController {
             return ResponseEntity.badRequest().body(Map.of("error", "Document ID and query are required"));
         }
         
-        Document document = documentService.getDocumentById(documentId);
+        DocumentSummary document = documentService.getDocumentSummary(documentId);
         if (document == null) {
             return ResponseEntity.notFound().build();
         }
         
-        if (document.getContent() == null || document.getContent().trim().isEmpty()) {
+        List<DocumentChunk> chunks = retrievalService.retrieve(query, retrievalTopK, List.of(documentId));
+        if (chunks.isEmpty()) {
             return ResponseEntity.badRequest().body(Map.of("error", "Document has no readable content"));
         }
         
-        String analysis = openAIService.generateEvidenceSummary(query, List.of(document.getContent()));
+        String analysis = openAIService.generateEvidenceSummary(query, RetrievalService.toPassages(chunks), List.of(documentId));
         
         Map<String, Object> result = new HashMap<>();
         result.put("documentId", documentId);
-        result.put("documentName", document.getFilename());
+        result.put("documentName", document.filename());
         result.put("query", query);
         result.put("analysis", analysis);
         result.put("timestamp", java.time.LocalDateTime.now());
@@ -84,6 +132,132 @@ public class AIController {
         return ResponseEntity.ok(result);
     }
 
+    /**
+     * Server-Sent Events variant of {@link #chatWithDocuments}. Emits a
+     * {@code delta} event per token chunk and a final {@code done} event
+     * carrying the assembled response.
+     */
+    @PostMapping(value = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamChatWithDocuments(@RequestBody Map<String, String> request) {
+        String userQuery = request.get("query");
+        
+        if (userQuery == null || userQuery.trim().isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        String sessionId = chatSessions.resolve(request.get("sessionId"));
+        String conversationHistory = chatSessions.history(sessionId);
+        List<DocumentChunk> chunks = retrievalService.retrieve(userQuery, retrievalTopK);
+        
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("sessionId", sessionId);
+        metadata.put("documentsCount", documentService.countDocuments());
+        metadata.put("chunksUsed", chunks.size());
+        
+        Flowable<String> deltas = chunks.isEmpty()
+                ? Flowable.just("I don't have access to any documents yet. Please upload some compliance documents first, and I'll be happy to help you analyze them!")
+                : openAIService.streamChatWithDocuments(userQuery, RetrievalService.toPassages(chunks), conversationHistory);
+        return ResponseEntity.ok(relay(deltas, "response", metadata,
+                response -> chatSessions.append(sessionId, userQuery, response)));
+    }
+
+    @PostMapping(value = "/analyze-document/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamAnalyzeSpecificDocument(@RequestBody Map<String, Object> request) {
+        Object rawId = request.get("documentId");
+        String query = (String) request.get("query");
+        
+        if (rawId == null || query == null || query.trim().isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        Long documentId = Long.valueOf(rawId.toString());
+        
+        DocumentSummary document = documentService.getDocumentSummary(documentId);
+        if (document == null) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        List<DocumentChunk> chunks = retrievalService.retrieve(query, retrievalTopK, List.of(documentId));
+        if (chunks.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("documentId", documentId);
+        metadata.put("documentName", document.filename());
+        metadata.put("query", query);
+        
+        Flowable<String> deltas = openAIService.streamEvidenceSummary(query, RetrievalService.toPassages(chunks), List.of(documentId));
+        return ResponseEntity.ok(relay(deltas, "analysis", metadata, analysis -> {}));
+    }
+
+    private SseEmitter relay(Flowable<String> deltas, String resultField, Map<String, Object> metadata,
+                             Consumer<String> onComplete) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        StringBuilder assembled = new StringBuilder();
+        Disposable subscription = deltas.subscribe(
+                delta -> {
+                    assembled.append(delta);
+                    // JSON-encoded: a raw delta's leading space or newlines would not survive SSE framing
+                    send(emitter, SseEmitter.event().name("delta").data(Map.of("t", delta)));
+                },
+                error -> {
+                    log.warn("OpenAI streaming error: {} - {}", error.getClass().getSimpleName(), error.getMessage());
+                    send(emitter, SseEmitter.event().name("error").data(Map.of("error", String.valueOf(error.getMessage()))));
+                    emitter.complete();
+                },
+                () -> {
+                    onComplete.accept(assembled.toString());
+                    Map<String, Object> result = new HashMap<>(metadata);
+                    result.put(resultField, assembled.toString());
+                    result.put("timestamp", java.time.LocalDateTime.now());
+                    send(emitter, SseEmitter.event().name("done").data(result));
+                    emitter.complete();
+                });
+        // Stop pulling tokens from OpenAI once the client goes away
+        emitter.onCompletion(subscription::dispose);
+        emitter.onTimeout(subscription::dispose);
+        emitter.onError(error -> subscription.dispose());
+        return emitter;
+    }
+
+    private static void send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            // Client disconnected; the completion callback disposes the upstream subscription
+        }
+    }
+
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(responseCache.getStats());
+    }
+
+    @GetMapping("/scheduler/stats")
+    public ResponseEntity<Map<String, Object>> getSchedulerStats() {
+        return ResponseEntity.ok(llmScheduler.getStats());
+    }
+
+    @GetMapping("/resilience/stats")
+    public ResponseEntity<Map<String, Object>> getResilienceStats() {
+        return ResponseEntity.ok(resilientClient.getStats());
+    }
+
+    @GetMapping("/prompt/stats")
+    public ResponseEntity<Map<String, Object>> getPromptStats() {
+        return ResponseEntity.ok(promptPacker.getStats());
+    }
+
+    @DeleteMapping("/sessions/{sessionId}")
+    public ResponseEntity<Void> deleteSession(@PathVariable String sessionId) {
+        return chatSessions.delete(sessionId) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping("/sessions/stats")
+    public ResponseEntity<Map<String, Object>> getSessionStats() {
+        return ResponseEntity.ok(chatSessions.getStats());
+    }
+
     @GetMapping("/suggestions")
     public ResponseEntity<Map<String, Object>> getQuerySuggestions() {
         List<String> suggestions = List.of(
@@ -101,7 +275,7 @@ public class AIController {
         
         Map<String, Object> result = new HashMap<>();
         result.put("suggestions", suggestions);
-        result.put("totalDocuments", documentService.getAllDocuments().size());
+        result.put("totalDocuments", documentService.countDocuments());
         
         return ResponseEntity.ok(result);
     }
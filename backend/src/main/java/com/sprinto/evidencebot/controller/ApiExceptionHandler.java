@@ -0,0 +1,29 @@
+package com.sprinto.evidencebot.controller;
+
+import com.sprinto.evidencebot.service.LlmCapacityExceededException;
+import com.sprinto.evidencebot.service.LlmUnavailableException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.Map;
+
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+    @ExceptionHandler(LlmCapacityExceededException.class)
+    public ResponseEntity<Map<String, Object>> handleLlmCapacityExceeded(LlmCapacityExceededException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "2")
+                .body(Map.of("error", e.getMessage()));
+    }
+
+    @ExceptionHandler(LlmUnavailableException.class)
+    public ResponseEntity<Map<String, Object>> handleLlmUnavailable(LlmUnavailableException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfterSeconds()))
+                .body(Map.of("error", e.getMessage()));
+    }
+}
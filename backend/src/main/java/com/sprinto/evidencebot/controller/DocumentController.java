@@ -1,14 +1,30 @@
 package com.sprinto.evidencebot.controller;
 
+import com.sprinto.evidencebot.model.ContentStorageStats;
 import com.sprinto.evidencebot.model.Document;
+import com.sprinto.evidencebot.model.DocumentPage;
+import com.sprinto.evidencebot.model.IngestionJob;
+import com.sprinto.evidencebot.model.NearDuplicate;
+import com.sprinto.evidencebot.service.BulkIngestionService;
+import com.sprinto.evidencebot.service.DocumentCache;
 import com.sprinto.evidencebot.service.DocumentService;
+import com.sprinto.evidencebot.service.IngestionPipeline;
+import com.sprinto.evidencebot.service.SearchSnapshotService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/documents")
@@ -18,20 +34,90 @@ public class DocumentController {
     @Autowired
     private DocumentService documentService;
 
+    @Autowired
+    private IngestionPipeline ingestionPipeline;
+
+    @Autowired
+    private BulkIngestionService bulkIngestionService;
+
+    @Autowired
+    private SearchSnapshotService searchSnapshot;
+
+    @Autowired
+    private DocumentCache documentCache;
+
+    @Value("${documents.page.max-size:200}")
+    private int maxPageSize;
+
     @PostMapping("/upload")
     public ResponseEntity<?> uploadDocument(@RequestParam("file") MultipartFile file) {
+        Path spooled;
         try {
-            Document document = documentService.uploadDocument(file);
-            return ResponseEntity.ok(document);
+            spooled = documentService.spool(file);
         } catch (IOException e) {
             return ResponseEntity.badRequest().body("Error uploading file: " + e.getMessage());
         }
+        try {
+            IngestionJob job = ingestionPipeline.submit(spooled, file.getOriginalFilename(), file.getContentType(), file.getSize());
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/documents/jobs/" + job.getId()))
+                    .body(job);
+        } catch (RejectedExecutionException e) {
+            try {
+                Files.deleteIfExists(spooled);
+            } catch (IOException ignored) {
+                // best effort, the temp directory is cleaned by the OS as well
+            }
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .body("Ingestion queue is full, please retry shortly");
+        }
+    }
+
+    @PostMapping("/bulk")
+    public ResponseEntity<?> bulkUpload(@RequestParam("files") List<MultipartFile> files) {
+        if (files.isEmpty()) {
+            return ResponseEntity.badRequest().body("At least one file is required");
+        }
+        try {
+            return ResponseEntity.ok(bulkIngestionService.ingest(files));
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body("Error processing bulk upload: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<IngestionJob> getIngestionJob(@PathVariable String id) {
+        IngestionJob job = ingestionPipeline.getJob(id);
+        if (job != null) {
+            return ResponseEntity.ok(job);
+        }
+        return ResponseEntity.notFound().build();
     }
 
     @GetMapping
-    public ResponseEntity<List<Document>> getAllDocuments() {
-        List<Document> documents = documentService.getAllDocuments();
-        return ResponseEntity.ok(documents);
+    public ResponseEntity<?> getAllDocuments(@RequestParam(required = false) String cursor,
+                                             @RequestParam(defaultValue = "50") int limit) {
+        try {
+            return toPageResponse(documentService.listDocuments(cursor, clampLimit(limit)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/storage/stats")
+    public ResponseEntity<ContentStorageStats> getContentStorageStats() {
+        return ResponseEntity.ok(documentService.getContentStorageStats());
+    }
+
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(documentCache.getStats());
+    }
+
+    @GetMapping("/snapshot/stats")
+    public ResponseEntity<Map<String, Object>> getSnapshotStats() {
+        return ResponseEntity.ok(searchSnapshot.getStats());
     }
 
     @GetMapping("/{id}")
@@ -43,10 +129,24 @@ public class DocumentController {
         return ResponseEntity.notFound().build();
     }
 
+    @GetMapping("/{id}/near-duplicates")
+    public ResponseEntity<List<NearDuplicate>> getNearDuplicates(@PathVariable Long id) {
+        if (!documentService.documentExists(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(documentService.findNearDuplicates(id));
+    }
+
     @GetMapping("/search")
-    public ResponseEntity<List<Document>> searchDocuments(@RequestParam String query) {
-        List<Document> documents = documentService.searchDocuments(query);
-        return ResponseEntity.ok(documents);
+    public ResponseEntity<?> searchDocuments(@RequestParam String query,
+                                             @RequestParam(required = false) String cursor,
+                                             @RequestParam(defaultValue = "20") int limit,
+                                             @RequestParam(defaultValue = "false") boolean includeContent) {
+        try {
+            return toPageResponse(documentService.searchDocumentHits(query, cursor, clampLimit(limit), includeContent));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @DeleteMapping("/{id}")
@@ -54,4 +154,17 @@ public class DocumentController {
         documentService.deleteDocument(id);
         return ResponseEntity.ok().build();
     }
-}
\ No newline at end of file
+
+    private int clampLimit(int limit) {
+        return Math.max(1, Math.min(limit, maxPageSize));
+    }
+
+    // The body stays a plain array for existing clients; the next page is advertised in a header.
+    private <T> ResponseEntity<List<T>> toPageResponse(DocumentPage<T> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header("X-Next-Cursor", page.nextCursor());
+        }
+        return response.body(page.items());
+    }
+}
@@ -1,6 +1,8 @@
 package com.sprinto.evidencebot.controller;
 
+import com.sprinto.evidencebot.service.ComplianceAnalysisService;
 import com.sprinto.evidencebot.service.EvidenceService;
+import com.sprinto.evidencebot.service.RequestCoalescer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -15,6 +17,12 @@ public class EvidenceController {
     @Autowired
     private EvidenceService evidenceService;
 
+    @Autowired
+    private RequestCoalescer requestCoalescer;
+
+    @Autowired
+    private ComplianceAnalysisService complianceAnalysisService;
+
     @PostMapping("/generate")
     public ResponseEntity<Map<String, Object>> generateEvidence(@RequestBody Map<String, String> request) {
         String query = request.get("query");
@@ -22,7 +30,8 @@ public class EvidenceController {
             return ResponseEntity.badRequest().body(Map.of("error", "Query is required"));
         }
         
-        Map<String, Object> evidence = evidenceService.generateEvidence(query);
+        boolean includeContent = Boolean.parseBoolean(request.get("includeContent"));
+        Map<String, Object> evidence = evidenceService.generateEvidence(query, includeContent);
         return ResponseEntity.ok(evidence);
     }
 
@@ -31,4 +40,14 @@ public class EvidenceController {
         Map<String, Object> report = evidenceService.getComplianceReport(domain);
         return ResponseEntity.ok(report);
     }
-}
\ No newline at end of file
+
+    @GetMapping("/coalescing/stats")
+    public ResponseEntity<Map<String, Object>> getCoalescingStats() {
+        return ResponseEntity.ok(requestCoalescer.getStats());
+    }
+
+    @GetMapping("/compliance-report/stats")
+    public ResponseEntity<Map<String, Object>> getComplianceAnalysisStats() {
+        return ResponseEntity.ok(complianceAnalysisService.getStats());
+    }
+}
@@ -0,0 +1,83 @@
+package com.sprinto.evidencebot.extraction;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackageRelationship;
+import org.apache.poi.openxml4j.opc.TargetMode;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Word documents: SAX over the main document part, then over the headers,
+ * footers, footnotes, endnotes and comments it references, without building
+ * the XWPF object model. Deleted revisions and field codes are skipped
+ * because they are not {@code <w:t>} runs.
+ */
+@Component
+@Order(20)
+public class DocxTextExtractor implements TextExtractor {
+
+    private static final String RELATIONSHIPS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships/";
+
+    // Parts besides the body that carry document text, in output order
+    private static final List<String> TEXT_PART_RELATIONSHIPS = List.of(
+            RELATIONSHIPS + "header",
+            RELATIONSHIPS + "footer",
+            RELATIONSHIPS + "footnotes",
+            RELATIONSHIPS + "endnotes",
+            RELATIONSHIPS + "comments");
+
+    @Override
+    public String type() {
+        return "docx";
+    }
+
+    @Override
+    public Set<String> contentTypes() {
+        return Set.of("application/vnd.openxmlformats-officedocument.wordprocessingml.document");
+    }
+
+    @Override
+    public boolean matches(FileProbe probe) {
+        return probe.isZip() && probe.hasZipEntry("word/document.xml");
+    }
+
+    @Override
+    public void extract(Path file, Writer out) throws IOException {
+        OPCPackage pkg = OoxmlSupport.open(file);
+        try {
+            PackagePart mainPart = OoxmlSupport.mainPart(pkg);
+            writeText(mainPart, out);
+            for (String relationshipType : TEXT_PART_RELATIONSHIPS) {
+                for (PackageRelationship relationship : mainPart.getRelationshipsByType(relationshipType)) {
+                    if (relationship.getTargetMode() == TargetMode.EXTERNAL) {
+                        continue;
+                    }
+                    PackagePart part = mainPart.getRelatedPart(relationship);
+                    if (part != null) {
+                        out.write('\n');
+                        writeText(part, out);
+                    }
+                }
+            }
+        } catch (InvalidFormatException e) {
+            throw new IOException("Invalid OOXML package: " + e.getMessage(), e);
+        } finally {
+            pkg.revert();
+        }
+    }
+
+    private static void writeText(PackagePart part, Writer out) throws IOException {
+        try (InputStream in = part.getInputStream()) {
+            OoxmlSupport.parse(in, new OoxmlSupport.ParagraphTextHandler(out));
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.sprinto.evidencebot.extraction;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Chooses the extractor for an uploaded file. The declared content type is
+ * used when the file's bytes confirm it; otherwise the format is sniffed from
+ * magic bytes, since browsers often send {@code application/octet-stream} or
+ * a type derived from the file name alone. Files no extractor recognizes are
+ * rejected rather than stored as decoded binary.
+ */
+@Component
+public class ExtractorRegistry {
+
+    private final List<TextExtractor> extractors;
+
+    @Autowired
+    public ExtractorRegistry(List<TextExtractor> extractors) {
+        this.extractors = List.copyOf(extractors);
+    }
+
+    public TextExtractor select(Path file, String contentType) throws IOException {
+        FileProbe probe = FileProbe.of(file);
+        String declared = normalize(contentType);
+        for (TextExtractor extractor : extractors) {
+            if (extractor.contentTypes().contains(declared) && extractor.matches(probe)) {
+                return extractor;
+            }
+        }
+        for (TextExtractor extractor : extractors) {
+            if (extractor.matches(probe)) {
+                return extractor;
+            }
+        }
+        throw new IOException("Unsupported file type" + (contentType == null ? "" : ": " + contentType));
+    }
+
+    private static String normalize(String contentType) {
+        if (contentType == null) {
+            return "";
+        }
+        int parameters = contentType.indexOf(';');
+        return (parameters < 0 ? contentType : contentType.substring(0, parameters)).trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,73 @@
+package com.sprinto.evidencebot.extraction;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.ZipFile;
+
+/**
+ * The first few KB of a file, plus the entry names of a ZIP container, for
+ * format detection. Only the ZIP central directory is read, never the entries.
+ */
+public final class FileProbe {
+
+    private static final int HEADER_BYTES = 8192;
+    private static final byte[] ZIP_MAGIC = {'P', 'K', 3, 4};
+
+    private final Path file;
+    private final byte[] header;
+    private Set<String> zipEntries;
+
+    private FileProbe(Path file, byte[] header) {
+        this.file = file;
+        this.header = header;
+    }
+
+    public static FileProbe of(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return new FileProbe(file, in.readNBytes(HEADER_BYTES));
+        }
+    }
+
+    public boolean startsWith(byte[] magic) {
+        return header.length >= magic.length && Arrays.equals(header, 0, magic.length, magic, 0, magic.length);
+    }
+
+    public boolean isZip() {
+        return startsWith(ZIP_MAGIC);
+    }
+
+    public boolean hasZipEntry(String name) {
+        return zipEntries().contains(name);
+    }
+
+    /** No NUL bytes in the header, the same heuristic git uses to tell text from binary. */
+    public boolean looksLikeText() {
+        for (byte b : header) {
+            if (b == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Set<String> zipEntries() {
+        if (zipEntries == null) {
+            Set<String> names = new HashSet<>();
+            if (isZip()) {
+                try (ZipFile zip = new ZipFile(file.toFile())) {
+                    zip.stream().forEach(entry -> names.add(entry.getName()));
+                } catch (IOException e) {
+                    // Not a readable archive; no OOXML extractor will match
+                }
+            }
+            zipEntries = Collections.unmodifiableSet(names);
+        }
+        return zipEntries;
+    }
+}
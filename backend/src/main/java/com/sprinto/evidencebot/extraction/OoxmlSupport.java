@@ -0,0 +1,118 @@
+package com.sprinto.evidencebot.extraction;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackageRelationshipCollection;
+import org.apache.poi.openxml4j.opc.PackageRelationshipTypes;
+import org.apache.poi.util.XMLHelper;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Path;
+
+/**
+ * Shared plumbing for the OOXML extractors: packages are opened read-only
+ * from disk (parts are inflated on demand) and parts are parsed with POI's
+ * hardened SAX reader, so memory does not grow with document size.
+ */
+final class OoxmlSupport {
+
+    private OoxmlSupport() {}
+
+    static OPCPackage open(Path file) throws IOException {
+        try {
+            return OPCPackage.open(file.toFile(), PackageAccess.READ);
+        } catch (InvalidFormatException e) {
+            throw new IOException("Invalid OOXML package: " + e.getMessage(), e);
+        }
+    }
+
+    static PackagePart mainPart(OPCPackage pkg) throws IOException {
+        PackageRelationshipCollection relationships = pkg.getRelationshipsByType(PackageRelationshipTypes.CORE_DOCUMENT);
+        if (relationships.size() == 0) {
+            throw new IOException("OOXML package has no main document part");
+        }
+        try {
+            return pkg.getPart(relationships.getRelationship(0));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("OOXML main document part is missing", e);
+        }
+    }
+
+    static void parse(InputStream in, ContentHandler handler) throws IOException {
+        try {
+            XMLReader reader = XMLHelper.newXMLReader();
+            reader.setContentHandler(handler);
+            reader.parse(new InputSource(in));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (SAXException e) {
+            throw e.getException() instanceof IOException io ? io : new IOException("Malformed OOXML part: " + e.getMessage(), e);
+        } catch (ParserConfigurationException e) {
+            throw new IOException("XML parser unavailable", e);
+        }
+    }
+
+    /**
+     * Writes the character data of {@code <*:t>} runs, a newline at the end
+     * of each {@code <*:p>} paragraph, and tabs and line breaks where marked.
+     */
+    static class ParagraphTextHandler extends DefaultHandler {
+
+        private final Writer out;
+        private boolean inText;
+
+        ParagraphTextHandler(Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+            switch (localName) {
+                case "t" -> inText = true;
+                case "tab" -> write("\t");
+                case "br", "cr" -> write("\n");
+                default -> { }
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            if (localName.equals("t")) {
+                inText = false;
+            } else if (localName.equals("p")) {
+                write("\n");
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) throws SAXException {
+            if (inText) {
+                try {
+                    out.write(ch, start, length);
+                } catch (IOException e) {
+                    throw new SAXException(e);
+                }
+            }
+        }
+
+        private void write(String text) throws SAXException {
+            try {
+                out.write(text);
+            } catch (IOException e) {
+                throw new SAXException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.sprinto.evidencebot.extraction;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Extracts text from a PDF on disk without loading the file into the heap.
+ *
+ * The document is opened through a buffered file reader with a temp-file
+ * stream cache. Large documents are split into page ranges that are stripped
+ * in parallel on a bounded fork-join pool; each range opens its own
+ * {@link PDDocument} (PDFBox documents are not thread-safe) and spools its
+ * text to a temp file, and the segments are then copied to the output in
+ * page order.
+ */
+@Component
+@Order(10)
+public class PdfTextExtractor implements TextExtractor {
+
+    private static final byte[] MAGIC = {'%', 'P', 'D', 'F', '-'};
+
+    private final int pagesPerTask;
+    private final ForkJoinPool pool;
+
+    public PdfTextExtractor(@Value("${extraction.pdf.pages-per-task:25}") int pagesPerTask,
+                            @Value("${extraction.pdf.parallelism:0}") int parallelism) {
+        this.pagesPerTask = Math.max(1, pagesPerTask);
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @Override
+    public String type() {
+        return "pdf";
+    }
+
+    @Override
+    public Set<String> contentTypes() {
+        return Set.of("application/pdf");
+    }
+
+    @Override
+    public boolean matches(FileProbe probe) {
+        return probe.startsWith(MAGIC);
+    }
+
+    @Override
+    public void extract(Path pdf, Writer out) throws IOException {
+        int pageCount;
+        try (PDDocument document = open(pdf)) {
+            pageCount = document.getNumberOfPages();
+            if (pageCount <= pagesPerTask) {
+                new PDFTextStripper().writeText(document, out);
+                return;
+            }
+        }
+
+        List<Callable<Path>> tasks = new ArrayList<>();
+        for (int start = 1; start <= pageCount; start += pagesPerTask) {
+            int first = start;
+            int last = Math.min(pageCount, start + pagesPerTask - 1);
+            tasks.add(() -> extractRange(pdf, first, last));
+        }
+
+        List<Future<Path>> segments = pool.invokeAll(tasks);
+        try {
+            for (Future<Path> segment : segments) {
+                try (BufferedReader reader = Files.newBufferedReader(segment.get(), StandardCharsets.UTF_8)) {
+                    reader.transferTo(out);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("PDF extraction interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException io ? io : new IOException("PDF extraction failed", cause);
+        } finally {
+            for (Future<Path> segment : segments) {
+                if (segment.isDone() && !segment.isCancelled()) {
+                    try {
+                        Files.deleteIfExists(segment.get());
+                    } catch (ExecutionException | InterruptedException ignored) {
+                        // segment failed or was never written
+                    }
+                }
+            }
+        }
+    }
+
+    private Path extractRange(Path pdf, int firstPage, int lastPage) throws IOException {
+        Path segment = Files.createTempFile("pdf-text-", ".txt");
+        try (PDDocument document = open(pdf);
+             Writer writer = Files.newBufferedWriter(segment, StandardCharsets.UTF_8)) {
+            PDFTextStripper stripper = new PDFTextStripper();
+            stripper.setStartPage(firstPage);
+            stripper.setEndPage(lastPage);
+            stripper.writeText(document, writer);
+            return segment;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(segment);
+            throw e;
+        }
+    }
+
+    private static PDDocument open(Path pdf) throws IOException {
+        return Loader.loadPDF(new RandomAccessReadBufferedFile(pdf.toFile()), IOUtils.createTempFileOnlyStreamCache());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdown();
+    }
+}
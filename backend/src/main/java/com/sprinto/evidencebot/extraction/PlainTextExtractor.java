@@ -0,0 +1,49 @@
+package com.sprinto.evidencebot.extraction;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * UTF-8 text. Tried last, and only for files without NUL bytes in their
+ * header; malformed UTF-8 is replaced rather than rejected.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class PlainTextExtractor implements TextExtractor {
+
+    private static final Set<String> CONTENT_TYPES = Set.of(
+            "text/plain", "text/csv", "text/markdown", "text/html", "text/xml",
+            "application/json", "application/xml");
+
+    @Override
+    public String type() {
+        return "text";
+    }
+
+    @Override
+    public Set<String> contentTypes() {
+        return CONTENT_TYPES;
+    }
+
+    @Override
+    public boolean matches(FileProbe probe) {
+        return probe.looksLikeText();
+    }
+
+    @Override
+    public void extract(Path file, Writer out) throws IOException {
+        try (Reader reader = new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8)) {
+            reader.transferTo(out);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.sprinto.evidencebot.extraction;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Slide decks: SAX over each slide part in slide-number order, one blank
+ * line between slides.
+ */
+@Component
+@Order(40)
+public class PptxTextExtractor implements TextExtractor {
+
+    private static final Pattern SLIDE_PART = Pattern.compile("/ppt/slides/slide(\\d+)\\.xml");
+
+    @Override
+    public String type() {
+        return "pptx";
+    }
+
+    @Override
+    public Set<String> contentTypes() {
+        return Set.of("application/vnd.openxmlformats-officedocument.presentationml.presentation");
+    }
+
+    @Override
+    public boolean matches(FileProbe probe) {
+        return probe.isZip() && probe.hasZipEntry("ppt/presentation.xml");
+    }
+
+    @Override
+    public void extract(Path file, Writer out) throws IOException {
+        OPCPackage pkg = OoxmlSupport.open(file);
+        try {
+            List<PackagePart> slides = pkg.getPartsByName(SLIDE_PART).stream()
+                    .sorted(Comparator.comparingInt(PptxTextExtractor::slideNumber))
+                    .toList();
+            for (PackagePart slide : slides) {
+                try (InputStream in = slide.getInputStream()) {
+                    OoxmlSupport.parse(in, new OoxmlSupport.ParagraphTextHandler(out));
+                }
+                out.write('\n');
+            }
+        } finally {
+            pkg.revert();
+        }
+    }
+
+    private static int slideNumber(PackagePart part) {
+        Matcher matcher = SLIDE_PART.matcher(part.getPartName().getName());
+        return matcher.matches() ? Integer.parseInt(matcher.group(1)) : Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,25 @@
+package com.sprinto.evidencebot.extraction;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * Streams the text of one file format to a writer. Implementations are
+ * Spring beans picked up by {@link ExtractorRegistry}; {@code @Order}
+ * decides which is tried first when several recognize the same bytes.
+ */
+public interface TextExtractor {
+
+    /** Short format name, used as the {@code type} tag of extraction metrics. */
+    String type();
+
+    /** Declared content types this extractor handles, without parameters. */
+    Set<String> contentTypes();
+
+    /** Whether the file's leading bytes (and, for ZIP containers, entry names) are this format. */
+    boolean matches(FileProbe probe);
+
+    void extract(Path file, Writer out) throws IOException;
+}
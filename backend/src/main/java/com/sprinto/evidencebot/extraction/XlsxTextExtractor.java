@@ -0,0 +1,109 @@
+package com.sprinto.evidencebot.extraction;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.xml.sax.SAXException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * Spreadsheets through POI's event model: each sheet is streamed row by row
+ * as tab-separated formatted values under its sheet name. Only the shared
+ * strings table is held in memory; cell data never is.
+ */
+@Component
+@Order(30)
+public class XlsxTextExtractor implements TextExtractor {
+
+    @Override
+    public String type() {
+        return "xlsx";
+    }
+
+    @Override
+    public Set<String> contentTypes() {
+        return Set.of("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+    }
+
+    @Override
+    public boolean matches(FileProbe probe) {
+        return probe.isZip() && probe.hasZipEntry("xl/workbook.xml");
+    }
+
+    @Override
+    public void extract(Path file, Writer out) throws IOException {
+        OPCPackage pkg = OoxmlSupport.open(file);
+        try {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg, false);
+            StylesTable styles = reader.getStylesTable();
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            DataFormatter formatter = new DataFormatter();
+            while (sheets.hasNext()) {
+                try (InputStream sheet = sheets.next()) {
+                    out.write(sheets.getSheetName());
+                    out.write('\n');
+                    OoxmlSupport.parse(sheet, new XSSFSheetXMLHandler(styles, null, strings, new RowWriter(out), formatter, false));
+                }
+                out.write('\n');
+            }
+        } catch (OpenXML4JException | SAXException e) {
+            throw new IOException("Invalid spreadsheet: " + e.getMessage(), e);
+        } finally {
+            pkg.revert();
+        }
+    }
+
+    private static final class RowWriter implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        private final Writer out;
+        private boolean firstCell;
+
+        RowWriter(Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            firstCell = true;
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            write("\n");
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            if (!firstCell) {
+                write("\t");
+            }
+            firstCell = false;
+            if (formattedValue != null) {
+                write(formattedValue);
+            }
+        }
+
+        // SheetContentsHandler cannot throw checked exceptions; OoxmlSupport.parse unwraps this
+        private void write(String text) {
+            try {
+                out.write(text);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
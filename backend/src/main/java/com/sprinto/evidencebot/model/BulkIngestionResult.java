@@ -0,0 +1,14 @@
+package com.sprinto.evidencebot.model;
+
+import java.util.List;
+
+/**
+ * Per-file outcome of a bulk upload.
+ */
+public record BulkIngestionResult(int total, int succeeded, int duplicates, int failed, long elapsedMs, List<FileResult> files) {
+
+    /** DUPLICATE files matched an already stored document byte for byte and were not stored again. */
+    public enum Status { STORED, DUPLICATE, FAILED }
+
+    public record FileResult(String filename, Status status, Long documentId, String error) {}
+}
@@ -0,0 +1,9 @@
+package com.sprinto.evidencebot.model;
+
+/**
+ * AI gap analysis for a compliance report and how it was produced.
+ * {@code reused} documents had memoized findings; {@code analyzed} ones were
+ * sent to the model in this run.
+ */
+public record ComplianceAnalysis(String analysis, String mode, int documents, int analyzed, int reused, int failed,
+                                 int mapCalls, int reduceCalls, long elapsedMs) {}
@@ -0,0 +1,55 @@
+package com.sprinto.evidencebot.model;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Raw DEFLATE coding of document text for compressed content storage.
+ */
+final class ContentCompression {
+
+    private ContentCompression() {}
+
+    static byte[] compress(byte[] utf8, int level) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(utf8);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, utf8.length / 4));
+            byte[] buffer = new byte[16 * 1024];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static String decompress(byte[] compressed, int originalLength) {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            byte[] utf8 = new byte[originalLength];
+            int read = 0;
+            while (read < originalLength && !inflater.finished()) {
+                int n = inflater.inflate(utf8, read, originalLength - read);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += n;
+            }
+            if (read != originalLength) {
+                throw new IllegalStateException("Compressed content is truncated: " + read + " of " + originalLength + " bytes");
+            }
+            return new String(utf8, StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Compressed content is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.sprinto.evidencebot.model;
+
+/**
+ * Totals over stored document text: UTF-8 size as extracted against the
+ * bytes actually held by the database.
+ */
+public record ContentStorageStats(long documents, long compressedDocuments, long contentBytes, long storedBytes) {
+
+    public double getCompressionRatio() {
+        return storedBytes == 0 ? 1.0 : contentBytes / (double) storedBytes;
+    }
+}
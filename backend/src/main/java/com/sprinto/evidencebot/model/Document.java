@@ -1,20 +1,50 @@
 package com.sprinto.evidencebot.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.sprinto.evidencebot.search.MinHash;
 import jakarta.persistence.*;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.Set;
 
 @Entity
-@Table(name = "documents")
+@Table(name = "documents", indexes = @Index(name = "ux_documents_content_hash", columnList = "content_hash", unique = true))
 public class Document {
+    public static final int SNIPPET_LENGTH = 200;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Pooled sequence rather than IDENTITY so Hibernate can batch inserts
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "document_seq")
+    @SequenceGenerator(name = "document_seq", sequenceName = "document_seq", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false)
     private String filename;
     
+    @Basic(fetch = FetchType.LAZY)
     @Column(columnDefinition = "TEXT")
     private String content;
+
+    // Set instead of content when compressed storage is enabled
+    @JsonIgnore
+    @Lob
+    @Basic(fetch = FetchType.LAZY)
+    @Column(name = "content_compressed")
+    private byte[] compressedContent;
+
+    // UTF-8 size of the text and of what is stored for it
+    @Column(name = "content_size")
+    private Long contentSize;
+
+    @Column(name = "stored_content_size")
+    private Long storedContentSize;
+
+    // Text decoded from compressedContent, kept while this instance is in use
+    @Transient
+    private String decompressedContent;
+
+    @Column(length = SNIPPET_LENGTH)
+    private String snippet;
     
     @Column(name = "file_type")
     private String fileType;
@@ -25,14 +55,28 @@ public class Document {
     @Column(name = "file_size")
     private Long fileSize;
 
+    @Column(name = "category_flags")
+    private Long categoryFlags;
+
+    // SHA-256 of the uploaded bytes, hex encoded
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    // MinHash signature of the extracted text for near-duplicate detection
+    @JsonIgnore
+    @Column(name = "text_fingerprint", length = MinHash.NUM_HASHES * Integer.BYTES)
+    private byte[] textFingerprint;
+
     public Document() {}
 
     public Document(String filename, String content, String fileType, Long fileSize) {
         this.filename = filename;
-        this.content = content;
+        setContent(content);
         this.fileType = fileType;
         this.fileSize = fileSize;
         this.uploadDate = LocalDateTime.now();
+        this.categoryFlags = DocumentCategory.classify(filename, content);
+        this.textFingerprint = MinHash.toBytes(MinHash.signature(content));
     }
 
     // Getters and Setters
@@ -42,8 +86,57 @@ public class Document {
     public String getFilename() { return filename; }
     public void setFilename(String filename) { this.filename = filename; }
     
-    public String getContent() { return content; }
-    public void setContent(String content) { this.content = content; }
+    public String getContent() {
+        if (content != null || compressedContent == null) {
+            return content;
+        }
+        if (decompressedContent == null) {
+            decompressedContent = ContentCompression.decompress(compressedContent, contentSize.intValue());
+        }
+        return decompressedContent;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+        this.compressedContent = null;
+        this.decompressedContent = null;
+        this.snippet = buildSnippet(content);
+        this.contentSize = content == null ? null : (long) content.getBytes(StandardCharsets.UTF_8).length;
+        this.storedContentSize = contentSize;
+    }
+
+    /**
+     * Moves the text into a DEFLATE-compressed column. Reads through
+     * {@link #getContent()} decompress transparently.
+     */
+    public void compressContent(int level) {
+        if (content == null) {
+            return;
+        }
+        byte[] utf8 = content.getBytes(StandardCharsets.UTF_8);
+        byte[] compressed = ContentCompression.compress(utf8, level);
+        if (compressed.length >= utf8.length) {
+            return;
+        }
+        this.decompressedContent = content;
+        this.compressedContent = compressed;
+        this.content = null;
+        this.contentSize = (long) utf8.length;
+        this.storedContentSize = (long) compressed.length;
+    }
+
+    public boolean isCompressed() { return storedContentSize != null && !storedContentSize.equals(contentSize); }
+
+    public Long getContentSize() { return contentSize; }
+
+    public Long getStoredContentSize() { return storedContentSize; }
+
+    public double getCompressionRatio() {
+        return storedContentSize == null || storedContentSize == 0 ? 1.0 : contentSize / (double) storedContentSize;
+    }
+
+    public String getSnippet() { return snippet; }
+    public void setSnippet(String snippet) { this.snippet = snippet; }
     
     public String getFileType() { return fileType; }
     public void setFileType(String fileType) { this.fileType = fileType; }
@@ -53,4 +146,41 @@ public class Document {
     
     public Long getFileSize() { return fileSize; }
     public void setFileSize(Long fileSize) { this.fileSize = fileSize; }
-}
\ No newline at end of file
+
+    public Long getCategoryFlags() { return categoryFlags; }
+    public void setCategoryFlags(Long categoryFlags) { this.categoryFlags = categoryFlags; }
+
+    public String getContentHash() { return contentHash; }
+    public void setContentHash(String contentHash) { this.contentHash = contentHash; }
+
+    public byte[] getTextFingerprint() { return textFingerprint; }
+    public void setTextFingerprint(byte[] textFingerprint) { this.textFingerprint = textFingerprint; }
+
+    public Set<DocumentCategory> getCategories() {
+        return DocumentCategory.fromFlags(categoryFlags == null ? 0 : categoryFlags);
+    }
+
+    private static String buildSnippet(String content) {
+        if (content == null) {
+            return null;
+        }
+        StringBuilder snippet = new StringBuilder(SNIPPET_LENGTH);
+        boolean pendingSpace = false;
+        for (int i = 0; i < content.length() && snippet.length() < SNIPPET_LENGTH; i++) {
+            char c = content.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = snippet.length() > 0;
+            } else {
+                if (pendingSpace) {
+                    if (snippet.length() >= SNIPPET_LENGTH - 1) {
+                        break;
+                    }
+                    snippet.append(' ');
+                }
+                pendingSpace = false;
+                snippet.append(c);
+            }
+        }
+        return snippet.toString();
+    }
+}
@@ -0,0 +1,84 @@
+package com.sprinto.evidencebot.model;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Classification flags computed once at ingest and stored on the document as a
+ * bitmask. The ordinal is the bit position, so new categories must only ever
+ * be appended.
+ *
+ * Categories with a domain name also back the per-domain counters of the
+ * compliance report (e.g. {@code ?domain=gdpr}).
+ */
+public enum DocumentCategory {
+    POLICY(null, "policy"),
+    PROCEDURE(null, "procedure"),
+    PLAN(null, "plan"),
+    GUIDELINE(null, "guideline"),
+    GDPR("gdpr", "gdpr", "general data protection regulation"),
+    SOC2("soc2", "soc 2", "soc2", "service organization control"),
+    ISO27001("iso27001", "iso 27001", "iso/iec 27001", "iso27001"),
+    HIPAA("hipaa", "hipaa", "protected health information"),
+    PCI_DSS("pci", "pci dss", "pci-dss", "cardholder data");
+
+    private final String domain;
+    private final List<String> keywords;
+
+    DocumentCategory(String domain, String... keywords) {
+        this.domain = domain;
+        this.keywords = List.of(keywords);
+    }
+
+    public long mask() {
+        return 1L << ordinal();
+    }
+
+    public String getDomain() {
+        return domain;
+    }
+
+    public static DocumentCategory forDomain(String domain) {
+        if (domain == null) {
+            return null;
+        }
+        String normalized = domain.trim().toLowerCase(Locale.ROOT).replace(" ", "").replace("-", "");
+        for (DocumentCategory category : values()) {
+            if (category.domain != null && category.domain.equals(normalized)) {
+                return category;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the category bitmask for a document. The content is lowercased
+     * once and each keyword is matched as a substring of the filename or text.
+     */
+    public static long classify(String filename, String content) {
+        String name = filename == null ? "" : filename.toLowerCase(Locale.ROOT);
+        String text = content == null ? "" : content.toLowerCase(Locale.ROOT);
+        long flags = 0;
+        for (DocumentCategory category : values()) {
+            for (String keyword : category.keywords) {
+                if (name.contains(keyword) || text.contains(keyword)) {
+                    flags |= category.mask();
+                    break;
+                }
+            }
+        }
+        return flags;
+    }
+
+    public static Set<DocumentCategory> fromFlags(long flags) {
+        Set<DocumentCategory> categories = EnumSet.noneOf(DocumentCategory.class);
+        for (DocumentCategory category : values()) {
+            if ((flags & category.mask()) != 0) {
+                categories.add(category);
+            }
+        }
+        return categories;
+    }
+}
@@ -0,0 +1,12 @@
+package com.sprinto.evidencebot.model;
+
+/**
+ * What compliance analysis needs to know about a {@link Document} before
+ * deciding whether to read its text: memoized findings are keyed by the
+ * content hash, and the mode is chosen from the text sizes.
+ */
+public record DocumentDigest(
+        Long id,
+        String filename,
+        String contentHash,
+        Long contentSize) {}
@@ -0,0 +1,24 @@
+package com.sprinto.evidencebot.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.sprinto.evidencebot.search.TextSpan;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * A search or evidence result: document metadata, where the query matched
+ * and a match-centred snippet. {@code content} is only filled in when the
+ * caller asked for full text.
+ */
+public record DocumentHit(
+        Long id,
+        String filename,
+        String fileType,
+        Long fileSize,
+        LocalDateTime uploadDate,
+        int matchCount,
+        List<TextSpan> matches,
+        String snippet,
+        List<TextSpan> highlights,
+        @JsonInclude(JsonInclude.Include.NON_NULL) String content) {}
@@ -0,0 +1,9 @@
+package com.sprinto.evidencebot.model;
+
+import java.util.List;
+
+/**
+ * One page of document summaries or hits plus the opaque cursor for the next
+ * page, or {@code null} when there are no more results.
+ */
+public record DocumentPage<T>(List<T> items, String nextCursor) {}
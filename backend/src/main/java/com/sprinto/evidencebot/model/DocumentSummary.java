@@ -0,0 +1,15 @@
+package com.sprinto.evidencebot.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Metadata-only view of a {@link Document} used by list and search responses,
+ * so that the full content column is never read or serialized for them.
+ */
+public record DocumentSummary(
+        Long id,
+        String filename,
+        String fileType,
+        Long fileSize,
+        LocalDateTime uploadDate,
+        String snippet) {}
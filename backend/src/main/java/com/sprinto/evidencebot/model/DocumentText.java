@@ -0,0 +1,21 @@
+package com.sprinto.evidencebot.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Detached copy of a {@link Document} with its text already read, so it can
+ * be shared between request threads and outlive the session that loaded it.
+ */
+public record DocumentText(
+        Long id,
+        String filename,
+        String fileType,
+        Long fileSize,
+        LocalDateTime uploadDate,
+        String content) {
+
+    public static DocumentText of(Document document) {
+        return new DocumentText(document.getId(), document.getFilename(), document.getFileType(),
+                document.getFileSize(), document.getUploadDate(), document.getContent());
+    }
+}
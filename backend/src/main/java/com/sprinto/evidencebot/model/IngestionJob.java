@@ -0,0 +1,100 @@
+package com.sprinto.evidencebot.model;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Progress of one asynchronous upload through the ingestion pipeline. Updated
+ * by pipeline workers and read by the job status endpoint.
+ */
+public class IngestionJob {
+
+    public enum Status { QUEUED, EXTRACTING, PERSISTING, INDEXING, COMPLETED, FAILED }
+
+    private static final int STAGE_COUNT = 3;
+
+    private final String id;
+    private final String filename;
+    private final String contentType;
+    private final long fileSize;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+    private final Map<String, Long> stageTimingsMs = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    private volatile Status status = Status.QUEUED;
+    private volatile int completedStages;
+    private volatile Long documentId;
+    private volatile boolean duplicate;
+    private volatile List<Long> nearDuplicateIds = List.of();
+    private volatile String error;
+    private volatile LocalDateTime completedAt;
+
+    public IngestionJob(String id, String filename, String contentType, long fileSize) {
+        this.id = id;
+        this.filename = filename;
+        this.contentType = contentType;
+        this.fileSize = fileSize;
+    }
+
+    public void startStage(Status stage) {
+        this.status = stage;
+    }
+
+    public void finishStage(String stage, long elapsedMs) {
+        stageTimingsMs.put(stage, elapsedMs);
+        completedStages++;
+    }
+
+    public void recordWait(String stage, long elapsedMs) {
+        stageTimingsMs.put(stage, elapsedMs);
+    }
+
+    public void complete(Long documentId) {
+        this.documentId = documentId;
+        this.completedAt = LocalDateTime.now();
+        this.status = Status.COMPLETED;
+    }
+
+    /**
+     * Completes the job with an already stored document holding the same bytes.
+     */
+    public void completeAsDuplicate(Long existingDocumentId) {
+        this.duplicate = true;
+        complete(existingDocumentId);
+    }
+
+    public void setNearDuplicateIds(List<Long> nearDuplicateIds) {
+        this.nearDuplicateIds = List.copyOf(nearDuplicateIds);
+    }
+
+    public void fail(String error) {
+        this.error = error;
+        this.completedAt = LocalDateTime.now();
+        this.status = Status.FAILED;
+    }
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+    public String getId() { return id; }
+    public String getFilename() { return filename; }
+    public String getContentType() { return contentType; }
+    public long getFileSize() { return fileSize; }
+    public Status getStatus() { return status; }
+    public int getProgress() { return status == Status.COMPLETED ? 100 : completedStages * 100 / STAGE_COUNT; }
+    public Long getDocumentId() { return documentId; }
+    public boolean isDuplicate() { return duplicate; }
+    public List<Long> getNearDuplicateIds() { return nearDuplicateIds; }
+    public String getError() { return error; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getCompletedAt() { return completedAt; }
+
+    public Map<String, Long> getStageTimingsMs() {
+        synchronized (stageTimingsMs) {
+            return new LinkedHashMap<>(stageTimingsMs);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.sprinto.evidencebot.model;
+
+/**
+ * A stored document whose text is estimated to overlap another's by at least
+ * the configured near-duplicate threshold.
+ */
+public record NearDuplicate(DocumentSummary document, double similarity) {}
@@ -0,0 +1,8 @@
+package com.sprinto.evidencebot.prompt;
+
+/**
+ * Passages selected for a prompt, already formatted as numbered document
+ * blocks, with the token count of that block and how many of the offered
+ * passages made it in.
+ */
+public record PackedPassages(String text, int tokens, int included, int offered, boolean truncated) {}
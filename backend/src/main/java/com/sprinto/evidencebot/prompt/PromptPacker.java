@@ -0,0 +1,123 @@
+package com.sprinto.evidencebot.prompt;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fits ranked passages into a prompt's token budget and keeps per-operation
+ * prompt size statistics.
+ *
+ * Passages are taken greedily in the order given, which callers supply most
+ * relevant first. A passage that does not fit whole is cut to the remaining
+ * budget if enough room is left to be useful; packing stops there.
+ */
+@Component
+public class PromptPacker {
+
+    private static final String SEPARATOR = "\n\n";
+
+    @Autowired
+    private TokenCounter tokenCounter;
+
+    private final int contextWindow;
+    private final int minPartialTokens;
+    private final Map<String, OperationStats> stats = new ConcurrentHashMap<>();
+
+    public PromptPacker(@Value("${prompt.context-window:16385}") int contextWindow,
+                        @Value("${prompt.min-partial-passage-tokens:64}") int minPartialTokens) {
+        this.contextWindow = contextWindow;
+        this.minPartialTokens = minPartialTokens;
+    }
+
+    /**
+     * Tokens available for passages once the fixed part of the prompt and the
+     * completion ({@code maxTokens}) are reserved, capped at the operation's
+     * own budget.
+     */
+    public int passageBudget(int operationBudget, int fixedPromptTokens, int maxTokens) {
+        return Math.max(0, Math.min(operationBudget, contextWindow - maxTokens - fixedPromptTokens));
+    }
+
+    public PackedPassages pack(List<String> passages, int budget) {
+        StringBuilder text = new StringBuilder();
+        int used = 0;
+        int included = 0;
+        boolean truncated = false;
+        int separatorTokens = tokenCounter.count(SEPARATOR);
+        for (String passage : passages) {
+            String label = "Document " + (included + 1) + ":\n";
+            int overhead = tokenCounter.count(label) + separatorTokens;
+            int passageTokens = tokenCounter.count(passage);
+            int remaining = budget - used - overhead;
+            if (passageTokens > remaining) {
+                truncated = true;
+                if (remaining < minPartialTokens) {
+                    break;
+                }
+                passage = tokenCounter.truncate(passage, remaining) + "...";
+                passageTokens = remaining;
+            }
+            text.append(label).append(passage).append(SEPARATOR);
+            used += overhead + passageTokens;
+            included++;
+            if (truncated) {
+                break;
+            }
+        }
+        return new PackedPassages(text.toString(), used, included, passages.size(), truncated);
+    }
+
+    /**
+     * Records the size of one assembled request, before it is sent.
+     */
+    public void record(String operation, int promptTokens, PackedPassages packed) {
+        OperationStats operationStats = stats.computeIfAbsent(operation, o -> new OperationStats());
+        operationStats.requests.incrementAndGet();
+        operationStats.promptTokens.addAndGet(promptTokens);
+        operationStats.maxPromptTokens.accumulateAndGet(promptTokens, Math::max);
+        if (packed.truncated()) {
+            operationStats.truncatedRequests.incrementAndGet();
+        }
+    }
+
+    /**
+     * Records completion usage as reported by the API; streamed responses carry none.
+     */
+    public void recordCompletion(String operation, long completionTokens) {
+        stats.computeIfAbsent(operation, o -> new OperationStats()).completionTokens.addAndGet(completionTokens);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("contextWindow", contextWindow);
+        Map<String, Object> operations = new HashMap<>();
+        stats.forEach((operation, s) -> {
+            long requests = s.requests.get();
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("requests", requests);
+            entry.put("promptTokens", s.promptTokens.get());
+            entry.put("averagePromptTokens", requests == 0 ? 0 : s.promptTokens.get() / requests);
+            entry.put("maxPromptTokens", s.maxPromptTokens.get());
+            entry.put("completionTokens", s.completionTokens.get());
+            entry.put("truncatedRequests", s.truncatedRequests.get());
+            operations.put(operation, entry);
+        });
+        result.put("operations", operations);
+        return result;
+    }
+
+    private static final class OperationStats {
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong promptTokens = new AtomicLong();
+        final AtomicLong maxPromptTokens = new AtomicLong();
+        final AtomicLong completionTokens = new AtomicLong();
+        final AtomicLong truncatedRequests = new AtomicLong();
+    }
+}
@@ -0,0 +1,82 @@
+package com.sprinto.evidencebot.prompt;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingType;
+import com.knuddels.jtokkit.api.IntArrayList;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Counts and truncates text in model tokens using the BPE encoding of the
+ * configured chat model (cl100k_base for the GPT-3.5/4 family).
+ */
+@Component
+public class TokenCounter {
+
+    // Every chat message is wrapped in role/separator tokens; the reply is primed with 3 more
+    private static final int TOKENS_PER_MESSAGE = 4;
+    private static final int TOKENS_PER_REPLY = 3;
+
+    private final Encoding encoding;
+
+    public TokenCounter(@Value("${openai.model:gpt-3.5-turbo}") String model) {
+        this.encoding = Encodings.newLazyEncodingRegistry()
+                .getEncodingForModel(model)
+                .orElseGet(() -> Encodings.newLazyEncodingRegistry().getEncoding(EncodingType.CL100K_BASE));
+    }
+
+    public int count(String text) {
+        return text == null || text.isEmpty() ? 0 : encoding.countTokensOrdinary(text);
+    }
+
+    /**
+     * Token count of a chat request made of the given message contents,
+     * including per-message framing.
+     */
+    public int countMessages(List<String> messageContents) {
+        int total = TOKENS_PER_REPLY;
+        for (String content : messageContents) {
+            total += TOKENS_PER_MESSAGE + count(content);
+        }
+        return total;
+    }
+
+    /**
+     * Keeps the first {@code maxTokens} tokens of the text.
+     */
+    public String truncate(String text, int maxTokens) {
+        if (maxTokens <= 0) {
+            return "";
+        }
+        IntArrayList tokens = encoding.encodeOrdinary(text);
+        if (tokens.size() <= maxTokens) {
+            return text;
+        }
+        IntArrayList head = new IntArrayList(maxTokens);
+        for (int i = 0; i < maxTokens; i++) {
+            head.add(tokens.get(i));
+        }
+        return encoding.decode(head);
+    }
+
+    /**
+     * Keeps the last {@code maxTokens} tokens of the text.
+     */
+    public String truncateFromStart(String text, int maxTokens) {
+        if (maxTokens <= 0) {
+            return "";
+        }
+        IntArrayList tokens = encoding.encodeOrdinary(text);
+        if (tokens.size() <= maxTokens) {
+            return text;
+        }
+        IntArrayList tail = new IntArrayList(maxTokens);
+        for (int i = tokens.size() - maxTokens; i < tokens.size(); i++) {
+            tail.add(tokens.get(i));
+        }
+        return encoding.decode(tail);
+    }
+}
@@ -1,20 +1,62 @@
 package com.sprinto.evidencebot.repository;
 
+import com.sprinto.evidencebot.model.ContentStorageStats;
 import com.sprinto.evidencebot.model.Document;
+import com.sprinto.evidencebot.model.DocumentDigest;
+import com.sprinto.evidencebot.model.DocumentSummary;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface DocumentRepository extends JpaRepository<Document, Long> {
     
-    @Query("SELECT d FROM Document d WHERE LOWER(d.content) LIKE LOWER(CONCAT('%', :keyword, '%'))")
-    List<Document> findByContentContainingIgnoreCase(@Param("keyword") String keyword);
-    
     @Query("SELECT d FROM Document d WHERE LOWER(d.filename) LIKE LOWER(CONCAT('%', :keyword, '%'))")
     List<Document> findByFilenameContainingIgnoreCase(@Param("keyword") String keyword);
     
     List<Document> findByFileType(String fileType);
-}
\ No newline at end of file
+
+    @Query("SELECT new com.sprinto.evidencebot.model.DocumentSummary(d.id, d.filename, d.fileType, d.fileSize, d.uploadDate, d.snippet) " +
+           "FROM Document d WHERE d.id > :after ORDER BY d.id")
+    List<DocumentSummary> findSummariesAfter(@Param("after") Long after, Pageable pageable);
+
+    @Query("SELECT new com.sprinto.evidencebot.model.DocumentSummary(d.id, d.filename, d.fileType, d.fileSize, d.uploadDate, d.snippet) " +
+           "FROM Document d WHERE d.id IN :ids")
+    List<DocumentSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT new com.sprinto.evidencebot.model.DocumentSummary(d.id, d.filename, d.fileType, d.fileSize, d.uploadDate, d.snippet) " +
+           "FROM Document d WHERE d.id = :id")
+    Optional<DocumentSummary> findSummaryById(@Param("id") Long id);
+
+    @Query("SELECT d.id FROM Document d")
+    List<Long> findAllIds();
+
+    @Query("SELECT d.id FROM Document d WHERE d.contentHash = :contentHash")
+    Optional<Long> findIdByContentHash(@Param("contentHash") String contentHash);
+
+    @Query("SELECT new com.sprinto.evidencebot.model.ContentStorageStats(COUNT(d), " +
+           "COALESCE(SUM(CASE WHEN d.storedContentSize < d.contentSize THEN 1 ELSE 0 END), 0), " +
+           "COALESCE(SUM(d.contentSize), 0), COALESCE(SUM(d.storedContentSize), 0)) FROM Document d")
+    ContentStorageStats getContentStorageStats();
+
+    @Query("SELECT new com.sprinto.evidencebot.model.DocumentDigest(d.id, d.filename, d.contentHash, d.contentSize) " +
+           "FROM Document d ORDER BY d.id")
+    List<DocumentDigest> findAllDigests();
+
+    @Query("SELECT d.categoryFlags FROM Document d")
+    List<Long> findAllCategoryFlags();
+
+    @Query("SELECT d.categoryFlags FROM Document d WHERE d.id = :id")
+    Optional<Long> findCategoryFlagsById(@Param("id") Long id);
+
+    // Unlike deleteById, reports whether this call removed the row
+    @Modifying
+    @Query("DELETE FROM Document d WHERE d.id = :id")
+    int deleteRowById(@Param("id") Long id);
+}
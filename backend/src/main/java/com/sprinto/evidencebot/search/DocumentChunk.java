@@ -0,0 +1,3 @@
+package com.sprinto.evidencebot.search;
+
+public record DocumentChunk(Long documentId, String filename, int chunkIndex, String text) {}
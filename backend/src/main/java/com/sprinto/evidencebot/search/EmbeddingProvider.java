@@ -0,0 +1,22 @@
+package com.sprinto.evidencebot.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns text into a fixed-length, L2-normalised vector for the vector index.
+ */
+public interface EmbeddingProvider {
+
+    int dimensions();
+
+    float[] embed(String text);
+
+    default List<float[]> embedAll(List<String> texts) {
+        List<float[]> vectors = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            vectors.add(embed(text));
+        }
+        return vectors;
+    }
+}
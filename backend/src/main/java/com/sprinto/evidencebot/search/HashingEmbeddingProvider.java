@@ -0,0 +1,44 @@
+package com.sprinto.evidencebot.search;
+
+import java.util.List;
+
+/**
+ * Deterministic, dependency-free embedder based on signed feature hashing of
+ * unigrams and bigrams. Quality is far below a learned model, but the same
+ * text always maps to the same vector, which makes it suitable for local
+ * development and tests.
+ */
+public class HashingEmbeddingProvider implements EmbeddingProvider {
+
+    private final int dimensions;
+
+    public HashingEmbeddingProvider(int dimensions) {
+        this.dimensions = dimensions;
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    @Override
+    public float[] embed(String text) {
+        float[] vector = new float[dimensions];
+        List<String> tokens = Tokenizer.tokenize(text);
+        String previous = null;
+        for (String token : tokens) {
+            addFeature(vector, token.hashCode(), 1.0f);
+            if (previous != null) {
+                addFeature(vector, (previous + ' ' + token).hashCode(), 0.5f);
+            }
+            previous = token;
+        }
+        return VectorMath.normalize(vector);
+    }
+
+    private void addFeature(float[] vector, int hash, float weight) {
+        int mixed = hash * 0x9E3779B1;
+        int index = Math.floorMod(mixed >>> 1, dimensions);
+        vector[index] += (mixed & 1) == 0 ? weight : -weight;
+    }
+}
@@ -0,0 +1,10 @@
+package com.sprinto.evidencebot.search;
+
+import java.util.List;
+
+/**
+ * Query matches in one document: offsets into the full text (at most the
+ * configured number, {@code matchCount} is the total) and a snippet centred on
+ * the densest cluster of matches with {@code highlights} relative to it.
+ */
+public record Highlight(int matchCount, List<TextSpan> matches, String snippet, List<TextSpan> highlights) {}
@@ -0,0 +1,137 @@
+package com.sprinto.evidencebot.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds query terms in document text in a single pass, tokenizing exactly as
+ * {@link Tokenizer} does, and cuts a snippet around the window of at most
+ * {@code snippetLength} characters that covers the most distinct terms (ties
+ * broken by match count).
+ */
+public final class Highlighter {
+
+    private static final String ELLIPSIS = "…";
+
+    private Highlighter() {}
+
+    private record Match(int start, int end, int term) {}
+
+    public static Highlight highlight(String text, Collection<String> queryTerms, int snippetLength, int maxMatches) {
+        if (text == null || text.isEmpty()) {
+            return new Highlight(0, List.of(), "", List.of());
+        }
+        Map<String, Integer> termIds = new HashMap<>();
+        int minLength = Integer.MAX_VALUE;
+        int maxLength = 0;
+        for (String term : queryTerms) {
+            termIds.putIfAbsent(term, termIds.size());
+            minLength = Math.min(minLength, term.length());
+            maxLength = Math.max(maxLength, term.length());
+        }
+
+        List<Match> found = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        int tokenStart = -1;
+        for (int i = 0, n = text.length(); i <= n; i++) {
+            char c = i < n ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                if (tokenStart < 0) {
+                    tokenStart = i;
+                }
+                current.append(Character.toLowerCase(c));
+            } else if (tokenStart >= 0) {
+                // Only tokens of a possible term length are materialized
+                if (current.length() >= minLength && current.length() <= maxLength) {
+                    Integer id = termIds.get(current.toString());
+                    if (id != null) {
+                        found.add(new Match(tokenStart, i, id));
+                    }
+                }
+                current.setLength(0);
+                tokenStart = -1;
+            }
+        }
+
+        List<TextSpan> matches = new ArrayList<>(Math.min(found.size(), maxMatches));
+        for (int i = 0; i < found.size() && i < maxMatches; i++) {
+            matches.add(new TextSpan(found.get(i).start(), found.get(i).end()));
+        }
+        if (found.isEmpty()) {
+            int to = wordEnd(text, Math.min(text.length(), snippetLength), 0);
+            return new Highlight(0, matches, snippet(text, 0, to), List.of());
+        }
+
+        // Sliding window over the matches, not the text
+        int[] counts = new int[termIds.size()];
+        int distinct = 0;
+        int bestLeft = 0;
+        int bestRight = 0;
+        long bestScore = -1;
+        for (int left = 0, right = 0; right < found.size(); right++) {
+            if (counts[found.get(right).term()]++ == 0) {
+                distinct++;
+            }
+            while (found.get(right).end() - found.get(left).start() > snippetLength && left < right) {
+                if (--counts[found.get(left).term()] == 0) {
+                    distinct--;
+                }
+                left++;
+            }
+            long score = (long) distinct * found.size() + (right - left);
+            if (score > bestScore) {
+                bestScore = score;
+                bestLeft = left;
+                bestRight = right;
+            }
+        }
+
+        int windowStart = found.get(bestLeft).start();
+        int windowEnd = found.get(bestRight).end();
+        int start = Math.max(0, windowStart - Math.max(0, snippetLength - (windowEnd - windowStart)) / 2);
+        int end = Math.min(text.length(), Math.max(windowEnd, start + snippetLength));
+        start = Math.max(0, Math.min(start, end - snippetLength));
+        int from = wordStart(text, start, windowStart);
+        int to = wordEnd(text, end, windowEnd);
+
+        int shift = (from > 0 ? ELLIPSIS.length() : 0) - from;
+        List<TextSpan> highlights = new ArrayList<>();
+        for (Match match : found) {
+            if (match.start() >= from && match.end() <= to) {
+                highlights.add(new TextSpan(match.start() + shift, match.end() + shift));
+            }
+        }
+        return new Highlight(found.size(), matches, snippet(text, from, to), highlights);
+    }
+
+    // Whitespace is replaced one for one so highlight offsets stay valid
+    private static String snippet(String text, int from, int to) {
+        char[] chars = text.substring(from, to).toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            if (Character.isWhitespace(chars[i])) {
+                chars[i] = ' ';
+            }
+        }
+        return (from > 0 ? ELLIPSIS : "") + new String(chars) + (to < text.length() ? ELLIPSIS : "");
+    }
+
+    // Moves a cut inside a word forward to the word's end, never past the window
+    private static int wordStart(String text, int start, int limit) {
+        int from = start;
+        while (from > 0 && from < limit && Character.isLetterOrDigit(text.charAt(from - 1))) {
+            from++;
+        }
+        return from;
+    }
+
+    private static int wordEnd(String text, int end, int limit) {
+        int to = end;
+        while (to < text.length() && to > limit && Character.isLetterOrDigit(text.charAt(to))) {
+            to--;
+        }
+        return to;
+    }
+}
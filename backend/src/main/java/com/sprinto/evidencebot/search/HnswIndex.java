@@ -0,0 +1,365 @@
+package com.sprinto.evidencebot.search;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Hierarchical Navigable Small World graph for approximate nearest-neighbour
+ * search over normalised vectors, scored by cosine similarity.
+ *
+ * Removal only tombstones a node: it stays in the graph as a routing hop but
+ * is never returned from {@link #search}. Once tombstones outnumber live
+ * nodes, {@link #purgeIfNeeded} rebuilds the graph from the live vectors.
+ *
+ * The graph can be written to and restored from a snapshot section as is,
+ * node ids included, so a restart neither re-embeds chunks nor rebuilds it.
+ */
+public class HnswIndex {
+
+    // Tombstones tolerated before a purge, so small graphs are not rebuilt on every removal
+    private static final int MIN_PURGE_TOMBSTONES = 256;
+
+    private final int m;
+    private final int maxLinksLayerZero;
+    private final int efConstruction;
+    private final int efSearch;
+    private final double levelMultiplier;
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final List<Node> nodes = new ArrayList<>();
+    private final BitSet deleted = new BitSet();
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    private int liveCount;
+
+    public HnswIndex(int m, int efConstruction, int efSearch) {
+        this.m = m;
+        this.maxLinksLayerZero = m * 2;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.levelMultiplier = 1 / Math.log(m);
+    }
+
+    public record Neighbor(int id, float similarity) {}
+
+    /**
+     * Adds a vector and returns the node id assigned to it.
+     */
+    public int add(float[] vector) {
+        lock.writeLock().lock();
+        try {
+            return insert(vector);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int insert(float[] vector) {
+        int level = (int) Math.floor(-Math.log(1 - random.nextDouble()) * levelMultiplier);
+        Node node = new Node(vector, level);
+        int id = nodes.size();
+        nodes.add(node);
+        liveCount++;
+
+        if (entryPoint < 0) {
+            entryPoint = id;
+            maxLevel = level;
+            return id;
+        }
+
+        int current = entryPoint;
+        for (int layer = maxLevel; layer > level; layer--) {
+            current = greedyClosest(vector, current, layer);
+        }
+        for (int layer = Math.min(level, maxLevel); layer >= 0; layer--) {
+            List<Neighbor> candidates = searchLayer(vector, current, efConstruction, layer);
+            int maxLinks = layer == 0 ? maxLinksLayerZero : m;
+            for (int i = 0; i < Math.min(m, candidates.size()); i++) {
+                int neighborId = candidates.get(i).id();
+                node.link(layer, neighborId, maxLinks);
+                connectBack(neighborId, id, layer, maxLinks);
+            }
+            current = candidates.get(0).id();
+        }
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = id;
+        }
+        return id;
+    }
+
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            if (id >= 0 && id < nodes.size() && !deleted.get(id)) {
+                deleted.set(id);
+                liveCount--;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the graph from the live nodes once tombstones outnumber them,
+     * so removed vectors stop costing memory, search hops and snapshot space.
+     * Node ids change: returns the new id of every old id (-1 for removed
+     * nodes), or null if the graph was left as is.
+     */
+    public int[] purgeIfNeeded() {
+        lock.writeLock().lock();
+        try {
+            int tombstones = nodes.size() - liveCount;
+            if (tombstones < MIN_PURGE_TOMBSTONES || tombstones <= liveCount) {
+                return null;
+            }
+            List<Node> previous = new ArrayList<>(nodes);
+            BitSet removed = (BitSet) deleted.clone();
+            nodes.clear();
+            deleted.clear();
+            entryPoint = -1;
+            maxLevel = -1;
+            liveCount = 0;
+            int[] ids = new int[previous.size()];
+            for (int id = 0; id < previous.size(); id++) {
+                ids[id] = removed.get(id) ? -1 : insert(previous.get(id).vector);
+            }
+            return ids;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to {@code k} live nodes most similar to the query, best first.
+     */
+    public List<Neighbor> search(float[] query, int k) {
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0 || k <= 0) {
+                return List.of();
+            }
+            int current = entryPoint;
+            for (int layer = maxLevel; layer > 0; layer--) {
+                current = greedyClosest(query, current, layer);
+            }
+            List<Neighbor> found = searchLayer(query, current, Math.max(efSearch, k), 0);
+            List<Neighbor> result = new ArrayList<>(k);
+            for (Neighbor neighbor : found) {
+                if (!deleted.get(neighbor.id())) {
+                    result.add(neighbor);
+                    if (result.size() == k) {
+                        break;
+                    }
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public float similarity(float[] query, int id) {
+        lock.readLock().lock();
+        try {
+            return VectorMath.dot(query, nodes.get(id).vector);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        return liveCount;
+    }
+
+    public void writeTo(SnapshotOutput out) throws IOException {
+        lock.readLock().lock();
+        try {
+            out.writeInt(m);
+            out.writeInt(nodes.size());
+            out.writeInt(entryPoint);
+            out.writeInt(maxLevel);
+            for (Node node : nodes) {
+                out.writeInt(node.vector.length);
+                out.writeFloats(node.vector);
+                out.writeInt(node.links.length);
+                for (int layer = 0; layer < node.links.length; layer++) {
+                    out.writeInt(node.counts[layer]);
+                    out.writeInts(node.links[layer], node.counts[layer]);
+                }
+            }
+            long[] tombstones = deleted.toLongArray();
+            out.writeInt(tombstones.length);
+            for (long word : tombstones) {
+                out.writeLong(word);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            nodes.clear();
+            deleted.clear();
+            entryPoint = -1;
+            maxLevel = -1;
+            liveCount = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the graph with a section written by {@link #writeTo}. The
+     * section must have been written with the same {@code m}.
+     */
+    public void readFrom(SnapshotInput in) {
+        lock.writeLock().lock();
+        try {
+            int snapshotM = in.readInt();
+            if (snapshotM != m) {
+                throw new IllegalStateException("Snapshot was written with m=" + snapshotM + ", index uses m=" + m);
+            }
+            int count = in.readInt();
+            nodes.clear();
+            entryPoint = in.readInt();
+            maxLevel = in.readInt();
+            for (int id = 0; id < count; id++) {
+                float[] vector = in.readFloats(in.readInt());
+                int layers = in.readInt();
+                Node node = new Node(vector, layers - 1);
+                for (int layer = 0; layer < layers; layer++) {
+                    int linkCount = in.readInt();
+                    System.arraycopy(in.readInts(linkCount), 0, node.links[layer], 0, linkCount);
+                    node.counts[layer] = linkCount;
+                }
+                nodes.add(node);
+            }
+            long[] tombstones = new long[in.readInt()];
+            for (int i = 0; i < tombstones.length; i++) {
+                tombstones[i] = in.readLong();
+            }
+            deleted.clear();
+            deleted.or(BitSet.valueOf(tombstones));
+            liveCount = count - deleted.cardinality();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int greedyClosest(float[] query, int start, int layer) {
+        int current = start;
+        float best = VectorMath.dot(query, nodes.get(current).vector);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            Node node = nodes.get(current);
+            for (int i = 0; i < node.linkCount(layer); i++) {
+                int candidate = node.links[layer][i];
+                float similarity = VectorMath.dot(query, nodes.get(candidate).vector);
+                if (similarity > best) {
+                    best = similarity;
+                    current = candidate;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    private List<Neighbor> searchLayer(float[] query, int start, int ef, int layer) {
+        BitSet visited = new BitSet(nodes.size());
+        PriorityQueue<Neighbor> candidates = new PriorityQueue<>(
+                Comparator.comparingDouble(Neighbor::similarity).reversed());
+        PriorityQueue<Neighbor> results = new PriorityQueue<>(
+                Comparator.comparingDouble(Neighbor::similarity));
+
+        Neighbor first = new Neighbor(start, VectorMath.dot(query, nodes.get(start).vector));
+        visited.set(start);
+        candidates.add(first);
+        results.add(first);
+
+        while (!candidates.isEmpty()) {
+            Neighbor closest = candidates.poll();
+            if (results.size() >= ef && closest.similarity() < results.peek().similarity()) {
+                break;
+            }
+            Node node = nodes.get(closest.id());
+            for (int i = 0; i < node.linkCount(layer); i++) {
+                int neighborId = node.links[layer][i];
+                if (visited.get(neighborId)) {
+                    continue;
+                }
+                visited.set(neighborId);
+                float similarity = VectorMath.dot(query, nodes.get(neighborId).vector);
+                if (results.size() < ef || similarity > results.peek().similarity()) {
+                    Neighbor neighbor = new Neighbor(neighborId, similarity);
+                    candidates.add(neighbor);
+                    results.add(neighbor);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+
+        List<Neighbor> ordered = new ArrayList<>(results);
+        ordered.sort(Comparator.comparingDouble(Neighbor::similarity).reversed());
+        return ordered;
+    }
+
+    private void connectBack(int nodeId, int newId, int layer, int maxLinks) {
+        Node node = nodes.get(nodeId);
+        if (node.linkCount(layer) < maxLinks) {
+            node.link(layer, newId, maxLinks);
+            return;
+        }
+        // Neighbour list is full: keep the maxLinks closest of existing links plus the new one.
+        int count = node.linkCount(layer);
+        Neighbor[] pool = new Neighbor[count + 1];
+        for (int i = 0; i < count; i++) {
+            int id = node.links[layer][i];
+            pool[i] = new Neighbor(id, VectorMath.dot(node.vector, nodes.get(id).vector));
+        }
+        pool[count] = new Neighbor(newId, VectorMath.dot(node.vector, nodes.get(newId).vector));
+        Arrays.sort(pool, Comparator.comparingDouble(Neighbor::similarity).reversed());
+        for (int i = 0; i < maxLinks; i++) {
+            node.links[layer][i] = pool[i].id();
+        }
+    }
+
+    private final class Node {
+        final float[] vector;
+        final int[][] links;
+        final int[] counts;
+
+        Node(float[] vector, int level) {
+            this.vector = vector;
+            this.links = new int[level + 1][];
+            this.counts = new int[level + 1];
+            for (int layer = 0; layer <= level; layer++) {
+                links[layer] = new int[(layer == 0 ? maxLinksLayerZero : m)];
+            }
+        }
+
+        int linkCount(int layer) {
+            return layer < counts.length ? counts[layer] : 0;
+        }
+
+        void link(int layer, int neighborId, int maxLinks) {
+            if (counts[layer] < maxLinks) {
+                links[layer][counts[layer]++] = neighborId;
+            }
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package com.sprinto.evidencebot.search;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over document content with BM25 ranking.
+ *
+ * Documents are addressed internally by a dense ordinal so that postings and
+ * per-query score accumulators can be plain int/float arrays. Removal leaves
+ * a gap in the ordinal range; once gaps outnumber live documents the
+ * ordinals are compacted, so the range stays within twice the live count.
+ * Readers share a read lock; adds and removes take the write lock.
+ *
+ * The index can be written to and restored from a snapshot section, so a
+ * restart does not have to re-tokenize every document.
+ */
+public class InvertedIndex {
+
+    // Gaps tolerated before compacting, so small indexes do not compact on every removal
+    private static final int MIN_COMPACTION_GAPS = 64;
+
+    private final double k1;
+    private final double b;
+
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final Map<Long, Integer> ordinalsByDocumentId = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[] documentIds = new long[64];
+    private int[] documentLengths = new int[64];
+    private String[][] documentTerms = new String[64][];
+    private int nextOrdinal;
+    private int liveDocuments;
+    private long totalLength;
+
+    public InvertedIndex(double k1, double b) {
+        this.k1 = k1;
+        this.b = b;
+    }
+
+    /** A document's length in tokens and its term frequencies. */
+    public record TermCounts(int length, Map<String, Integer> frequencies) {}
+
+    /**
+     * Tokenizes content for {@link #add(Long, TermCounts)}; needs no lock, so
+     * callers can do it before entering their own critical sections.
+     */
+    public static TermCounts count(String content) {
+        List<String> tokens = Tokenizer.tokenize(content);
+        Map<String, Integer> termFrequencies = new HashMap<>();
+        for (String token : tokens) {
+            termFrequencies.merge(token, 1, Integer::sum);
+        }
+        return new TermCounts(tokens.size(), termFrequencies);
+    }
+
+    public void add(Long documentId, String content) {
+        add(documentId, count(content));
+    }
+
+    public void add(Long documentId, TermCounts terms) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(documentId);
+            int ordinal = nextOrdinal++;
+            ensureCapacity(ordinal + 1);
+            documentIds[ordinal] = documentId;
+            documentLengths[ordinal] = terms.length();
+            documentTerms[ordinal] = terms.frequencies().keySet().toArray(new String[0]);
+            ordinalsByDocumentId.put(documentId, ordinal);
+            for (Map.Entry<String, Integer> entry : terms.frequencies().entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), t -> new PostingList()).add(ordinal, entry.getValue());
+            }
+            liveDocuments++;
+            totalLength += terms.length();
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long documentId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(documentId);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeInternal(Long documentId) {
+        Integer ordinal = ordinalsByDocumentId.remove(documentId);
+        if (ordinal == null) {
+            return;
+        }
+        for (String term : documentTerms[ordinal]) {
+            PostingList list = postings.get(term);
+            if (list != null && list.remove(ordinal) && list.size == 0) {
+                postings.remove(term);
+            }
+        }
+        documentTerms[ordinal] = null;
+        liveDocuments--;
+        totalLength -= documentLengths[ordinal];
+    }
+
+    private void compactIfNeeded() {
+        int gaps = nextOrdinal - liveDocuments;
+        if (gaps < MIN_COMPACTION_GAPS || gaps <= liveDocuments) {
+            return;
+        }
+        // Live documents move down in order, so the mapping is monotonic and postings stay sorted
+        int[] compacted = new int[nextOrdinal];
+        int live = 0;
+        for (int ordinal = 0; ordinal < nextOrdinal; ordinal++) {
+            if (documentTerms[ordinal] == null) {
+                compacted[ordinal] = -1;
+                continue;
+            }
+            compacted[ordinal] = live;
+            documentIds[live] = documentIds[ordinal];
+            documentLengths[live] = documentLengths[ordinal];
+            documentTerms[live] = documentTerms[ordinal];
+            ordinalsByDocumentId.put(documentIds[live], live);
+            live++;
+        }
+        Arrays.fill(documentTerms, live, nextOrdinal, null);
+        for (PostingList list : postings.values()) {
+            for (int i = 0; i < list.size; i++) {
+                list.ordinals[i] = compacted[list.ordinals[i]];
+            }
+        }
+        nextOrdinal = live;
+        int capacity = Math.max(64, live * 2);
+        if (documentIds.length > capacity) {
+            documentIds = Arrays.copyOf(documentIds, capacity);
+            documentLengths = Arrays.copyOf(documentLengths, capacity);
+            documentTerms = Arrays.copyOf(documentTerms, capacity);
+        }
+    }
+
+    /**
+     * Returns the top {@code limit} documents for the query, best first.
+     * Query terms are OR-ed together; documents matching more and rarer terms
+     * rank higher.
+     */
+    public List<SearchHit> search(String query, int limit) {
+        LinkedHashSet<String> terms = new LinkedHashSet<>(Tokenizer.tokenize(query));
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            if (liveDocuments == 0) {
+                return List.of();
+            }
+            double averageLength = Math.max(1.0, totalLength / (double) liveDocuments);
+            float[] scores = new float[nextOrdinal];
+            int[] touched = new int[16];
+            int touchedCount = 0;
+
+            for (String term : terms) {
+                PostingList list = postings.get(term);
+                if (list == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (liveDocuments - list.size + 0.5) / (list.size + 0.5));
+                for (int i = 0; i < list.size; i++) {
+                    int ordinal = list.ordinals[i];
+                    int tf = list.frequencies[i];
+                    double norm = k1 * (1 - b + b * documentLengths[ordinal] / averageLength);
+                    if (scores[ordinal] == 0f) {
+                        if (touchedCount == touched.length) {
+                            touched = Arrays.copyOf(touched, touchedCount * 2);
+                        }
+                        touched[touchedCount++] = ordinal;
+                    }
+                    scores[ordinal] += (float) (idf * (tf * (k1 + 1)) / (tf + norm));
+                }
+            }
+
+            // Sized by what matched, not by the caller's limit
+            PriorityQueue<SearchHit> top = new PriorityQueue<>(Math.min(limit, touchedCount) + 1,
+                    (x, y) -> Double.compare(x.score(), y.score()));
+            for (int i = 0; i < touchedCount; i++) {
+                int ordinal = touched[i];
+                float score = scores[ordinal];
+                if (top.size() < limit) {
+                    top.add(new SearchHit(documentIds[ordinal], score));
+                } else if (score > top.peek().score()) {
+                    top.poll();
+                    top.add(new SearchHit(documentIds[ordinal], score));
+                }
+            }
+
+            List<SearchHit> hits = new ArrayList<>(top);
+            hits.sort((x, y) -> Double.compare(y.score(), x.score()));
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the live documents and postings. Ordinals are compacted, so
+     * space left by removed documents is not carried over.
+     */
+    public void writeTo(SnapshotOutput out) throws IOException {
+        lock.readLock().lock();
+        try {
+            int[] compacted = new int[nextOrdinal];
+            int live = 0;
+            for (int ordinal = 0; ordinal < nextOrdinal; ordinal++) {
+                compacted[ordinal] = documentTerms[ordinal] != null ? live++ : -1;
+            }
+            out.writeInt(live);
+            for (int ordinal = 0; ordinal < nextOrdinal; ordinal++) {
+                if (compacted[ordinal] >= 0) {
+                    out.writeLong(documentIds[ordinal]);
+                    out.writeInt(documentLengths[ordinal]);
+                }
+            }
+            out.writeInt(postings.size());
+            for (Map.Entry<String, PostingList> entry : postings.entrySet()) {
+                PostingList list = entry.getValue();
+                out.writeString(entry.getKey());
+                out.writeInt(list.size);
+                // The mapping is monotonic, so the list stays sorted
+                for (int i = 0; i < list.size; i++) {
+                    out.writeInt(compacted[list.ordinals[i]]);
+                }
+                out.writeInts(list.frequencies, list.size);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            ordinalsByDocumentId.clear();
+            documentIds = new long[64];
+            documentLengths = new int[64];
+            documentTerms = new String[64][];
+            nextOrdinal = 0;
+            liveDocuments = 0;
+            totalLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the contents of the index with a section written by
+     * {@link #writeTo} and returns the ids of the documents it holds.
+     */
+    public long[] readFrom(SnapshotInput in) {
+        lock.writeLock().lock();
+        try {
+            int live = in.readInt();
+            postings.clear();
+            ordinalsByDocumentId.clear();
+            documentIds = new long[Math.max(64, live)];
+            documentLengths = new int[documentIds.length];
+            documentTerms = new String[documentIds.length][];
+            totalLength = 0;
+            for (int ordinal = 0; ordinal < live; ordinal++) {
+                documentIds[ordinal] = in.readLong();
+                documentLengths[ordinal] = in.readInt();
+                ordinalsByDocumentId.put(documentIds[ordinal], ordinal);
+                totalLength += documentLengths[ordinal];
+            }
+            nextOrdinal = live;
+            liveDocuments = live;
+
+            int[] termCounts = new int[live];
+            int termCount = in.readInt();
+            for (int t = 0; t < termCount; t++) {
+                String term = in.readString();
+                int size = in.readInt();
+                PostingList list = new PostingList(in.readInts(size), in.readInts(size), size);
+                postings.put(term, list);
+                for (int i = 0; i < size; i++) {
+                    termCounts[list.ordinals[i]]++;
+                }
+            }
+            // Per-document term lists, needed for removal, are derived from the postings
+            for (int ordinal = 0; ordinal < live; ordinal++) {
+                documentTerms[ordinal] = new String[termCounts[ordinal]];
+            }
+            int[] filled = new int[live];
+            for (Map.Entry<String, PostingList> entry : postings.entrySet()) {
+                PostingList list = entry.getValue();
+                for (int i = 0; i < list.size; i++) {
+                    int ordinal = list.ordinals[i];
+                    documentTerms[ordinal][filled[ordinal]++] = entry.getKey();
+                }
+            }
+            return Arrays.copyOf(documentIds, live);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveDocuments;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > documentIds.length) {
+            int newLength = Math.max(capacity, documentIds.length * 2);
+            documentIds = Arrays.copyOf(documentIds, newLength);
+            documentLengths = Arrays.copyOf(documentLengths, newLength);
+            documentTerms = Arrays.copyOf(documentTerms, newLength);
+        }
+    }
+
+    private static final class PostingList {
+        int[] ordinals;
+        int[] frequencies;
+        int size;
+
+        PostingList() {
+            this(new int[4], new int[4], 0);
+        }
+
+        // Snapshot lists are never empty: empty lists are dropped on removal
+        PostingList(int[] ordinals, int[] frequencies, int size) {
+            this.ordinals = ordinals;
+            this.frequencies = frequencies;
+            this.size = size;
+        }
+
+        void add(int ordinal, int frequency) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            ordinals[size] = ordinal;
+            frequencies[size] = frequency;
+            size++;
+        }
+
+        boolean remove(int ordinal) {
+            // Ordinals are appended in increasing order, so the list stays sorted.
+            int index = Arrays.binarySearch(ordinals, 0, size, ordinal);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ordinals, index + 1, ordinals, index, size - index - 1);
+            System.arraycopy(frequencies, index + 1, frequencies, index, size - index - 1);
+            size--;
+            return true;
+        }
+    }
+}
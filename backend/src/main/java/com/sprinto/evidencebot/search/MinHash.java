@@ -0,0 +1,95 @@
+package com.sprinto.evidencebot.search;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * MinHash signatures over word shingles, used to estimate the Jaccard
+ * similarity of two documents' text without comparing the text itself.
+ *
+ * Signatures are persisted, so the hash count, shingle size and seeds must
+ * not change without recomputing stored fingerprints.
+ */
+public final class MinHash {
+
+    public static final int NUM_HASHES = 64;
+    private static final int SHINGLE_SIZE = 3;
+    private static final long[] SEEDS = new long[NUM_HASHES];
+
+    static {
+        long seed = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            seed = mix(seed + i);
+            SEEDS[i] = seed;
+        }
+    }
+
+    private MinHash() {}
+
+    /**
+     * Returns the signature of the text, or {@code null} when it has no
+     * indexable terms.
+     */
+    public static int[] signature(String text) {
+        List<String> tokens = Tokenizer.tokenize(text);
+        if (tokens.isEmpty()) {
+            return null;
+        }
+        int[] signature = new int[NUM_HASHES];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        int shingles = Math.max(1, tokens.size() - SHINGLE_SIZE + 1);
+        for (int start = 0; start < shingles; start++) {
+            long shingle = 0;
+            for (int j = start; j < Math.min(tokens.size(), start + SHINGLE_SIZE); j++) {
+                shingle = shingle * 31 + tokens.get(j).hashCode();
+            }
+            for (int i = 0; i < NUM_HASHES; i++) {
+                int hash = (int) (mix(shingle ^ SEEDS[i]) >>> 33);
+                if (hash < signature[i]) {
+                    signature[i] = hash;
+                }
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Estimated Jaccard similarity: the fraction of positions where the two
+     * signatures agree.
+     */
+    public static double similarity(int[] a, int[] b) {
+        int equal = 0;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return equal / (double) NUM_HASHES;
+    }
+
+    public static byte[] toBytes(int[] signature) {
+        if (signature == null) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(signature.length * Integer.BYTES);
+        buffer.asIntBuffer().put(signature);
+        return buffer.array();
+    }
+
+    public static int[] fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length != NUM_HASHES * Integer.BYTES) {
+            return null;
+        }
+        int[] signature = new int[NUM_HASHES];
+        ByteBuffer.wrap(bytes).asIntBuffer().get(signature);
+        return signature;
+    }
+
+    // SplitMix64 finaliser
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
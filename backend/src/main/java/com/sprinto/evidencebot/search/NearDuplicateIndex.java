@@ -0,0 +1,168 @@
+package com.sprinto.evidencebot.search;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Locality-sensitive hashing over MinHash signatures. Each signature is cut
+ * into bands; documents sharing any band bucket become candidates, which are
+ * then checked against the similarity threshold using the full signature.
+ */
+public class NearDuplicateIndex {
+
+    private static final int BANDS = 16;
+    private static final int ROWS = MinHash.NUM_HASHES / BANDS;
+
+    private final double threshold;
+    private final Map<Long, int[]> signatures = new HashMap<>();
+    private final List<Map<Integer, List<Long>>> buckets = new ArrayList<>(BANDS);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public NearDuplicateIndex(double threshold) {
+        this.threshold = threshold;
+        for (int band = 0; band < BANDS; band++) {
+            buckets.add(new HashMap<>());
+        }
+    }
+
+    public void add(Long documentId, int[] signature) {
+        if (signature == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeInternal(documentId);
+            signatures.put(documentId, signature);
+            for (int band = 0; band < BANDS; band++) {
+                buckets.get(band).computeIfAbsent(bandKey(signature, band), k -> new ArrayList<>()).add(documentId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long documentId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(documentId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeInternal(Long documentId) {
+        int[] signature = signatures.remove(documentId);
+        if (signature == null) {
+            return;
+        }
+        for (int band = 0; band < BANDS; band++) {
+            Map<Integer, List<Long>> bandBuckets = buckets.get(band);
+            int key = bandKey(signature, band);
+            List<Long> bucket = bandBuckets.get(key);
+            if (bucket != null) {
+                bucket.remove(documentId);
+                if (bucket.isEmpty()) {
+                    bandBuckets.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Indexed documents whose estimated similarity to the signature is at
+     * least the threshold, most similar first. {@code excludeId} may be null.
+     */
+    public List<SearchHit> findSimilar(int[] signature, Long excludeId) {
+        if (signature == null) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Set<Long> candidates = new HashSet<>();
+            for (int band = 0; band < BANDS; band++) {
+                List<Long> bucket = buckets.get(band).get(bandKey(signature, band));
+                if (bucket != null) {
+                    candidates.addAll(bucket);
+                }
+            }
+            candidates.remove(excludeId);
+            List<SearchHit> hits = new ArrayList<>();
+            for (Long candidate : candidates) {
+                double similarity = MinHash.similarity(signature, signatures.get(candidate));
+                if (similarity >= threshold) {
+                    hits.add(new SearchHit(candidate, similarity));
+                }
+            }
+            hits.sort((x, y) -> Double.compare(y.score(), x.score()));
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int[] getSignature(Long documentId) {
+        lock.readLock().lock();
+        try {
+            return signatures.get(documentId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void writeTo(SnapshotOutput out) throws IOException {
+        lock.readLock().lock();
+        try {
+            out.writeInt(signatures.size());
+            for (Map.Entry<Long, int[]> entry : signatures.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeInts(entry.getValue(), MinHash.NUM_HASHES);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            signatures.clear();
+            buckets.forEach(Map::clear);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the contents with a section written by {@link #writeTo}; band
+     * buckets are recomputed from the signatures.
+     */
+    public void readFrom(SnapshotInput in) {
+        lock.writeLock().lock();
+        try {
+            signatures.clear();
+            buckets.forEach(Map::clear);
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long documentId = in.readLong();
+                int[] signature = in.readInts(MinHash.NUM_HASHES);
+                signatures.put(documentId, signature);
+                for (int band = 0; band < BANDS; band++) {
+                    buckets.get(band).computeIfAbsent(bandKey(signature, band), k -> new ArrayList<>()).add(documentId);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static int bandKey(int[] signature, int band) {
+        return Arrays.hashCode(Arrays.copyOfRange(signature, band * ROWS, (band + 1) * ROWS));
+    }
+}
@@ -0,0 +1,3 @@
+package com.sprinto.evidencebot.search;
+
+public record SearchHit(Long documentId, double score) {}
@@ -0,0 +1,46 @@
+package com.sprinto.evidencebot.search;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reader over one index snapshot section, normally a memory-mapped region of
+ * the snapshot file. Arrays are copied out with bulk gets rather than value
+ * by value.
+ */
+public final class SnapshotInput {
+
+    private final ByteBuffer buffer;
+
+    public SnapshotInput(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    public int readInt() {
+        return buffer.getInt();
+    }
+
+    public long readLong() {
+        return buffer.getLong();
+    }
+
+    public String readString() {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public int[] readInts(int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        return values;
+    }
+
+    public float[] readFloats(int count) {
+        float[] values = new float[count];
+        buffer.asFloatBuffer().get(values);
+        buffer.position(buffer.position() + count * Float.BYTES);
+        return values;
+    }
+}
@@ -0,0 +1,50 @@
+package com.sprinto.evidencebot.search;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Big-endian writer for index snapshot sections; the counterpart of
+ * {@link SnapshotInput}. Strings are written as a byte length and UTF-8 bytes,
+ * so they are not limited to 64 KB like {@link DataOutputStream#writeUTF}.
+ */
+public final class SnapshotOutput {
+
+    private final DataOutputStream out;
+
+    public SnapshotOutput(OutputStream out) {
+        this.out = new DataOutputStream(out);
+    }
+
+    public void writeInt(int value) throws IOException {
+        out.writeInt(value);
+    }
+
+    public void writeLong(long value) throws IOException {
+        out.writeLong(value);
+    }
+
+    public void writeString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public void writeInts(int[] values, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            out.writeInt(values[i]);
+        }
+    }
+
+    public void writeFloats(float[] values) throws IOException {
+        for (float value : values) {
+            out.writeFloat(value);
+        }
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+}
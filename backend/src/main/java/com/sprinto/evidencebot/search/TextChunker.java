@@ -0,0 +1,51 @@
+package com.sprinto.evidencebot.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits document text into overlapping character windows, moving each cut
+ * back to the nearest whitespace so words are not split across chunks.
+ */
+public class TextChunker {
+
+    private final int chunkSize;
+    private final int overlap;
+
+    public TextChunker(int chunkSize, int overlap) {
+        if (chunkSize <= 0 || overlap < 0 || overlap >= chunkSize) {
+            throw new IllegalArgumentException("chunkSize must be positive and larger than overlap");
+        }
+        this.chunkSize = chunkSize;
+        this.overlap = overlap;
+    }
+
+    public List<DocumentChunk> chunk(Long documentId, String filename, String text) {
+        List<DocumentChunk> chunks = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return chunks;
+        }
+        int length = text.length();
+        int start = 0;
+        while (start < length) {
+            int end = Math.min(start + chunkSize, length);
+            if (end < length) {
+                int boundary = text.lastIndexOf(' ', end);
+                if (boundary > start + overlap) {
+                    end = boundary;
+                }
+            }
+            String piece = text.substring(start, end).trim();
+            if (!piece.isEmpty()) {
+                chunks.add(new DocumentChunk(documentId, filename, chunks.size(), piece));
+            }
+            if (end == length) {
+                break;
+            }
+            int next = end - overlap;
+            int boundary = text.indexOf(' ', next);
+            start = boundary > next && boundary < end ? boundary + 1 : next;
+        }
+        return chunks;
+    }
+}
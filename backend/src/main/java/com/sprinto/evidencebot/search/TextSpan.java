@@ -0,0 +1,7 @@
+package com.sprinto.evidencebot.search;
+
+/**
+ * Half-open character range {@code [start, end)} in UTF-16 code units, the
+ * same indexing JavaScript strings use.
+ */
+public record TextSpan(int start, int end) {}
@@ -0,0 +1,47 @@
+package com.sprinto.evidencebot.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Splits text into lowercase alphanumeric terms in a single pass, dropping
+ * one-character tokens and common English stop words.
+ */
+public final class Tokenizer {
+
+    private static final Set<String> STOP_WORDS = Set.of(
+        "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "has", "in", "is", "it",
+        "its", "of", "on", "or", "that", "the", "this", "to", "was", "were", "will", "with"
+    );
+
+    private Tokenizer() {}
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder current = new StringBuilder();
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                current.append(Character.toLowerCase(c));
+            } else if (current.length() > 0) {
+                addToken(tokens, current);
+            }
+        }
+        addToken(tokens, current);
+        return tokens;
+    }
+
+    private static void addToken(List<String> tokens, StringBuilder current) {
+        if (current.length() > 1) {
+            String token = current.toString();
+            if (!STOP_WORDS.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        current.setLength(0);
+    }
+}
@@ -0,0 +1,285 @@
+package com.sprinto.evidencebot.service;
+
+import com.sprinto.evidencebot.model.BulkIngestionResult;
+import com.sprinto.evidencebot.model.BulkIngestionResult.FileResult;
+import com.sprinto.evidencebot.model.BulkIngestionResult.Status;
+import com.sprinto.evidencebot.model.Document;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Ingests many files in one request: individual multipart files and the
+ * entries of any ZIP archives among them. Text is extracted in parallel and
+ * documents are persisted in batched inserts, then indexed. Extraction runs
+ * at most batch-size × threads files ahead of the inserts, so only that many
+ * extracted documents are held in memory regardless of the upload's size.
+ */
+@Service
+public class BulkIngestionService {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkIngestionService.class);
+
+    @Autowired
+    private DocumentService documentService;
+
+    private final ExecutorService extractionPool;
+    private final int batchSize;
+    private final int extractionWindow;
+    private final int maxEntries;
+    private final long maxEntrySize;
+    private final long maxExpandedSize;
+
+    public BulkIngestionService(@Value("${bulk.extraction.threads:0}") int extractionThreads,
+                                @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize,
+                                @Value("${bulk.max-entries:5000}") int maxEntries,
+                                @Value("${bulk.max-entry-size-mb:50}") long maxEntrySizeMb,
+                                @Value("${bulk.max-expanded-size-mb:1024}") long maxExpandedSizeMb) {
+        int threads = extractionThreads > 0 ? extractionThreads : Runtime.getRuntime().availableProcessors();
+        this.extractionPool = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("bulk-extract-"));
+        this.batchSize = Math.max(1, batchSize);
+        this.extractionWindow = this.batchSize * threads;
+        this.maxEntries = maxEntries;
+        this.maxEntrySize = maxEntrySizeMb * 1024 * 1024;
+        this.maxExpandedSize = maxExpandedSizeMb * 1024 * 1024;
+    }
+
+    // Bytes and entries expanded from archives so far in one upload
+    private static final class Expansion {
+        long bytes;
+        int entries;
+    }
+
+    private record PendingFile(String filename, String contentType, long size, Path path) {}
+
+    private record Extracted(PendingFile file, Document document, boolean duplicate, Long duplicateOf, String error) {}
+
+    public BulkIngestionResult ingest(List<MultipartFile> files) throws IOException {
+        long start = System.nanoTime();
+        List<Path> spooled = new ArrayList<>();
+        List<PendingFile> pending = new ArrayList<>();
+        List<FileResult> results = new ArrayList<>();
+        Expansion expansion = new Expansion();
+        try {
+            for (MultipartFile file : files) {
+                Path path = documentService.spool(file);
+                spooled.add(path);
+                if (isZip(file)) {
+                    expandZip(path, spooled, pending, results, expansion);
+                } else {
+                    pending.add(new PendingFile(file.getOriginalFilename(), file.getContentType(), file.getSize(), path));
+                }
+                checkEntryLimit(pending);
+            }
+
+            // Content hash -> filename of the first file in this upload carrying those bytes
+            Map<String, String> seen = new ConcurrentHashMap<>();
+            Iterator<PendingFile> next = pending.iterator();
+            Deque<CompletableFuture<Extracted>> extractions = new ArrayDeque<>(extractionWindow);
+
+            List<Extracted> batch = new ArrayList<>(batchSize);
+            while (next.hasNext() || !extractions.isEmpty()) {
+                while (next.hasNext() && extractions.size() < extractionWindow) {
+                    PendingFile file = next.next();
+                    extractions.add(CompletableFuture.supplyAsync(() -> extract(file, seen), extractionPool));
+                }
+                Extracted extracted = extractions.poll().join();
+                if (extracted.document() == null) {
+                    Status status = extracted.duplicate() ? Status.DUPLICATE : Status.FAILED;
+                    results.add(new FileResult(extracted.file().filename(), status, extracted.duplicateOf(), extracted.error()));
+                    continue;
+                }
+                batch.add(extracted);
+                if (batch.size() == batchSize) {
+                    flush(batch, results);
+                }
+            }
+            flush(batch, results);
+        } finally {
+            for (Path path : spooled) {
+                Files.deleteIfExists(path);
+            }
+        }
+
+        int succeeded = (int) results.stream().filter(r -> r.status() == Status.STORED).count();
+        int duplicates = (int) results.stream().filter(r -> r.status() == Status.DUPLICATE).count();
+        return new BulkIngestionResult(results.size(), succeeded, duplicates, results.size() - succeeded - duplicates,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), results);
+    }
+
+    /**
+     * Entry sizes declared in the archive are not trusted: each entry is
+     * copied through a limit and dropped once it exceeds {@code max-entry-size-mb},
+     * and the upload fails once archives expand past {@code max-expanded-size-mb}
+     * or list more than {@code max-entries} entries.
+     */
+    private void expandZip(Path zip, List<Path> spooled, List<PendingFile> pending, List<FileResult> results,
+                           Expansion expansion) throws IOException {
+        try (ZipFile archive = new ZipFile(zip.toFile())) {
+            Enumeration<? extends ZipEntry> entries = archive.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (++expansion.entries > maxEntries) {
+                    throw new IOException("Bulk upload exceeds " + maxEntries + " archive entries");
+                }
+                String name = entry.getName();
+                if (entry.isDirectory() || name.startsWith("__MACOSX/") || name.endsWith(".DS_Store")) {
+                    continue;
+                }
+                checkEntryLimit(pending);
+                String filename = name.substring(name.lastIndexOf('/') + 1);
+                if (entry.getSize() > maxEntrySize) {
+                    results.add(new FileResult(filename, Status.FAILED, null, "Entry exceeds maximum size"));
+                    continue;
+                }
+                Path path = Files.createTempFile("bulk-", ".bin");
+                spooled.add(path);
+                long limit = Math.min(maxEntrySize, maxExpandedSize - expansion.bytes);
+                long written;
+                try (InputStream in = archive.getInputStream(entry)) {
+                    written = copy(in, path, limit);
+                }
+                if (written < 0) {
+                    if (limit < maxEntrySize) {
+                        throw new IOException("Bulk upload expands to more than " + maxExpandedSize / (1024 * 1024) + " MB");
+                    }
+                    Files.deleteIfExists(path);
+                    results.add(new FileResult(filename, Status.FAILED, null, "Entry exceeds maximum size"));
+                    continue;
+                }
+                expansion.bytes += written;
+                String contentType = MediaTypeFactory.getMediaType(filename)
+                        .map(MediaType::toString)
+                        .orElse("application/octet-stream");
+                pending.add(new PendingFile(filename, contentType, written, path));
+            }
+        }
+    }
+
+    /** Copies at most {@code limit} bytes; returns the count, or -1 if the stream is longer. */
+    private static long copy(InputStream in, Path target, long limit) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long written = 0;
+        try (OutputStream out = Files.newOutputStream(target)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                written += read;
+                if (written > limit) {
+                    return -1;
+                }
+                out.write(buffer, 0, read);
+            }
+        }
+        return written;
+    }
+
+    private void checkEntryLimit(List<PendingFile> pending) throws IOException {
+        if (pending.size() > maxEntries) {
+            throw new IOException("Bulk upload exceeds " + maxEntries + " files");
+        }
+    }
+
+    private Extracted extract(PendingFile file, Map<String, String> seen) {
+        try {
+            String contentHash = documentService.contentHash(file.path());
+            Optional<Long> existing = documentService.findByContentHash(contentHash);
+            if (existing.isPresent()) {
+                return new Extracted(file, null, true, existing.get(), null);
+            }
+            String first = seen.putIfAbsent(contentHash, file.filename());
+            if (first != null) {
+                return new Extracted(file, null, true, null, "Same content as " + first + " in this upload");
+            }
+            String content = documentService.extractText(file.path(), file.contentType());
+            Document document = documentService.createDocument(file.filename(), content, file.contentType(), file.size(), contentHash);
+            return new Extracted(file, document, false, null, null);
+        } catch (Exception e) {
+            log.warn("Bulk extraction failed for {}: {}", file.filename(), e.getMessage());
+            return new Extracted(file, null, false, null, e.getClass().getSimpleName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Saves the batch in one transaction. If that fails, the documents are
+     * saved one at a time so only the ones that fail are reported failed.
+     */
+    private void flush(List<Extracted> batch, List<FileResult> results) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Document> documents = batch.stream().map(Extracted::document).toList();
+        List<Document> saved;
+        try {
+            saved = documentService.saveDocuments(documents);
+        } catch (Exception e) {
+            log.warn("Bulk insert of {} documents failed, saving individually: {}", documents.size(), e.getMessage());
+            saved = new ArrayList<>(documents.size());
+            for (Document document : documents) {
+                // Ids assigned by the rolled-back insert would make save() merge instead of insert
+                document.setId(null);
+                try {
+                    saved.add(documentService.saveDocument(document));
+                } catch (DataIntegrityViolationException duplicate) {
+                    Optional<Long> existing = documentService.findByContentHash(document.getContentHash());
+                    results.add(existing.isPresent()
+                            ? new FileResult(document.getFilename(), Status.DUPLICATE, existing.get(), null)
+                            : new FileResult(document.getFilename(), Status.FAILED, null, "Insert failed: " + duplicate.getMessage()));
+                } catch (Exception failure) {
+                    log.warn("Insert failed for {}: {}", document.getFilename(), failure.getMessage());
+                    results.add(new FileResult(document.getFilename(), Status.FAILED, null, "Insert failed: " + failure.getMessage()));
+                }
+            }
+        }
+        for (Document document : saved) {
+            try {
+                documentService.indexDocument(document);
+                results.add(new FileResult(document.getFilename(), Status.STORED, document.getId(), null));
+            } catch (Exception e) {
+                log.error("Indexing failed for {}", document.getFilename(), e);
+                results.add(new FileResult(document.getFilename(), Status.FAILED, document.getId(), "Stored but not indexed: " + e.getMessage()));
+            }
+        }
+        batch.clear();
+    }
+
+    private static boolean isZip(MultipartFile file) {
+        String contentType = file.getContentType();
+        String filename = file.getOriginalFilename();
+        return (contentType != null && (contentType.equals("application/zip") || contentType.equals("application/x-zip-compressed")))
+                || (filename != null && filename.toLowerCase().endsWith(".zip"));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        extractionPool.shutdown();
+    }
+}
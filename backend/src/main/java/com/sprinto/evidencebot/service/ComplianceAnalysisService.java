@@ -0,0 +1,300 @@
+package com.sprinto.evidencebot.service;
+
+import com.sprinto.evidencebot.model.ComplianceAnalysis;
+import com.sprinto.evidencebot.model.DocumentDigest;
+import com.sprinto.evidencebot.prompt.TokenCounter;
+import com.sprinto.evidencebot.search.TextChunker;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * AI gap analysis for compliance reports. Small corpora go to the model in
+ * one prompt. Larger ones are analyzed map-reduce: each document (split into
+ * chunks when long) gets its own findings call on a bounded pool, findings are
+ * memoized by content hash and domain so only new or changed documents are
+ * sent again, and the findings are merged in reduce rounds until they fit one
+ * final prompt.
+ */
+@Service
+public class ComplianceAnalysisService {
+
+    private static final Logger log = LoggerFactory.getLogger(ComplianceAnalysisService.class);
+
+    @Autowired
+    private OpenAIService openAIService;
+
+    @Autowired
+    private TokenCounter tokenCounter;
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ExecutorService mapPool;
+    private final int concurrency;
+    private final TextChunker chunker;
+    private final long mapReduceThresholdTokens;
+    private final int reduceGroupTokens;
+    private final int maxFindings;
+
+    // Access-ordered so the least recently used findings are dropped first
+    private final Map<String, String> findings = new LinkedHashMap<>(16, 0.75f, true);
+
+    public ComplianceAnalysisService(@Value("${compliance.map.concurrency:4}") int concurrency,
+                                     @Value("${compliance.map.chunk-chars:8000}") int chunkChars,
+                                     @Value("${compliance.map-reduce.threshold-tokens:8000}") long mapReduceThresholdTokens,
+                                     @Value("${compliance.reduce.group-tokens:7000}") int reduceGroupTokens,
+                                     @Value("${compliance.findings.max-entries:5000}") int maxFindings) {
+        this.concurrency = Math.max(1, concurrency);
+        this.mapPool = Executors.newFixedThreadPool(this.concurrency, new CustomizableThreadFactory("compliance-map-"));
+        this.chunker = new TextChunker(chunkChars, Math.min(200, chunkChars / 4));
+        this.mapReduceThresholdTokens = mapReduceThresholdTokens;
+        this.reduceGroupTokens = reduceGroupTokens;
+        this.maxFindings = maxFindings;
+    }
+
+    private record Pending(DocumentDigest document, String key) {}
+
+    /**
+     * Works from document metadata: text is read only for documents without
+     * memoized findings, one document at a time per map worker, so a report
+     * never holds the whole corpus in memory.
+     */
+    public ComplianceAnalysis analyze(String domain, List<DocumentDigest> documents) {
+        long start = System.nanoTime();
+        if (estimateTokens(documents) <= mapReduceThresholdTokens) {
+            List<String> contents = documents.stream()
+                    .map(document -> documentService.getDocumentContent(document.id()))
+                    .filter(content -> content != null && !content.trim().isEmpty())
+                    .collect(Collectors.toList());
+            String analysis = openAIService.analyzeComplianceGaps(domain, contents);
+            return new ComplianceAnalysis(analysis, "single", documents.size(), contents.size(), 0, 0,
+                    0, 1, elapsedMs(start));
+        }
+
+        List<String> results = new ArrayList<>();
+        List<Pending> pending = new ArrayList<>();
+        int reused = 0;
+        for (DocumentDigest document : documents) {
+            String key = findingsKey(domain, document);
+            String memoized = getFindings(key);
+            if (memoized != null) {
+                results.add(memoized);
+                reused++;
+            } else {
+                pending.add(new Pending(document, key));
+            }
+        }
+
+        // Bounds how many documents' text is in memory at once
+        Semaphore inFlight = new Semaphore(concurrency);
+        AtomicInteger mapCalls = new AtomicInteger();
+        List<CompletableFuture<String>> mapped = new ArrayList<>(pending.size());
+        for (Pending p : pending) {
+            inFlight.acquireUninterruptibly();
+            CompletableFuture<String> findings = map(domain, p, mapCalls);
+            findings.whenComplete((result, error) -> inFlight.release());
+            mapped.add(findings);
+        }
+        int analyzed = 0;
+        int failed = 0;
+        for (int i = 0; i < pending.size(); i++) {
+            try {
+                String documentFindings = mapped.get(i).join();
+                if (documentFindings == null) {
+                    // Deleted or without text
+                    continue;
+                }
+                putFindings(pending.get(i).key(), documentFindings);
+                results.add(documentFindings);
+                analyzed++;
+            } catch (CompletionException e) {
+                failed++;
+                log.warn("Compliance findings failed for {}: {} - {}", pending.get(i).document().filename(),
+                        e.getCause().getClass().getSimpleName(), e.getCause().getMessage());
+            }
+        }
+        meterRegistry.counter("evidencebot.compliance.findings", "outcome", "reused").increment(reused);
+        meterRegistry.counter("evidencebot.compliance.findings", "outcome", "analyzed").increment(analyzed);
+        meterRegistry.counter("evidencebot.compliance.findings", "outcome", "failed").increment(failed);
+
+        if (results.isEmpty()) {
+            return new ComplianceAnalysis("Error analyzing compliance gaps: no document could be analyzed",
+                    "map-reduce", documents.size(), 0, reused, failed, mapCalls.get(), 0, elapsedMs(start));
+        }
+
+        int[] reduceCalls = new int[1];
+        String analysis;
+        try {
+            analysis = reduce(domain, results, reduceCalls);
+        } catch (LlmCapacityExceededException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("OpenAI API error in compliance reduce", e);
+            analysis = "Error analyzing compliance gaps: " + e.getMessage();
+        }
+        return new ComplianceAnalysis(analysis, "map-reduce", documents.size(), analyzed, reused, failed,
+                mapCalls.get(), reduceCalls[0], elapsedMs(start));
+    }
+
+    // Completes with null when the document has no text (or was deleted meanwhile)
+    private CompletableFuture<String> map(String domain, Pending pending, AtomicInteger mapCalls) {
+        DocumentDigest document = pending.document();
+        return CompletableFuture.supplyAsync(() -> chunker.chunk(document.id(), document.filename(),
+                        documentService.getDocumentContent(document.id())), mapPool)
+                .thenCompose(chunks -> {
+                    if (chunks.isEmpty()) {
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    mapCalls.addAndGet(chunks.size());
+                    List<CompletableFuture<String>> chunkFindings = chunks.stream()
+                            .map(chunk -> CompletableFuture.supplyAsync(
+                                    () -> openAIService.extractComplianceFindings(domain, document.filename(), chunk.text()), mapPool))
+                            .toList();
+                    return CompletableFuture.allOf(chunkFindings.toArray(CompletableFuture[]::new))
+                            .thenApply(done -> {
+                                String joined = "Document: " + document.filename() + "\n" + chunkFindings.stream()
+                                        .map(CompletableFuture::join)
+                                        .collect(Collectors.joining("\n"));
+                                // At most half a reduce group, so every round merges at least two entries
+                                return tokenCounter.truncate(joined, reduceGroupTokens / 2);
+                            });
+                });
+    }
+
+    /**
+     * Merges findings in rounds: groups that fit one prompt are merged in
+     * parallel until a single group remains for the final analysis.
+     */
+    private String reduce(String domain, List<String> entries, int[] reduceCalls) {
+        List<List<String>> groups = group(entries);
+        while (groups.size() > 1) {
+            List<CompletableFuture<String>> merged = new ArrayList<>();
+            for (List<String> group : groups) {
+                if (group.size() == 1) {
+                    merged.add(CompletableFuture.completedFuture(group.get(0)));
+                } else {
+                    merged.add(CompletableFuture.supplyAsync(
+                            () -> openAIService.mergeComplianceFindings(domain, group, false), mapPool));
+                    reduceCalls[0]++;
+                }
+            }
+            List<String> next = new ArrayList<>();
+            for (CompletableFuture<String> future : merged) {
+                try {
+                    next.add(future.join());
+                } catch (CompletionException e) {
+                    if (e.getCause() instanceof RuntimeException cause) {
+                        throw cause;
+                    }
+                    throw e;
+                }
+            }
+            groups = group(next);
+        }
+        reduceCalls[0]++;
+        return openAIService.mergeComplianceFindings(domain, groups.get(0), true);
+    }
+
+    private List<List<String>> group(List<String> entries) {
+        List<List<String>> groups = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        int tokens = 0;
+        for (String entry : entries) {
+            int entryTokens = tokenCounter.count(entry);
+            if (!current.isEmpty() && tokens + entryTokens > reduceGroupTokens) {
+                groups.add(current);
+                current = new ArrayList<>();
+                tokens = 0;
+            }
+            current.add(entry);
+            tokens += entryTokens;
+        }
+        groups.add(current);
+        return groups;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("memoizedFindings", findings.size());
+        stats.put("maxEntries", maxFindings);
+        stats.put("mapReduceThresholdTokens", mapReduceThresholdTokens);
+        return stats;
+    }
+
+    private synchronized String getFindings(String key) {
+        return findings.get(key);
+    }
+
+    private synchronized void putFindings(String key, String value) {
+        findings.put(key, value);
+        var eldest = findings.entrySet().iterator();
+        while (findings.size() > maxFindings && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    // Roughly four bytes of English text per token; avoids loading content just to decide the mode
+    private static long estimateTokens(List<DocumentDigest> documents) {
+        long bytes = 0;
+        for (DocumentDigest document : documents) {
+            Long size = document.contentSize();
+            bytes += size != null ? size : 0;
+        }
+        return bytes / 4;
+    }
+
+    private String findingsKey(String domain, DocumentDigest document) {
+        String hash = document.contentHash();
+        if (hash == null) {
+            // Stored before content hashes were recorded
+            hash = "text:" + sha256(documentService.getDocumentContent(document.id()));
+        }
+        return domain.trim().toLowerCase(Locale.ROOT) + '|' + openAIService.getModel() + '|' + hash;
+    }
+
+    private static String sha256(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest((text == null ? "" : text).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static long elapsedMs(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        mapPool.shutdown();
+    }
+}
@@ -0,0 +1,70 @@
+package com.sprinto.evidencebot.service;
+
+import com.sprinto.evidencebot.model.DocumentCategory;
+import com.sprinto.evidencebot.repository.DocumentRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Document counts per classification category, maintained incrementally as
+ * documents are added and removed so that reports never scan content.
+ */
+@Service
+public class ComplianceStatsService {
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    private final AtomicLong totalDocuments = new AtomicLong();
+    private final AtomicLongArray categoryCounts = new AtomicLongArray(DocumentCategory.values().length);
+
+    @PostConstruct
+    void loadCounts() {
+        for (Long flags : documentRepository.findAllCategoryFlags()) {
+            documentAdded(flags);
+        }
+    }
+
+    public void documentAdded(Long flags) {
+        totalDocuments.incrementAndGet();
+        apply(flags, 1);
+    }
+
+    public void documentRemoved(Long flags) {
+        totalDocuments.decrementAndGet();
+        apply(flags, -1);
+    }
+
+    public long getTotalDocuments() {
+        return totalDocuments.get();
+    }
+
+    public long getCount(DocumentCategory category) {
+        return categoryCounts.get(category.ordinal());
+    }
+
+    public Map<DocumentCategory, Long> getCounts() {
+        Map<DocumentCategory, Long> counts = new EnumMap<>(DocumentCategory.class);
+        for (DocumentCategory category : DocumentCategory.values()) {
+            counts.put(category, categoryCounts.get(category.ordinal()));
+        }
+        return counts;
+    }
+
+    private void apply(Long flags, int delta) {
+        if (flags == null) {
+            return;
+        }
+        for (DocumentCategory category : DocumentCategory.values()) {
+            if ((flags & category.mask()) != 0) {
+                categoryCounts.addAndGet(category.ordinal(), delta);
+            }
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.sprinto.evidencebot.service;
+
+import com.sprinto.evidencebot.prompt.TokenCounter;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Server-side chat history. Each session keeps its last {@code recent-turns}
+ * turns verbatim; older turns are folded into a rolling summary by the model
+ * in the background, so the history sent with each question stays bounded
+ * however long the conversation runs.
+ *
+ * At most {@code max-sessions} sessions are held (least recently used are
+ * dropped first) and sessions idle longer than {@code idle-timeout-minutes}
+ * are evicted on the next access.
+ */
+@Service
+public class ConversationSessionStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ConversationSessionStore.class);
+
+    @Autowired
+    private OpenAIService openAIService;
+
+    @Autowired
+    private TokenCounter tokenCounter;
+
+    private final int maxSessions;
+    private final long idleMillis;
+    private final int recentTurns;
+    private final int summaryMaxTokens;
+    private final ExecutorService summarizer;
+    private final LinkedHashMap<String, Session> sessions = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long created;
+    private long evictions;
+    private long expirations;
+    private long summarizations;
+    private long summarizationFailures;
+
+    public ConversationSessionStore(@Value("${chat.session.max-sessions:1000}") int maxSessions,
+                                    @Value("${chat.session.idle-timeout-minutes:30}") long idleTimeoutMinutes,
+                                    @Value("${chat.session.recent-turns:6}") int recentTurns,
+                                    @Value("${chat.session.summary-max-tokens:400}") int summaryMaxTokens,
+                                    @Value("${chat.session.summarizer-threads:2}") int summarizerThreads) {
+        this.maxSessions = maxSessions;
+        this.idleMillis = idleTimeoutMinutes * 60_000;
+        this.recentTurns = Math.max(1, recentTurns);
+        this.summaryMaxTokens = summaryMaxTokens;
+        this.summarizer = Executors.newFixedThreadPool(Math.max(1, summarizerThreads), new CustomizableThreadFactory("chat-summary-"));
+    }
+
+    private record Turn(String question, String answer) {}
+
+    private static final class Session {
+        final String id;
+        final Deque<Turn> turns = new ArrayDeque<>();
+        String summary = "";
+        boolean summarizing;
+        long lastAccess = System.currentTimeMillis();
+
+        Session(String id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * Returns the id of the live session with {@code sessionId}, or of a new
+     * session when it is missing, unknown or expired.
+     */
+    public synchronized String resolve(String sessionId) {
+        if (sessionId != null) {
+            Session session = lookup(sessionId);
+            if (session != null) {
+                return session.id;
+            }
+        }
+        Session session = new Session(UUID.randomUUID().toString());
+        sessions.put(session.id, session);
+        created++;
+        evictIdle();
+        Iterator<Session> eldest = sessions.values().iterator();
+        while (sessions.size() > maxSessions && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            evictions++;
+        }
+        return session.id;
+    }
+
+    /**
+     * History to send with the next question: the rolling summary followed by
+     * the recent turns, or {@code null} for a new or unknown session.
+     */
+    public String history(String sessionId) {
+        Session session = find(sessionId);
+        if (session == null) {
+            return null;
+        }
+        synchronized (session) {
+            if (session.summary.isEmpty() && session.turns.isEmpty()) {
+                return null;
+            }
+            StringBuilder history = new StringBuilder();
+            if (!session.summary.isEmpty()) {
+                history.append("Summary of earlier conversation: ").append(session.summary).append("\n\n");
+            }
+            history.append(format(session.turns));
+            return history.toString();
+        }
+    }
+
+    public void append(String sessionId, String question, String answer) {
+        Session session = find(sessionId);
+        if (session == null) {
+            return;
+        }
+        synchronized (session) {
+            session.turns.addLast(new Turn(question, answer));
+            scheduleSummary(session);
+        }
+    }
+
+    public synchronized boolean delete(String sessionId) {
+        return sessions.remove(sessionId) != null;
+    }
+
+    // Caller holds the session lock
+    private void scheduleSummary(Session session) {
+        int excess = session.turns.size() - recentTurns;
+        if (excess <= 0 || session.summarizing) {
+            return;
+        }
+        List<Turn> folded = List.copyOf(new ArrayList<>(session.turns).subList(0, excess));
+        String previous = session.summary;
+        session.summarizing = true;
+        try {
+            summarizer.execute(() -> fold(session, previous, folded));
+        } catch (RejectedExecutionException e) {
+            session.summarizing = false;
+        }
+    }
+
+    private void fold(Session session, String previous, List<Turn> folded) {
+        String summary;
+        try {
+            summary = openAIService.summarizeConversation(previous, format(folded), summaryMaxTokens);
+            count(true);
+        } catch (RuntimeException e) {
+            log.warn("Conversation summary failed: {} - {}", e.getClass().getSimpleName(), e.getMessage());
+            // Keep the text rather than lose it; the cap still bounds the summary
+            summary = tokenCounter.truncateFromStart((previous + "\n" + format(folded)).trim(), summaryMaxTokens);
+            count(false);
+        }
+        synchronized (session) {
+            for (int i = 0; i < folded.size(); i++) {
+                session.turns.pollFirst();
+            }
+            session.summary = summary;
+            session.summarizing = false;
+            scheduleSummary(session);
+        }
+    }
+
+    private synchronized void count(boolean success) {
+        if (success) {
+            summarizations++;
+        } else {
+            summarizationFailures++;
+        }
+    }
+
+    private synchronized Session find(String sessionId) {
+        return sessionId == null ? null : lookup(sessionId);
+    }
+
+    // Caller holds the store lock
+    private Session lookup(String sessionId) {
+        Session session = sessions.get(sessionId);
+        if (session == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (now - session.lastAccess > idleMillis) {
+            sessions.remove(sessionId);
+            expirations++;
+            return null;
+        }
+        session.lastAccess = now;
+        return session;
+    }
+
+    // Access order puts the longest idle sessions first
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        Iterator<Session> eldest = sessions.values().iterator();
+        while (eldest.hasNext()) {
+            if (now - eldest.next().lastAccess <= idleMillis) {
+                break;
+            }
+            eldest.remove();
+            expirations++;
+        }
+    }
+
+    private static String format(Iterable<Turn> turns) {
+        StringBuilder text = new StringBuilder();
+        for (Turn turn : turns) {
+            text.append("User: ").append(turn.question()).append('\n');
+            text.append("Assistant: ").append(turn.answer()).append('\n');
+        }
+        return text.toString();
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sessions", sessions.size());
+        stats.put("maxSessions", maxSessions);
+        stats.put("recentTurns", recentTurns);
+        stats.put("created", created);
+        stats.put("evictions", evictions);
+        stats.put("expirations", expirations);
+        stats.put("summarizations", summarizations);
+        stats.put("summarizationFailures", summarizationFailures);
+        return stats;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        summarizer.shutdown();
+    }
+}
@@ -0,0 +1,142 @@
+package com.sprinto.evidencebot.service;
+
+import com.sprinto.evidencebot.model.Document;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of recently read documents with their text already loaded, so
+ * repeated detail lookups of the same documents skip the database read and
+ * decompression. Callers that only need metadata or existence use
+ * {@code DocumentService.getDocumentSummary}/{@code documentExists} instead,
+ * so they do not displace hot entries.
+ *
+ * Bounded by an estimate of retained heap rather than entry count: one large
+ * export should not push out dozens of small policies. Documents larger than
+ * {@code max-entry-kb} are never cached.
+ */
+@Service
+public class DocumentCache {
+
+    // Object headers, metadata fields, snippet and fingerprint
+    private static final long ENTRY_OVERHEAD_BYTES = 1024;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+    private long rejected;
+
+    public DocumentCache(@Value("${document.cache.max-mb:64}") long maxMb,
+                         @Value("${document.cache.max-entry-kb:4096}") long maxEntryKb) {
+        this.maxBytes = maxMb * 1024 * 1024;
+        this.maxEntryBytes = Math.min(maxEntryKb * 1024, maxBytes);
+    }
+
+    @PostConstruct
+    void registerGauges() {
+        meterRegistry.gauge("evidencebot.document.cache.bytes", this, DocumentCache::currentBytes);
+        meterRegistry.gauge("evidencebot.document.cache.hit.ratio", this, DocumentCache::hitRatio);
+    }
+
+    private record Entry(Document document, long weight) {}
+
+    public synchronized Document get(Long id) {
+        Entry entry = entries.get(id);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.document();
+    }
+
+    /**
+     * Stamp to take before loading a document and pass to {@link #put}; a
+     * load that overlaps an invalidation is not cached.
+     */
+    public synchronized long stamp() {
+        return invalidations;
+    }
+
+    /** The document's text must already be loaded. */
+    public synchronized void put(Document document, long stamp) {
+        if (stamp != invalidations) {
+            return;
+        }
+        long weight = weigh(document);
+        if (weight > maxEntryBytes) {
+            rejected++;
+            return;
+        }
+        Entry previous = entries.put(document.getId(), new Entry(document, weight));
+        if (previous != null) {
+            bytes -= previous.weight();
+        }
+        bytes += weight;
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().weight();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized void invalidate(Long id) {
+        invalidations++;
+        Entry removed = entries.remove(id);
+        if (removed != null) {
+            bytes -= removed.weight();
+        }
+    }
+
+    // Strings are assumed UTF-16; a compressed document also keeps its stored bytes
+    private static long weigh(Document document) {
+        String content = document.getContent();
+        long weight = ENTRY_OVERHEAD_BYTES + (content == null ? 0 : 2L * content.length());
+        if (document.isCompressed()) {
+            weight += document.getStoredContentSize();
+        }
+        return weight;
+    }
+
+    private synchronized long currentBytes() {
+        return bytes;
+    }
+
+    private synchronized double hitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : hits / (double) lookups;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", entries.size());
+        stats.put("bytes", bytes);
+        stats.put("maxBytes", maxBytes);
+        stats.put("maxEntryBytes", maxEntryBytes);
+        stats.put("heapMaxBytes", Runtime.getRuntime().maxMemory());
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRatio", hitRatio());
+        stats.put("evictions", evictions);
+        stats.put("invalidations", invalidations);
+        stats.put("rejectedTooLarge", rejected);
+        return stats;
+    }
+}
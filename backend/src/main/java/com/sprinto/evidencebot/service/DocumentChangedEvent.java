@@ -0,0 +1,10 @@
+package com.sprinto.evidencebot.service;
+
+/**
+ * Published by {@link DocumentService} after a document becomes searchable or
+ * is deleted, so derived state (caches, aggregates) can be kept in sync.
+ */
+public record DocumentChangedEvent(Type type, Long documentId) {
+
+    public enum Type { UPLOADED, DELETED }
+}
@@ -1,18 +1,55 @@
 package com.sprinto.evidencebot.service;
 
+import com.sprinto.evidencebot.extraction.ExtractorRegistry;
+import com.sprinto.evidencebot.extraction.TextExtractor;
+import com.sprinto.evidencebot.model.ContentStorageStats;
 import com.sprinto.evidencebot.model.Document;
+import com.sprinto.evidencebot.model.DocumentDigest;
+import com.sprinto.evidencebot.model.DocumentHit;
+import com.sprinto.evidencebot.model.DocumentPage;
+import com.sprinto.evidencebot.model.DocumentSummary;
+import com.sprinto.evidencebot.model.DocumentText;
+import com.sprinto.evidencebot.model.NearDuplicate;
 import com.sprinto.evidencebot.repository.DocumentRepository;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.text.PDFTextStripper;
-import org.apache.poi.xwpf.usermodel.XWPFDocument;
-import org.apache.poi.xwpf.extractor.XWPFWordExtractor;
+import com.sprinto.evidencebot.search.Highlight;
+import com.sprinto.evidencebot.search.Highlighter;
+import com.sprinto.evidencebot.search.InvertedIndex;
+import com.sprinto.evidencebot.search.MinHash;
+import com.sprinto.evidencebot.search.NearDuplicateIndex;
+import com.sprinto.evidencebot.search.SearchHit;
+import com.sprinto.evidencebot.search.Tokenizer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class DocumentService {
@@ -20,60 +57,422 @@ public class DocumentService {
     @Autowired
     private DocumentRepository documentRepository;
 
+    @Autowired
+    private InvertedIndex invertedIndex;
+
+    @Autowired
+    private RetrievalService retrievalService;
+
+    @Autowired
+    private NearDuplicateIndex nearDuplicateIndex;
+
+    @Autowired
+    private ExtractorRegistry extractorRegistry;
+
+    @Autowired
+    private ComplianceStatsService complianceStatsService;
+
+    @Autowired
+    private SearchSnapshotService searchSnapshot;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DocumentCache documentCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${search.top-k:20}")
+    private int defaultSearchLimit;
+
+    @Value("${search.max-rank:1000}")
+    private int maxSearchRank;
+
+    @Value("${search.snippet.length:240}")
+    private int snippetLength;
+
+    @Value("${search.snippet.max-offsets:50}")
+    private int maxMatchOffsets;
+
+    @Value("${storage.content.compress:false}")
+    private boolean compressContent;
+
+    @Value("${storage.content.compression-level:6}")
+    private int compressionLevel;
+
+    @Value("${search.index.build-batch-size:200}")
+    private int buildBatchSize;
+
+    /**
+     * Loads the search snapshot when there is a usable one and indexes only
+     * the documents it does not cover; otherwise indexes every document.
+     */
+    @PostConstruct
+    void buildSearchIndex() {
+        Set<Long> stored = new HashSet<>(documentRepository.findAllIds());
+        long[] snapshotIds = searchSnapshot.restore();
+        if (snapshotIds != null) {
+            for (long id : snapshotIds) {
+                // Deleted after the snapshot was taken
+                if (!stored.remove(id)) {
+                    removeFromIndexes(id);
+                    searchSnapshot.markDirty();
+                }
+            }
+        }
+        // Content is lazily loaded, and there is no open session during startup
+        TransactionTemplate readOnly = readOnlyTransaction();
+        List<Long> missing = new ArrayList<>(stored);
+        for (int from = 0; from < missing.size(); from += buildBatchSize) {
+            List<Long> batch = missing.subList(from, Math.min(missing.size(), from + buildBatchSize));
+            readOnly.executeWithoutResult(status -> documentRepository.findAllById(batch).forEach(this::addToIndexes));
+            searchSnapshot.markDirty();
+        }
+    }
+
+    private TransactionTemplate readOnlyTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template;
+    }
+
+    /**
+     * Tokenizing and embedding happen first; the snapshot gate is held only
+     * while the results are added, so a snapshot never waits for an embedding
+     * call and ingestion never queues behind a waiting snapshot for long.
+     */
+    private void addToIndexes(Document document) {
+        Long id = document.getId();
+        InvertedIndex.TermCounts terms = InvertedIndex.count(document.getContent());
+        RetrievalService.EmbeddedChunks chunks = retrievalService.embed(document);
+        int[] fingerprint = MinHash.fromBytes(document.getTextFingerprint());
+        searchSnapshot.mutate(() -> {
+            invertedIndex.add(id, terms);
+            retrievalService.add(chunks);
+            nearDuplicateIndex.add(id, fingerprint);
+        });
+    }
+
+    private void removeFromIndexes(Long id) {
+        invertedIndex.remove(id);
+        retrievalService.removeDocument(id);
+        nearDuplicateIndex.remove(id);
+    }
+
     public Document uploadDocument(MultipartFile file) throws IOException {
-        String content = extractTextFromFile(file);
-        Document document = new Document(
-            file.getOriginalFilename(),
-            content,
-            file.getContentType(),
-            file.getSize()
-        );
-        return documentRepository.save(document);
+        Path spooled = spool(file);
+        try {
+            return ingestFile(spooled, file.getOriginalFilename(), file.getContentType(), file.getSize());
+        } finally {
+            Files.deleteIfExists(spooled);
+        }
+    }
+
+    /**
+     * Copies an upload to a temp file so extraction can read it from disk
+     * instead of holding the whole request body in memory.
+     */
+    public Path spool(MultipartFile file) throws IOException {
+        Path spooled = Files.createTempFile("upload-", ".bin");
+        try (InputStream in = file.getInputStream()) {
+            Files.copy(in, spooled, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(spooled);
+            throw e;
+        }
+        return spooled;
+    }
+
+    /**
+     * Stores and indexes a spooled file. A file whose bytes match a stored
+     * document is not extracted again; the existing document is returned.
+     */
+    public Document ingestFile(Path file, String filename, String contentType, long size) throws IOException {
+        String contentHash = contentHash(file);
+        Optional<Long> existing = findByContentHash(contentHash);
+        if (existing.isPresent()) {
+            return getDocumentById(existing.get());
+        }
+        Document document = createDocument(filename, extractText(file, contentType), contentType, size, contentHash);
+        Document saved;
+        try {
+            saved = saveDocument(document);
+        } catch (DataIntegrityViolationException e) {
+            // Same bytes stored concurrently by another upload
+            return findByContentHash(contentHash).map(this::getDocumentById).orElseThrow(() -> e);
+        }
+        indexDocument(saved);
+        return saved;
     }
 
-    private String extractTextFromFile(MultipartFile file) throws IOException {
-        String contentType = file.getContentType();
-        
-        if (contentType != null) {
-            if (contentType.equals("application/pdf")) {
-                return extractTextFromPDF(file);
-            } else if (contentType.equals("application/vnd.openxmlformats-officedocument.wordprocessingml.document")) {
-                return extractTextFromWord(file);
-            } else if (contentType.startsWith("text/")) {
-                return new String(file.getBytes(), StandardCharsets.UTF_8);
+    public String contentHash(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
             }
         }
-        
-        return new String(file.getBytes(), StandardCharsets.UTF_8);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public Optional<Long> findByContentHash(String contentHash) {
+        return documentRepository.findIdByContentHash(contentHash);
+    }
+
+    /**
+     * Builds a document for extracted text, compressing the text when
+     * compressed storage is enabled. Called on extraction workers so the
+     * compression cost stays off the persistence stage.
+     */
+    public Document createDocument(String filename, String content, String contentType, long size, String contentHash) {
+        Document document = new Document(filename, content, contentType, size);
+        document.setContentHash(contentHash);
+        if (compressContent) {
+            document.compressContent(compressionLevel);
+        }
+        return document;
+    }
+
+    public ContentStorageStats getContentStorageStats() {
+        return documentRepository.getContentStorageStats();
+    }
+
+    public Document saveDocument(Document document) {
+        return documentRepository.save(document);
+    }
+
+    /**
+     * Persists documents in one transaction so Hibernate can group the inserts
+     * into JDBC batches of hibernate.jdbc.batch_size.
+     */
+    @Transactional
+    public List<Document> saveDocuments(List<Document> documents) {
+        return documentRepository.saveAll(documents);
+    }
+
+    public void indexDocument(Document document) {
+        addToIndexes(document);
+        complianceStatsService.documentAdded(document.getCategoryFlags());
+        eventPublisher.publishEvent(new DocumentChangedEvent(DocumentChangedEvent.Type.UPLOADED, document.getId()));
     }
 
-    private String extractTextFromPDF(MultipartFile file) throws IOException {
-        try (PDDocument document = org.apache.pdfbox.Loader.loadPDF(file.getBytes())) {
-            PDFTextStripper stripper = new PDFTextStripper();
-            return stripper.getText(document);
+    /**
+     * Extracts text with the extractor the registry picks from the declared
+     * content type and the file's leading bytes; unrecognized files fail
+     * rather than being stored as raw bytes.
+     */
+    public String extractText(Path file, String contentType) throws IOException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String type = "other";
+        String outcome = "error";
+        try {
+            TextExtractor extractor = extractorRegistry.select(file, contentType);
+            type = extractor.type();
+            // Document.content is a single column, so the text is assembled here once.
+            StringWriter text = new StringWriter();
+            extractor.extract(file, text);
+            outcome = "success";
+            return text.toString();
+        } finally {
+            sample.stop(meterRegistry.timer("evidencebot.extraction", "type", type, "outcome", outcome));
         }
     }
 
-    private String extractTextFromWord(MultipartFile file) throws IOException {
-        try (XWPFDocument document = new XWPFDocument(file.getInputStream());
-             XWPFWordExtractor extractor = new XWPFWordExtractor(document)) {
-            return extractor.getText();
+    public List<DocumentText> searchDocuments(String query) {
+        return searchDocuments(query, defaultSearchLimit);
+    }
+
+    public List<DocumentText> searchDocuments(String query, int limit) {
+        return loadTexts(searchIndex(query, limit));
+    }
+
+    private List<SearchHit> searchIndex(String query, int limit) {
+        return meterRegistry.timer("evidencebot.search", "index", "bm25").record(() -> invertedIndex.search(query, limit));
+    }
+
+    /**
+     * Ranked search returning hits with match-centred snippets. The cursor is
+     * the rank offset of the next page; results stop at search.max-rank.
+     */
+    public DocumentPage<DocumentHit> searchDocumentHits(String query, String cursor, int limit, boolean includeContent) {
+        int offset = (int) parseCursor(cursor, maxSearchRank);
+        int end = (int) Math.min((long) offset + limit, maxSearchRank);
+        List<SearchHit> hits = searchIndex(query, end + 1);
+        if (hits.size() <= offset) {
+            return new DocumentPage<>(List.of(), null);
         }
+        List<DocumentText> documents = loadTexts(hits.subList(offset, Math.min(hits.size(), end)));
+        String nextCursor = hits.size() > end && end < maxSearchRank ? String.valueOf(end) : null;
+        return new DocumentPage<>(toHits(documents, query, includeContent), nextCursor);
     }
 
-    public List<Document> searchDocuments(String query) {
-        return documentRepository.findByContentContainingIgnoreCase(query);
+    /**
+     * The hits' documents in rank order with their text read in one short
+     * transaction, so the results hold no managed entities and can be handed
+     * to other threads (see {@link EvidenceService#generateEvidence}).
+     */
+    private List<DocumentText> loadTexts(List<SearchHit> hits) {
+        if (hits.isEmpty()) {
+            return List.of();
+        }
+        List<Long> ids = hits.stream().map(SearchHit::documentId).collect(Collectors.toList());
+        Map<Long, DocumentText> byId = readOnlyTransaction().execute(status ->
+                documentRepository.findAllById(ids).stream()
+                        .map(DocumentText::of)
+                        .collect(Collectors.toMap(DocumentText::id, Function.identity())));
+        return ids.stream()
+                .map(byId::get)
+                .filter(document -> document != null)
+                .collect(Collectors.toList());
     }
 
-    public List<Document> getAllDocuments() {
-        return documentRepository.findAll();
+    /**
+     * Match offsets and a snippet per document, each from one pass over its
+     * text. Full content is included only when {@code includeContent} is set.
+     */
+    public List<DocumentHit> toHits(List<DocumentText> documents, String query, boolean includeContent) {
+        LinkedHashSet<String> terms = new LinkedHashSet<>(Tokenizer.tokenize(query));
+        return documents.stream()
+                .map(document -> {
+                    Highlight highlight = Highlighter.highlight(document.content(), terms, snippetLength, maxMatchOffsets);
+                    return new DocumentHit(document.id(), document.filename(), document.fileType(),
+                            document.fileSize(), document.uploadDate(), highlight.matchCount(),
+                            highlight.matches(), highlight.snippet(), highlight.highlights(),
+                            includeContent ? document.content() : null);
+                })
+                .collect(Collectors.toList());
     }
 
+    /**
+     * Keyset-paginated listing in id order. The cursor is the last id of the
+     * previous page, so each page is an index range scan regardless of depth.
+     */
+    public DocumentPage<DocumentSummary> listDocuments(String cursor, int limit) {
+        long after = parseCursor(cursor, Long.MAX_VALUE);
+        List<DocumentSummary> rows = documentRepository.findSummariesAfter(after, PageRequest.of(0, limit + 1));
+        if (rows.size() <= limit) {
+            return new DocumentPage<>(rows, null);
+        }
+        List<DocumentSummary> items = rows.subList(0, limit);
+        return new DocumentPage<>(items, String.valueOf(items.get(limit - 1).id()));
+    }
+
+    private static long parseCursor(String cursor, long max) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0;
+        }
+        long value;
+        try {
+            value = Long.parseLong(cursor.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        if (value < 0 || value > max) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        return value;
+    }
+
+    /**
+     * Stored documents whose text closely matches the given document's,
+     * most similar first.
+     */
+    public List<NearDuplicate> findNearDuplicates(Long id) {
+        List<SearchHit> hits = nearDuplicateIndex.findSimilar(nearDuplicateIndex.getSignature(id), id);
+        if (hits.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, DocumentSummary> byId = documentRepository.findSummariesByIdIn(
+                hits.stream().map(SearchHit::documentId).collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.toMap(DocumentSummary::id, Function.identity()));
+        return hits.stream()
+                .filter(hit -> byId.containsKey(hit.documentId()))
+                .map(hit -> new NearDuplicate(byId.get(hit.documentId()), hit.score()))
+                .collect(Collectors.toList());
+    }
+
+    public List<DocumentDigest> getDocumentDigests() {
+        return documentRepository.findAllDigests();
+    }
+
+    /**
+     * Text of one document, read in its own short transaction and not put in
+     * {@link DocumentCache}; {@code null} if the document no longer exists.
+     */
+    public String getDocumentContent(Long id) {
+        return readOnlyTransaction().execute(status ->
+                documentRepository.findById(id).map(Document::getContent).orElse(null));
+    }
+
+    public long countDocuments() {
+        return documentRepository.count();
+    }
+
+    /**
+     * Metadata only; for callers that do not need the text, so they neither
+     * read the content column nor displace entries in {@link DocumentCache}.
+     */
+    public DocumentSummary getDocumentSummary(Long id) {
+        return documentRepository.findSummaryById(id).orElse(null);
+    }
+
+    public boolean documentExists(Long id) {
+        return documentRepository.existsById(id);
+    }
+
+    /**
+     * Served from {@link DocumentCache} when possible; on a miss the document
+     * is loaded with its text so the cached copy never needs a session.
+     */
     public Document getDocumentById(Long id) {
-        return documentRepository.findById(id).orElse(null);
+        Document cached = documentCache.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        long stamp = documentCache.stamp();
+        Document document = readOnlyTransaction().execute(status -> {
+            Document loaded = documentRepository.findById(id).orElse(null);
+            if (loaded != null) {
+                loaded.getContent();
+            }
+            return loaded;
+        });
+        if (document != null) {
+            documentCache.put(document, stamp);
+        }
+        return document;
     }
 
+    /**
+     * The row is read and deleted in one transaction, and the in-memory
+     * counters and indexes are updated only by the call whose delete actually
+     * removed it, so concurrent deletes of one document count once.
+     */
     public void deleteDocument(Long id) {
-        documentRepository.deleteById(id);
+        Long categoryFlags = new TransactionTemplate(transactionManager).execute(status -> {
+            Optional<Long> flags = documentRepository.findCategoryFlagsById(id);
+            // Empty both for a missing row and for one without flags
+            return documentRepository.deleteRowById(id) == 1 ? flags.orElse(0L) : null;
+        });
+        if (categoryFlags == null) {
+            return;
+        }
+        documentCache.invalidate(id);
+        complianceStatsService.documentRemoved(categoryFlags);
+        searchSnapshot.mutate(() -> removeFromIndexes(id));
+        eventPublisher.publishEvent(new DocumentChangedEvent(DocumentChangedEvent.Type.DELETED, id));
     }
 }
\ No newline at end of file
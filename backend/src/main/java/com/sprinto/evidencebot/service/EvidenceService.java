@@ -1,7 +1,12 @@
 package com.sprinto.evidencebot.service;
 
-import com.sprinto.evidencebot.model.Document;
+import com.sprinto.evidencebot.model.ComplianceAnalysis;
+import com.sprinto.evidencebot.model.DocumentCategory;
+import com.sprinto.evidencebot.model.DocumentHit;
+import com.sprinto.evidencebot.model.DocumentText;
+import com.sprinto.evidencebot.search.DocumentChunk;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -18,95 +23,109 @@ public class EvidenceService {
     @Autowired
     private OpenAIService openAIService;
 
-    public Map<String, Object> generateEvidence(String query) {
-        List<Document> relevantDocs = documentService.searchDocuments(query);
+    @Autowired
+    private RetrievalService retrievalService;
+
+    @Autowired
+    private ComplianceStatsService complianceStatsService;
+
+    @Autowired
+    private RequestCoalescer requestCoalescer;
+
+    @Autowired
+    private ComplianceAnalysisService complianceAnalysisService;
+
+    @Value("${retrieval.top-k:8}")
+    private int retrievalTopK;
+
+    /**
+     * Concurrent identical queries (after normalization) share one search and
+     * summary; see {@link RequestCoalescer}. Only the search results and the
+     * model output are shared: each caller's response is built from its own
+     * query, with match-centred snippets plus full content when requested.
+     * The shared results are detached {@link DocumentText} copies, since the
+     * joined callers run on other threads than the one that loaded them.
+     */
+    public Map<String, Object> generateEvidence(String query, boolean includeContent) {
+        SharedEvidence shared = requestCoalescer.execute("evidence", query, () -> {
+            List<DocumentText> relevantDocs = documentService.searchDocuments(query);
+            return new SharedEvidence(relevantDocs, relevantDocs.isEmpty() ? null : generateAISummary(relevantDocs, query));
+        });
+        List<DocumentHit> hits = documentService.toHits(shared.documents(), query, includeContent);
         
         Map<String, Object> evidence = new HashMap<>();
         evidence.put("query", query);
-        evidence.put("documentsFound", relevantDocs.size());
-        evidence.put("documents", relevantDocs);
-        
-        // Generate AI-powered summary
-        String aiSummary = generateAISummary(relevantDocs, query);
-        evidence.put("summary", aiSummary);
-        evidence.put("basicSummary", generateSummary(relevantDocs, query));
+        evidence.put("documentsFound", shared.documents().size());
+        evidence.put("documents", hits);
+        evidence.put("summary", shared.summary() != null ? shared.summary() : "No documents found for the query: " + query);
+        evidence.put("basicSummary", generateSummary(hits, query));
         
         return evidence;
     }
+
+    private record SharedEvidence(List<DocumentText> documents, String summary) {}
     
-    private String generateAISummary(List<Document> documents, String query) {
-        if (documents.isEmpty()) {
-            return "No documents found for the query: " + query;
-        }
-        
-        List<String> documentContents = documents.stream()
-                .map(Document::getContent)
-                .filter(content -> content != null && !content.trim().isEmpty())
+    private String generateAISummary(List<DocumentText> documents, String query) {
+        List<Long> documentIds = documents.stream()
+                .map(DocumentText::id)
                 .collect(Collectors.toList());
+        List<DocumentChunk> chunks = retrievalService.retrieve(query, retrievalTopK, documentIds);
         
-        if (documentContents.isEmpty()) {
+        if (chunks.isEmpty()) {
             return "No readable content found in the documents for analysis.";
         }
         
-        return openAIService.generateEvidenceSummary(query, documentContents);
+        return openAIService.generateEvidenceSummary(query, RetrievalService.toPassages(chunks), documentIds);
     }
 
-    private String generateSummary(List<Document> documents, String query) {
-        if (documents.isEmpty()) {
+    private String generateSummary(List<DocumentHit> hits, String query) {
+        if (hits.isEmpty()) {
             return "No evidence found for the query: " + query;
         }
         
         StringBuilder summary = new StringBuilder();
-        summary.append("Found ").append(documents.size()).append(" document(s) related to '").append(query).append("':\n\n");
+        summary.append("Found ").append(hits.size()).append(" document(s) related to '").append(query).append("':\n\n");
         
-        for (Document doc : documents) {
-            summary.append("• ").append(doc.getFilename()).append(" (").append(doc.getFileType()).append(")\n");
-            
-            String content = doc.getContent();
-            if (content != null && content.length() > 200) {
-                summary.append("  Preview: ").append(content.substring(0, 200)).append("...\n\n");
-            } else if (content != null) {
-                summary.append("  Content: ").append(content).append("\n\n");
-            }
+        for (DocumentHit hit : hits) {
+            summary.append("• ").append(hit.filename()).append(" (").append(hit.fileType()).append(")\n");
+            summary.append("  Match: ").append(hit.snippet()).append("\n\n");
         }
         
         return summary.toString();
     }
 
     public Map<String, Object> getComplianceReport(String domain) {
-        List<Document> allDocs = documentService.getAllDocuments();
+        Map<String, Object> report = new HashMap<>(
+                requestCoalescer.execute("compliance-report", domain, () -> buildComplianceReport(domain)));
+        report.put("domain", domain);
+        return report;
+    }
+
+    private Map<String, Object> buildComplianceReport(String domain) {
+        // Counts come from the incrementally maintained aggregates, not a content scan
+        long totalDocs = complianceStatsService.getTotalDocuments();
+        long policyDocs = complianceStatsService.getCount(DocumentCategory.POLICY);
+        long procedureDocs = complianceStatsService.getCount(DocumentCategory.PROCEDURE);
         
+        // The caller's own domain is added by getComplianceReport
         Map<String, Object> report = new HashMap<>();
-        report.put("domain", domain);
-        report.put("totalDocuments", allDocs.size());
+        report.put("totalDocuments", totalDocs);
         report.put("lastUpdated", java.time.LocalDateTime.now());
-        
-        // Basic compliance check based on document types
-        long policyDocs = allDocs.stream()
-            .filter(doc -> doc.getFilename().toLowerCase().contains("policy") || 
-                          doc.getContent().toLowerCase().contains("policy"))
-            .count();
-        
-        long procedureDocs = allDocs.stream()
-            .filter(doc -> doc.getFilename().toLowerCase().contains("procedure") || 
-                          doc.getContent().toLowerCase().contains("procedure"))
-            .count();
-        
         report.put("policyDocuments", policyDocs);
         report.put("procedureDocuments", procedureDocs);
-        report.put("complianceScore", calculateComplianceScore(policyDocs, procedureDocs, allDocs.size()));
+        report.put("complianceScore", calculateComplianceScore(policyDocs, procedureDocs, totalDocs));
+        report.put("categoryCounts", complianceStatsService.getCounts());
+        
+        DocumentCategory domainCategory = DocumentCategory.forDomain(domain);
+        if (domainCategory != null) {
+            report.put("domainDocuments", complianceStatsService.getCount(domainCategory));
+        }
         
         // Add AI-powered compliance analysis
-        if (!allDocs.isEmpty()) {
-            List<String> documentContents = allDocs.stream()
-                    .map(Document::getContent)
-                    .filter(content -> content != null && !content.trim().isEmpty())
-                    .collect(Collectors.toList());
-            
-            if (!documentContents.isEmpty()) {
-                String aiAnalysis = openAIService.analyzeComplianceGaps(domain, documentContents);
-                report.put("aiAnalysis", aiAnalysis);
-            }
+        if (totalDocs > 0) {
+            ComplianceAnalysis analysis = complianceAnalysisService.analyze(domain, documentService.getDocumentDigests());
+            report.put("aiAnalysis", analysis.analysis());
+            report.put("aiAnalysisDetails", analysis);
         }
         
         return report;
@@ -0,0 +1,208 @@
+package com.sprinto.evidencebot.service;
+
+import com.sprinto.evidencebot.model.Document;
+import com.sprinto.evidencebot.model.IngestionJob;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs uploads through extraction, persistence and indexing on dedicated
+ * worker pools so request threads only spool the file and return a job id.
+ *
+ * Every stage has a bounded queue. The first stage rejects new work when its
+ * queue is full, which the controller reports as 503; later stages run
+ * overflow on the submitting worker, which slows the upstream stage down
+ * instead of dropping jobs. A job whose next stage can no longer start
+ * because the pipeline is shutting down is marked failed.
+ */
+@Service
+public class IngestionPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestionPipeline.class);
+
+    @Autowired
+    private DocumentService documentService;
+
+    private final ThreadPoolExecutor extractionPool;
+    private final ThreadPoolExecutor persistencePool;
+    private final ThreadPoolExecutor indexingPool;
+    private final Duration jobRetention;
+    private final Map<String, IngestionJob> jobs = new ConcurrentHashMap<>();
+
+    public IngestionPipeline(@Value("${ingestion.extraction.threads:0}") int extractionThreads,
+                             @Value("${ingestion.persistence.threads:2}") int persistenceThreads,
+                             @Value("${ingestion.indexing.threads:2}") int indexingThreads,
+                             @Value("${ingestion.queue-capacity:100}") int queueCapacity,
+                             @Value("${ingestion.job-retention-minutes:60}") long jobRetentionMinutes) {
+        int extractors = extractionThreads > 0 ? extractionThreads : Runtime.getRuntime().availableProcessors();
+        this.extractionPool = newPool("ingest-extract-", extractors, queueCapacity, new ThreadPoolExecutor.AbortPolicy());
+        this.persistencePool = newPool("ingest-persist-", persistenceThreads, queueCapacity, IngestionPipeline::runOnCaller);
+        this.indexingPool = newPool("ingest-index-", indexingThreads, queueCapacity, IngestionPipeline::runOnCaller);
+        this.jobRetention = Duration.ofMinutes(jobRetentionMinutes);
+    }
+
+    /**
+     * Queues a spooled upload. The pipeline takes ownership of the file and
+     * deletes it once extracted.
+     *
+     * @throws RejectedExecutionException when the extraction queue is full
+     */
+    public IngestionJob submit(Path spooled, String filename, String contentType, long size) {
+        purgeFinishedJobs();
+        IngestionJob job = new IngestionJob(UUID.randomUUID().toString(), filename, contentType, size);
+        jobs.put(job.getId(), job);
+        long queuedAt = System.nanoTime();
+        try {
+            extractionPool.execute(() -> extract(job, spooled, queuedAt));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw e;
+        }
+        return job;
+    }
+
+    public IngestionJob getJob(String id) {
+        return jobs.get(id);
+    }
+
+    public int getQueueDepth() {
+        return extractionPool.getQueue().size();
+    }
+
+    private void extract(IngestionJob job, Path spooled, long queuedAt) {
+        job.recordWait("queued", elapsedMs(queuedAt));
+        job.startStage(IngestionJob.Status.EXTRACTING);
+        long start = System.nanoTime();
+        Document document;
+        try {
+            String contentHash = documentService.contentHash(spooled);
+            Optional<Long> existing = documentService.findByContentHash(contentHash);
+            if (existing.isPresent()) {
+                job.finishStage("extraction", elapsedMs(start));
+                job.completeAsDuplicate(existing.get());
+                return;
+            }
+            String content = documentService.extractText(spooled, job.getContentType());
+            document = documentService.createDocument(job.getFilename(), content, job.getContentType(), job.getFileSize(), contentHash);
+        } catch (Exception e) {
+            fail(job, "extraction", e);
+            return;
+        } finally {
+            deleteQuietly(spooled);
+        }
+        job.finishStage("extraction", elapsedMs(start));
+        handOff(job, "persistence", persistencePool, () -> persist(job, document));
+    }
+
+    private void persist(IngestionJob job, Document document) {
+        job.startStage(IngestionJob.Status.PERSISTING);
+        long start = System.nanoTime();
+        Document saved;
+        try {
+            saved = documentService.saveDocument(document);
+        } catch (DataIntegrityViolationException e) {
+            // The same bytes were stored by a concurrent upload after the extraction-stage check
+            Optional<Long> existing = documentService.findByContentHash(document.getContentHash());
+            if (existing.isPresent()) {
+                job.finishStage("persistence", elapsedMs(start));
+                job.completeAsDuplicate(existing.get());
+            } else {
+                fail(job, "persistence", e);
+            }
+            return;
+        } catch (Exception e) {
+            fail(job, "persistence", e);
+            return;
+        }
+        job.finishStage("persistence", elapsedMs(start));
+        handOff(job, "indexing", indexingPool, () -> index(job, saved));
+    }
+
+    private void index(IngestionJob job, Document document) {
+        job.startStage(IngestionJob.Status.INDEXING);
+        long start = System.nanoTime();
+        try {
+            documentService.indexDocument(document);
+            job.setNearDuplicateIds(documentService.findNearDuplicates(document.getId()).stream()
+                    .map(nearDuplicate -> nearDuplicate.document().id())
+                    .toList());
+        } catch (Exception e) {
+            fail(job, "indexing", e);
+            return;
+        }
+        job.finishStage("indexing", elapsedMs(start));
+        job.complete(document.getId());
+    }
+
+    private void handOff(IngestionJob job, String stage, ThreadPoolExecutor pool, Runnable task) {
+        try {
+            pool.execute(task);
+        } catch (RejectedExecutionException e) {
+            fail(job, stage, e);
+        }
+    }
+
+    // CallerRunsPolicy silently drops the task once the pool is shut down, which would strand the job
+    private static void runOnCaller(Runnable task, ThreadPoolExecutor pool) {
+        if (pool.isShutdown()) {
+            throw new RejectedExecutionException("ingestion pipeline is shutting down");
+        }
+        task.run();
+    }
+
+    private void fail(IngestionJob job, String stage, Exception e) {
+        log.warn("Ingestion failed in {} for {}: {} - {}", stage, job.getFilename(),
+                e.getClass().getSimpleName(), e.getMessage());
+        job.fail(stage + " failed: " + e.getMessage());
+    }
+
+    private void purgeFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(jobRetention);
+        jobs.values().removeIf(job -> job.isFinished() && job.getCompletedAt().isBefore(cutoff));
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete spooled upload {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static ThreadPoolExecutor newPool(String prefix, int threads, int queueCapacity,
+                                              java.util.concurrent.RejectedExecutionHandler handler) {
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory(prefix), handler);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        extractionPool.shutdown();
+        persistencePool.shutdown();
+        indexingPool.shutdown();
+    }
+}
@@ -0,0 +1,12 @@
+package com.sprinto.evidencebot.service;
+
+/**
+ * Thrown when the {@link LlmScheduler} cannot admit a call: the wait queue of
+ * its priority class is full, or it waited longer than the class's limit.
+ */
+public class LlmCapacityExceededException extends RuntimeException {
+
+    public LlmCapacityExceededException(String message) {
+        super(message);
+    }
+}
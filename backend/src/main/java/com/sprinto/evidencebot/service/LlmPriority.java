@@ -0,0 +1,14 @@
+package com.sprinto.evidencebot.service;
+
+/**
+ * Scheduling classes for OpenAI calls, most latency-sensitive first. See
+ * {@link LlmScheduler}.
+ */
+public enum LlmPriority {
+    /** A user is waiting on the answer: chat, evidence and document analysis. */
+    INTERACTIVE,
+    /** Single follow-up calls: conversation summaries and final gap reports. */
+    STANDARD,
+    /** Fan-out and background work: per-document compliance findings, merges and ingestion embeddings. */
+    BATCH
+}
@@ -0,0 +1,149 @@
+package com.sprinto.evidencebot.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * LRU + TTL cache for LLM completions, keyed by a SHA-256 over the operation,
+ * model, normalized prompt and the exact passages sent.
+ *
+ * Because the passages are part of the key, a changed document set naturally
+ * misses. Entries are additionally tagged with the documents they were built
+ * from and dropped as soon as one of those is deleted; corpus-wide entries
+ * (e.g. gap analysis over every document) are dropped on any upload or delete.
+ *
+ * Expired entries stay until they are replaced or evicted, so that
+ * {@link #getStale} can still answer while OpenAI is unavailable.
+ */
+@Service
+public class LlmResponseCache {
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long invalidations;
+    private long staleHits;
+
+    public LlmResponseCache(@Value("${llm.cache.max-entries:500}") int maxEntries,
+                            @Value("${llm.cache.ttl-minutes:30}") long ttlMinutes) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMinutes * 60_000;
+    }
+
+    private record Entry(String value, long createdAt, Set<Long> documentIds, boolean corpusWide) {}
+
+    public String key(String operation, String model, String prompt, List<String> passages) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            update(digest, operation);
+            update(digest, model);
+            update(digest, normalize(prompt));
+            for (String passage : passages) {
+                update(digest, passage);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public synchronized String get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (System.currentTimeMillis() - entry.createdAt() > ttlMillis) {
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value();
+    }
+
+    /**
+     * Returns the entry for {@code key} even if it has expired. Entries built
+     * from since-deleted documents have already been invalidated.
+     */
+    public synchronized String getStale(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        staleHits++;
+        return entry.value();
+    }
+
+    public synchronized void put(String key, String value, Collection<Long> documentIds, boolean corpusWide) {
+        entries.put(key, new Entry(value, System.currentTimeMillis(), Set.copyOf(documentIds), corpusWide));
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    @EventListener
+    public synchronized void onDocumentChanged(DocumentChangedEvent event) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.corpusWide() || entry.documentIds().contains(event.documentId())) {
+                iterator.remove();
+                invalidations++;
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        invalidations += entries.size();
+        entries.clear();
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        long lookups = hits + misses;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", entries.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRatio", lookups == 0 ? 0.0 : hits / (double) lookups);
+        stats.put("evictions", evictions);
+        stats.put("expirations", expirations);
+        stats.put("invalidations", invalidations);
+        stats.put("staleHits", staleHits);
+        return stats;
+    }
+
+    private static String normalize(String prompt) {
+        return prompt == null ? "" : prompt.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        // Length prefix keeps ("ab", "c") and ("a", "bc") distinct
+        digest.update(Integer.toString(bytes.length).getBytes(StandardCharsets.US_ASCII));
+        digest.update((byte) ':');
+        digest.update(bytes);
+    }
+}
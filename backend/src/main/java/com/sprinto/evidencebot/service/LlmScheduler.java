@@ -0,0 +1,399 @@
+package com.sprinto.evidencebot.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Admission control for every OpenAI chat completion. A call is admitted
+ * when a slot is free (at most {@code max-in-flight} concurrent calls) and
+ * the request and token buckets, refilled continuously at the configured
+ * RPM and TPM, cover its cost: one request plus its estimated prompt
+ * tokens and completion budget.
+ *
+ * Waiting calls are queued per {@link LlmPriority} and served by weighted
+ * fair queueing: each call is tagged with a virtual finish time of
+ * {@code cost / weight} after its class's previous call, and the smallest tag
+ * goes next, so a class with weight 16 gets sixteen times the tokens of a
+ * class with weight 1 while both are backlogged. When the next call does not
+ * fit the buckets yet, a waiting call of a more latency-sensitive class that
+ * does fit may go ahead of it. Each class may also keep back a {@code reserve}
+ * fraction of both buckets for the classes above it, so that batch work cannot
+ * drain the quota an interactive call needs.
+ *
+ * A call is rejected with {@link LlmCapacityExceededException} (HTTP 429)
+ * when its class's queue is full or it has waited longer than the class's
+ * {@code max-wait-ms}.
+ */
+@Component
+public class LlmScheduler {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final int maxInFlight;
+    private final TokenBucket requestBucket;
+    private final TokenBucket tokenBucket;
+    private final Map<LlmPriority, ClassQueue> queues = new EnumMap<>(LlmPriority.class);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ScheduledExecutorService refillTimer =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("llm-scheduler-"));
+
+    private int inFlight;
+    private double virtualTime;
+    private ScheduledFuture<?> pendingWakeup;
+
+    public LlmScheduler(@Value("${llm.scheduler.max-in-flight:8}") int maxInFlight,
+                        @Value("${llm.scheduler.requests-per-minute:3500}") long requestsPerMinute,
+                        @Value("${llm.scheduler.tokens-per-minute:90000}") long tokensPerMinute,
+                        @Value("${llm.scheduler.interactive.weight:16}") int interactiveWeight,
+                        @Value("${llm.scheduler.interactive.max-queued:16}") int interactiveMaxQueued,
+                        @Value("${llm.scheduler.interactive.max-wait-ms:2000}") long interactiveMaxWaitMs,
+                        @Value("${llm.scheduler.standard.weight:4}") int standardWeight,
+                        @Value("${llm.scheduler.standard.max-queued:32}") int standardMaxQueued,
+                        @Value("${llm.scheduler.standard.max-wait-ms:30000}") long standardMaxWaitMs,
+                        @Value("${llm.scheduler.standard.reserve:0.25}") double standardReserve,
+                        @Value("${llm.scheduler.batch.weight:1}") int batchWeight,
+                        @Value("${llm.scheduler.batch.max-queued:256}") int batchMaxQueued,
+                        @Value("${llm.scheduler.batch.max-wait-ms:120000}") long batchMaxWaitMs,
+                        @Value("${llm.scheduler.batch.reserve:0.5}") double batchReserve) {
+        this.maxInFlight = maxInFlight;
+        this.requestBucket = new TokenBucket(requestsPerMinute);
+        this.tokenBucket = new TokenBucket(tokensPerMinute);
+        queues.put(LlmPriority.INTERACTIVE, new ClassQueue(interactiveWeight, interactiveMaxQueued, interactiveMaxWaitMs, 0));
+        queues.put(LlmPriority.STANDARD, new ClassQueue(standardWeight, standardMaxQueued, standardMaxWaitMs, standardReserve));
+        queues.put(LlmPriority.BATCH, new ClassQueue(batchWeight, batchMaxQueued, batchMaxWaitMs, batchReserve));
+    }
+
+    @PostConstruct
+    void registerGauges() {
+        for (LlmPriority priority : LlmPriority.values()) {
+            meterRegistry.gauge("evidencebot.llm.queue.depth", Tags.of("priority", name(priority)),
+                    this, scheduler -> scheduler.queueDepth(priority));
+        }
+        meterRegistry.gauge("evidencebot.llm.in-flight", this, LlmScheduler::inFlight);
+        meterRegistry.gauge("evidencebot.llm.tokens.available", this, scheduler -> scheduler.available(scheduler.tokenBucket));
+    }
+
+    public <T> T execute(LlmPriority priority, int cost, Supplier<T> call) {
+        acquire(priority, cost);
+        try {
+            return call.get();
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Waits for admission of a call whose lifetime is not a single method
+     * call, such as a streamed completion. Every successful acquire must be
+     * paired with {@link #release()}.
+     *
+     * @param cost estimated prompt tokens plus the completion token budget
+     */
+    public void acquire(LlmPriority priority, int cost) {
+        ClassQueue queue = queues.get(priority);
+        long enqueuedAt = System.nanoTime();
+        lock.lock();
+        try {
+            if (queue.waiting.size() >= queue.maxQueued) {
+                throw reject(priority, "queue-full", "Too many AI requests in progress, please retry shortly");
+            }
+            double start = Math.max(virtualTime, queue.lastFinish);
+            double finish = start + Math.max(1, cost) / (double) queue.weight;
+            queue.lastFinish = finish;
+            Waiter waiter = new Waiter(priority, cost, start, finish, lock.newCondition());
+            queue.waiting.addLast(waiter);
+            dispatch();
+            long remaining = TimeUnit.MILLISECONDS.toNanos(queue.maxWaitMs) - (System.nanoTime() - enqueuedAt);
+            while (!waiter.admitted) {
+                if (remaining <= 0) {
+                    queue.waiting.remove(waiter);
+                    // Its place may have been holding back others
+                    dispatch();
+                    throw reject(priority, "timeout", "Timed out waiting for an AI request slot, please retry shortly");
+                }
+                try {
+                    remaining = waiter.signal.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    if (waiter.admitted) {
+                        // Admitted while being interrupted; give the slot back
+                        inFlight--;
+                        dispatch();
+                    } else {
+                        queue.waiting.remove(waiter);
+                        dispatch();
+                    }
+                    throw new LlmCapacityExceededException("Interrupted while waiting for an AI request slot");
+                }
+            }
+            queue.admitted++;
+        } finally {
+            lock.unlock();
+        }
+        meterRegistry.timer("evidencebot.llm.queue.wait", "priority", name(priority))
+                .record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+    }
+
+    public void release() {
+        lock.lock();
+        try {
+            inFlight--;
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    // Caller holds the lock
+    private void dispatch() {
+        long now = System.nanoTime();
+        while (inFlight < maxInFlight) {
+            Waiter next = null;
+            for (ClassQueue queue : queues.values()) {
+                Waiter head = queue.waiting.peekFirst();
+                if (head != null && (next == null || head.finish < next.finish)) {
+                    next = head;
+                }
+            }
+            if (next == null) {
+                return;
+            }
+            Waiter admitted = fits(next, now) ? next : firstThatFitsAhead(next, now);
+            if (admitted == null) {
+                scheduleWakeup(next, now);
+                return;
+            }
+            queues.get(admitted.priority).waiting.removeFirst();
+            requestBucket.take(1, now);
+            tokenBucket.take(admitted.cost, now);
+            virtualTime = Math.max(virtualTime, admitted.start);
+            inFlight++;
+            admitted.admitted = true;
+            admitted.signal.signal();
+        }
+    }
+
+    private Waiter firstThatFitsAhead(Waiter blocked, long now) {
+        for (LlmPriority priority : LlmPriority.values()) {
+            if (priority.compareTo(blocked.priority) >= 0) {
+                return null;
+            }
+            Waiter head = queues.get(priority).waiting.peekFirst();
+            if (head != null && fits(head, now)) {
+                return head;
+            }
+        }
+        return null;
+    }
+
+    private boolean fits(Waiter waiter, long now) {
+        double reserve = queues.get(waiter.priority).reserve;
+        return requestBucket.available(now) >= requestBucket.needed(1, reserve)
+                && tokenBucket.available(now) >= tokenBucket.needed(waiter.cost, reserve);
+    }
+
+    private void scheduleWakeup(Waiter blocked, long now) {
+        double reserve = queues.get(blocked.priority).reserve;
+        long waitNanos = Math.max(requestBucket.nanosUntil(requestBucket.needed(1, reserve), now),
+                tokenBucket.nanosUntil(tokenBucket.needed(blocked.cost, reserve), now));
+        if (pendingWakeup != null && !pendingWakeup.isDone()) {
+            if (pendingWakeup.getDelay(TimeUnit.NANOSECONDS) <= waitNanos) {
+                return;
+            }
+            pendingWakeup.cancel(false);
+        }
+        pendingWakeup = refillTimer.schedule(() -> {
+            lock.lock();
+            try {
+                dispatch();
+            } finally {
+                lock.unlock();
+            }
+        }, Math.max(waitNanos, TimeUnit.MILLISECONDS.toNanos(1)), TimeUnit.NANOSECONDS);
+    }
+
+    private LlmCapacityExceededException reject(LlmPriority priority, String reason, String message) {
+        queues.get(priority).rejected++;
+        meterRegistry.counter("evidencebot.llm.rejected", "priority", name(priority), "reason", reason).increment();
+        return new LlmCapacityExceededException(message);
+    }
+
+    private int queueDepth(LlmPriority priority) {
+        lock.lock();
+        try {
+            return queues.get(priority).waiting.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private double available(TokenBucket bucket) {
+        lock.lock();
+        try {
+            return bucket.available(System.nanoTime());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static String name(LlmPriority priority) {
+        return priority.name().toLowerCase();
+    }
+
+    public Map<String, Object> getStats() {
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("maxInFlight", maxInFlight);
+            stats.put("inFlight", inFlight);
+            stats.put("requestsPerMinute", requestBucket.perMinute);
+            stats.put("requestsAvailable", requestBucket.limited() ? (long) requestBucket.available(now) : null);
+            stats.put("tokensPerMinute", tokenBucket.perMinute);
+            stats.put("tokensAvailable", tokenBucket.limited() ? (long) tokenBucket.available(now) : null);
+            Map<String, Object> classes = new LinkedHashMap<>();
+            queues.forEach((priority, queue) -> {
+                Map<String, Object> queueStats = new LinkedHashMap<>();
+                queueStats.put("weight", queue.weight);
+                queueStats.put("queued", queue.waiting.size());
+                queueStats.put("maxQueued", queue.maxQueued);
+                queueStats.put("maxWaitMs", queue.maxWaitMs);
+                queueStats.put("reserve", queue.reserve);
+                queueStats.put("admitted", queue.admitted);
+                queueStats.put("rejected", queue.rejected);
+                classes.put(name(priority), queueStats);
+            });
+            stats.put("classes", classes);
+            return stats;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refillTimer.shutdownNow();
+    }
+
+    private static final class Waiter {
+        final LlmPriority priority;
+        final int cost;
+        final double start;
+        final double finish;
+        final Condition signal;
+        boolean admitted;
+
+        Waiter(LlmPriority priority, int cost, double start, double finish, Condition signal) {
+            this.priority = priority;
+            this.cost = cost;
+            this.start = start;
+            this.finish = finish;
+            this.signal = signal;
+        }
+    }
+
+    private static final class ClassQueue {
+        final int weight;
+        final int maxQueued;
+        final long maxWaitMs;
+        final double reserve;
+        final ArrayDeque<Waiter> waiting = new ArrayDeque<>();
+        double lastFinish;
+        long admitted;
+        long rejected;
+
+        ClassQueue(int weight, int maxQueued, long maxWaitMs, double reserve) {
+            this.weight = Math.max(1, weight);
+            this.maxQueued = maxQueued;
+            this.maxWaitMs = maxWaitMs;
+            this.reserve = Math.max(0, Math.min(1, reserve));
+        }
+    }
+
+    /**
+     * Holds up to one minute of quota and refills continuously; a limit of 0
+     * or less disables it. Guarded by the scheduler lock.
+     */
+    private static final class TokenBucket {
+        final long perMinute;
+        private final double perNano;
+        private double tokens;
+        private long refilledAt = System.nanoTime();
+
+        TokenBucket(long perMinute) {
+            this.perMinute = perMinute;
+            this.perNano = perMinute / (double) TimeUnit.MINUTES.toNanos(1);
+            this.tokens = perMinute;
+        }
+
+        boolean limited() {
+            return perMinute > 0;
+        }
+
+        double available(long now) {
+            if (!limited()) {
+                return Double.MAX_VALUE;
+            }
+            tokens = Math.min(perMinute, tokens + (now - refilledAt) * perNano);
+            refilledAt = now;
+            return tokens;
+        }
+
+        // A call larger than the whole bucket would otherwise never fit
+        double clamp(int cost) {
+            return limited() ? Math.min(cost, perMinute) : cost;
+        }
+
+        /** Tokens that must be available to take {@code cost} and still leave the reserve. */
+        double needed(int cost, double reserve) {
+            return limited() ? Math.min(perMinute, cost + reserve * perMinute) : 0;
+        }
+
+        void take(int cost, long now) {
+            if (limited()) {
+                available(now);
+                tokens -= clamp(cost);
+            }
+        }
+
+        long nanosUntil(double needed, long now) {
+            if (!limited()) {
+                return 0;
+            }
+            double missing = needed - available(now);
+            return missing <= 0 ? 0 : (long) Math.ceil(missing / perNano);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.sprinto.evidencebot.service;
+
+/**
+ * Thrown without calling OpenAI while the circuit breaker in
+ * {@link ResilientLlmClient} is open (HTTP 503).
+ */
+public class LlmUnavailableException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public LlmUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,36 @@
+package com.sprinto.evidencebot.service;
+
+import com.sprinto.evidencebot.search.EmbeddingProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@ConditionalOnProperty(name = "embedding.provider", havingValue = "openai")
+public class OpenAIEmbeddingProvider implements EmbeddingProvider {
+
+    @Autowired
+    private OpenAIService openAIService;
+
+    // Must match embedding.openai.model (1536 for text-embedding-ada-002)
+    @Value("${embedding.openai.dimensions:1536}")
+    private int dimensions;
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    @Override
+    public float[] embed(String text) {
+        return embedAll(List.of(text)).get(0);
+    }
+
+    @Override
+    public List<float[]> embedAll(List<String> texts) {
+        return openAIService.createEmbeddings(texts);
+    }
+}
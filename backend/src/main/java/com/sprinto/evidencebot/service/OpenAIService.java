@@ -1,74 +1,146 @@
 package com.sprinto.evidencebot.service;
 
+import com.sprinto.evidencebot.prompt.PackedPassages;
+import com.sprinto.evidencebot.prompt.PromptPacker;
+import com.sprinto.evidencebot.prompt.TokenCounter;
+import com.theokanning.openai.Usage;
+import com.theokanning.openai.client.OpenAiApi;
 import com.theokanning.openai.completion.chat.ChatCompletionRequest;
+import com.theokanning.openai.completion.chat.ChatCompletionResult;
 import com.theokanning.openai.completion.chat.ChatMessage;
 import com.theokanning.openai.completion.chat.ChatMessageRole;
+import com.theokanning.openai.embedding.Embedding;
+import com.theokanning.openai.embedding.EmbeddingRequest;
+import com.theokanning.openai.embedding.EmbeddingResult;
 import com.theokanning.openai.service.OpenAiService;
+import io.reactivex.Flowable;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import okhttp3.OkHttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import retrofit2.Retrofit;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Service
 public class OpenAIService {
 
+    private static final Logger log = LoggerFactory.getLogger(OpenAIService.class);
+
     private final OpenAiService openAiService;
+    private final OpenAiApi api;
+    private final String model;
 
-    public OpenAIService(@Value("${openai.api.key}") String apiKey) {
-        this.openAiService = new OpenAiService(apiKey, Duration.ofSeconds(60));
-    }
+    @Autowired
+    private LlmResponseCache responseCache;
 
-    public String generateEvidenceSummary(String query, List<String> documentContents) {
-        String systemPrompt = "You are an expert compliance and evidence analyst. " +
-                "Your role is to analyze documents and provide clear, actionable evidence summaries for compliance purposes. " +
-                "Focus on identifying relevant compliance evidence, risks, and recommendations.";
+    @Autowired
+    private LlmScheduler scheduler;
 
-        StringBuilder userPrompt = new StringBuilder();
-        userPrompt.append("Query: ").append(query).append("\n\n");
-        userPrompt.append("Please analyze the following documents and provide:\n");
-        userPrompt.append("1. A comprehensive summary of evidence related to the query\n");
-        userPrompt.append("2. Compliance status assessment\n");
-        userPrompt.append("3. Identified gaps or risks\n");
-        userPrompt.append("4. Specific recommendations for improvement\n\n");
-        userPrompt.append("Documents:\n");
+    @Autowired
+    private ResilientLlmClient resilientClient;
 
-        for (int i = 0; i < documentContents.size(); i++) {
-            userPrompt.append("Document ").append(i + 1).append(":\n");
-            String content = documentContents.get(i);
-            // Limit content to avoid token limits
-            if (content.length() > 2000) {
-                content = content.substring(0, 2000) + "...";
-            }
-            userPrompt.append(content).append("\n\n");
-        }
+    @Autowired
+    private PromptPacker promptPacker;
 
-        List<ChatMessage> messages = new ArrayList<>();
-        messages.add(new ChatMessage(ChatMessageRole.SYSTEM.value(), systemPrompt));
-        messages.add(new ChatMessage(ChatMessageRole.USER.value(), userPrompt.toString()));
+    @Autowired
+    private TokenCounter tokenCounter;
 
-        ChatCompletionRequest request = ChatCompletionRequest.builder()
-                .model("gpt-3.5-turbo")
-                .messages(messages)
-                .maxTokens(1000)
-                .temperature(0.3)
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${embedding.openai.model:text-embedding-ada-002}")
+    private String embeddingModel;
+
+    @Value("${embedding.openai.batch-size:64}")
+    private int embeddingBatchSize;
+
+    @Value("${prompt.budget.evidence-summary:6000}")
+    private int evidenceSummaryBudget;
+
+    @Value("${prompt.budget.compliance-gaps:10000}")
+    private int complianceGapsBudget;
+
+    @Value("${prompt.budget.compliance-findings:3000}")
+    private int complianceFindingsBudget;
+
+    @Value("${prompt.budget.chat:4000}")
+    private int chatBudget;
+
+    @Value("${prompt.budget.history:1000}")
+    private int historyBudget;
+
+    public OpenAIService(@Value("${openai.api.key}") String apiKey,
+                         @Value("${openai.model:gpt-3.5-turbo}") String model,
+                         @Value("${openai.base-url:https://api.openai.com/}") String baseUrl,
+                         @Value("${llm.scheduler.max-in-flight:8}") int maxConcurrentCalls,
+                         @Value("${llm.resilience.timeout.max-ms:60000}") long maxTimeoutMs) {
+        // Per-attempt timeouts are adaptive (see ResilientLlmClient); this is only the ceiling
+        OkHttpClient client = OpenAiService.defaultClient(apiKey, Duration.ofMillis(maxTimeoutMs));
+        // OkHttp allows only 5 concurrent async (streaming) calls per host by default
+        client.dispatcher().setMaxRequestsPerHost(Math.max(5, maxConcurrentCalls));
+        Retrofit retrofit = OpenAiService.defaultRetrofit(client, OpenAiService.defaultObjectMapper())
+                .newBuilder()
+                .baseUrl(baseUrl.endsWith("/") ? baseUrl : baseUrl + "/")
                 .build();
+        this.api = retrofit.create(OpenAiApi.class);
+        this.openAiService = new OpenAiService(api, client.dispatcher().executorService());
+        this.model = model;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public String generateEvidenceSummary(String query, List<String> documentContents) {
+        return generateEvidenceSummary(query, documentContents, List.of());
+    }
+
+    /**
+     * @param sourceDocumentIds documents the passages were taken from; the
+     *                          cached summary is dropped when any of them is deleted
+     */
+    public String generateEvidenceSummary(String query, List<String> documentContents, Collection<Long> sourceDocumentIds) {
+        String cacheKey = responseCache.key("evidence-summary", model, query, documentContents);
+        String cached = responseCache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+
+        Prompt prompt = buildEvidenceSummaryPrompt(query, documentContents);
 
         try {
-            return openAiService.createChatCompletion(request)
-                    .getChoices()
-                    .get(0)
-                    .getMessage()
-                    .getContent();
+            String summary = complete(prompt);
+            responseCache.put(cacheKey, summary, sourceDocumentIds, false);
+            return summary;
+        } catch (LlmCapacityExceededException e) {
+            throw e;
+        } catch (LlmUnavailableException e) {
+            return fallback(cacheKey, documentContents);
         } catch (Exception e) {
-            System.err.println("OpenAI API Error in generateEvidenceSummary: " + e.getClass().getSimpleName() + " - " + e.getMessage());
-            e.printStackTrace();
+            log.error("OpenAI API error in generateEvidenceSummary", e);
             return "Error generating AI summary: " + e.getMessage();
         }
     }
 
     public String analyzeComplianceGaps(String domain, List<String> documentContents) {
+        String cacheKey = responseCache.key("compliance-gaps", model, domain, documentContents);
+        String cached = responseCache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+
         String systemPrompt = "You are a compliance expert specializing in " + domain + " compliance. " +
                 "Analyze the provided documents to identify compliance gaps, risks, and provide specific recommendations.";
 
@@ -80,40 +152,143 @@ public class OpenAIService {
         userPrompt.append("4. Prioritized action items\n");
         userPrompt.append("5. Recommended evidence to collect\n\n");
 
-        for (int i = 0; i < documentContents.size(); i++) {
-            userPrompt.append("Document ").append(i + 1).append(":\n");
-            String content = documentContents.get(i);
-            if (content.length() > 1500) {
-                content = content.substring(0, 1500) + "...";
-            }
-            userPrompt.append(content).append("\n\n");
+        Prompt prompt = buildPrompt("compliance-gaps", systemPrompt, userPrompt, documentContents,
+                complianceGapsBudget, 1200, 0.2);
+
+        try {
+            String analysis = complete(prompt);
+            // Gap analysis covers the whole corpus, so any document change invalidates it
+            responseCache.put(cacheKey, analysis, List.of(), true);
+            return analysis;
+        } catch (LlmCapacityExceededException e) {
+            throw e;
+        } catch (LlmUnavailableException e) {
+            return fallback(cacheKey, documentContents);
+        } catch (Exception e) {
+            log.error("OpenAI API error in analyzeComplianceGaps", e);
+            return "Error analyzing compliance gaps: " + e.getMessage();
         }
+    }
 
-        List<ChatMessage> messages = new ArrayList<>();
-        messages.add(new ChatMessage(ChatMessageRole.SYSTEM.value(), systemPrompt));
-        messages.add(new ChatMessage(ChatMessageRole.USER.value(), userPrompt.toString()));
+    /**
+     * Map step of the map-reduce gap analysis: findings for a single document,
+     * or one chunk of it. Errors propagate so that callers do not memoize them.
+     */
+    public String extractComplianceFindings(String domain, String filename, String text) {
+        String systemPrompt = "You are a compliance expert specializing in " + domain + " compliance. " +
+                "Extract concise, factual findings from a single document.";
 
-        ChatCompletionRequest request = ChatCompletionRequest.builder()
-                .model("gpt-3.5-turbo")
-                .messages(messages)
-                .maxTokens(1200)
-                .temperature(0.2)
-                .build();
+        StringBuilder userPrompt = new StringBuilder();
+        userPrompt.append("Document: ").append(filename).append("\n\n");
+        userPrompt.append("List as short bullet points:\n");
+        userPrompt.append("1. Controls and requirements this document evidences\n");
+        userPrompt.append("2. Gaps, weaknesses or missing requirements\n");
+        userPrompt.append("3. Risks it reveals\n\n");
 
+        return complete(buildPrompt("compliance-findings", systemPrompt, userPrompt, List.of(text),
+                complianceFindingsBudget, 400, 0.2));
+    }
+
+    /**
+     * Reduce step of the map-reduce gap analysis. With {@code finalReport}
+     * the findings are turned into the full gap analysis; otherwise they are
+     * merged into one shorter list for another reduce round. Errors propagate,
+     * except that a previous (possibly expired) result is reused while OpenAI
+     * is unavailable.
+     */
+    public String mergeComplianceFindings(String domain, List<String> findings, boolean finalReport) {
+        String operation = finalReport ? "compliance-gaps" : "compliance-merge";
+        String cacheKey = responseCache.key(operation, model, domain, findings);
+        String cached = responseCache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+
+        String systemPrompt = "You are a compliance expert specializing in " + domain + " compliance. " +
+                "You are given findings previously extracted from individual documents.";
+
+        StringBuilder userPrompt = new StringBuilder();
+        if (finalReport) {
+            userPrompt.append("Based on these findings, analyze the documents for ").append(domain)
+                    .append(" compliance and provide:\n");
+            userPrompt.append("1. Current compliance status\n");
+            userPrompt.append("2. Identified gaps and missing requirements\n");
+            userPrompt.append("3. Risk assessment\n");
+            userPrompt.append("4. Prioritized action items\n");
+            userPrompt.append("5. Recommended evidence to collect\n\n");
+        } else {
+            userPrompt.append("Merge these findings into one deduplicated bullet list, ")
+                    .append("keeping the document names each finding comes from.\n\n");
+        }
+
+        String merged;
         try {
-            return openAiService.createChatCompletion(request)
-                    .getChoices()
-                    .get(0)
-                    .getMessage()
-                    .getContent();
-        } catch (Exception e) {
-            System.err.println("OpenAI API Error in analyzeComplianceGaps: " + e.getClass().getSimpleName() + " - " + e.getMessage());
-            e.printStackTrace();
-            return "Error analyzing compliance gaps: " + e.getMessage();
+            merged = complete(buildPrompt(operation, systemPrompt, userPrompt, findings,
+                    complianceGapsBudget, finalReport ? 1200 : 800, 0.2));
+        } catch (LlmUnavailableException e) {
+            String stale = responseCache.getStale(cacheKey);
+            if (stale == null) {
+                throw e;
+            }
+            return stale;
         }
+        responseCache.put(cacheKey, merged, List.of(), finalReport);
+        return merged;
     }
 
     public String chatWithDocuments(String userQuery, List<String> documentContents, String conversationHistory) {
+        Prompt prompt = buildChatPrompt(userQuery, documentContents, conversationHistory);
+
+        try {
+            return complete(prompt);
+        } catch (LlmCapacityExceededException e) {
+            throw e;
+        } catch (LlmUnavailableException e) {
+            return degradedAnswer(documentContents);
+        } catch (Exception e) {
+            log.error("OpenAI API error in chatWithDocuments", e);
+            return "Error processing your question: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Folds older chat turns into the rolling summary kept by
+     * {@link ConversationSessionStore}. Errors propagate.
+     */
+    public String summarizeConversation(String previousSummary, String turns, int maxTokens) {
+        String systemPrompt = "You maintain a running summary of a conversation about compliance documents. " +
+                "Keep facts, decisions, open questions and the documents referred to; drop pleasantries.";
+
+        StringBuilder userPrompt = new StringBuilder();
+        if (previousSummary != null && !previousSummary.isEmpty()) {
+            userPrompt.append("Current summary:\n").append(previousSummary).append("\n\n");
+        }
+        userPrompt.append("Update the summary with these turns, in at most ").append(maxTokens * 3 / 4)
+                .append(" words:\n");
+
+        return complete(buildPrompt("conversation-summary", systemPrompt, userPrompt, List.of(turns),
+                chatBudget, maxTokens, 0.2));
+    }
+
+    private Prompt buildEvidenceSummaryPrompt(String query, List<String> documentContents) {
+        String systemPrompt = "You are an expert compliance and evidence analyst. " +
+                "Your role is to analyze documents and provide clear, actionable evidence summaries for compliance purposes. " +
+                "Focus on identifying relevant compliance evidence, risks, and recommendations.";
+
+        StringBuilder userPrompt = new StringBuilder();
+        userPrompt.append("Query: ").append(query).append("\n\n");
+        userPrompt.append("Please analyze the following documents and provide:\n");
+        userPrompt.append("1. A comprehensive summary of evidence related to the query\n");
+        userPrompt.append("2. Compliance status assessment\n");
+        userPrompt.append("3. Identified gaps or risks\n");
+        userPrompt.append("4. Specific recommendations for improvement\n\n");
+        userPrompt.append("Documents:\n");
+
+        return buildPrompt("evidence-summary", systemPrompt, userPrompt, documentContents,
+                evidenceSummaryBudget, 1000, 0.3);
+    }
+
+    private Prompt buildChatPrompt(String userQuery, List<String> documentContents, String conversationHistory) {
         String systemPrompt = "You are an intelligent assistant that helps users understand and analyze their compliance documents. " +
                 "Answer questions based on the provided documents and conversation history. " +
                 "Be helpful, accurate, and cite specific information from the documents when possible.";
@@ -122,40 +297,259 @@ public class OpenAIService {
         userPrompt.append("User Question: ").append(userQuery).append("\n\n");
         
         if (conversationHistory != null && !conversationHistory.trim().isEmpty()) {
-            userPrompt.append("Previous Conversation:\n").append(conversationHistory).append("\n\n");
+            // Keep the most recent part of the conversation
+            String history = tokenCounter.truncateFromStart(conversationHistory, historyBudget);
+            userPrompt.append("Previous Conversation:\n").append(history).append("\n\n");
         }
 
         userPrompt.append("Available Documents:\n");
-        for (int i = 0; i < documentContents.size(); i++) {
-            userPrompt.append("Document ").append(i + 1).append(":\n");
-            String content = documentContents.get(i);
-            if (content.length() > 1000) {
-                content = content.substring(0, 1000) + "...";
-            }
-            userPrompt.append(content).append("\n\n");
-        }
+
+        return buildPrompt("chat", systemPrompt, userPrompt, documentContents, chatBudget, 800, 0.4);
+    }
+
+    private record Prompt(String operation, ChatCompletionRequest request, int promptTokens, PackedPassages passages) {}
+
+    /**
+     * Appends as many of the passages as fit the operation's budget, leaving
+     * room in the context window for {@code maxTokens} of completion.
+     */
+    private Prompt buildPrompt(String operation, String systemPrompt, StringBuilder userPrompt, List<String> passages,
+                               int operationBudget, int maxTokens, double temperature) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        int fixedTokens = tokenCounter.countMessages(List.of(systemPrompt, userPrompt.toString()));
+        PackedPassages packed = promptPacker.pack(passages, promptPacker.passageBudget(operationBudget, fixedTokens, maxTokens));
+        userPrompt.append(packed.text());
 
         List<ChatMessage> messages = new ArrayList<>();
         messages.add(new ChatMessage(ChatMessageRole.SYSTEM.value(), systemPrompt));
         messages.add(new ChatMessage(ChatMessageRole.USER.value(), userPrompt.toString()));
 
         ChatCompletionRequest request = ChatCompletionRequest.builder()
-                .model("gpt-3.5-turbo")
+                .model(model)
                 .messages(messages)
-                .maxTokens(800)
-                .temperature(0.4)
+                .maxTokens(maxTokens)
+                .temperature(temperature)
                 .build();
+        sample.stop(meterRegistry.timer("evidencebot.prompt.assembly", "operation", operation));
+        return new Prompt(operation, request, fixedTokens + packed.tokens(), packed);
+    }
 
+    /**
+     * Streaming variant of {@link #chatWithDocuments}: emits content deltas as
+     * they arrive from the API.
+     */
+    public Flowable<String> streamChatWithDocuments(String userQuery, List<String> documentContents, String conversationHistory) {
         try {
-            return openAiService.createChatCompletion(request)
-                    .getChoices()
-                    .get(0)
-                    .getMessage()
-                    .getContent();
-        } catch (Exception e) {
-            System.err.println("OpenAI API Error: " + e.getClass().getSimpleName() + " - " + e.getMessage());
-            e.printStackTrace();
-            return "Error processing your question: " + e.getMessage();
+            return streamContent(buildChatPrompt(userQuery, documentContents, conversationHistory));
+        } catch (LlmUnavailableException e) {
+            return Flowable.just(degradedAnswer(documentContents));
+        }
+    }
+
+    /**
+     * Streaming variant of {@link #generateEvidenceSummary}. A cached summary
+     * is emitted as a single delta; a freshly streamed one is cached once the
+     * stream completes.
+     */
+    public Flowable<String> streamEvidenceSummary(String query, List<String> documentContents, Collection<Long> sourceDocumentIds) {
+        String cacheKey = responseCache.key("evidence-summary", model, query, documentContents);
+        String cached = responseCache.get(cacheKey);
+        if (cached != null) {
+            return Flowable.just(cached);
+        }
+        Flowable<String> deltas;
+        try {
+            deltas = streamContent(buildEvidenceSummaryPrompt(query, documentContents));
+        } catch (LlmUnavailableException e) {
+            return Flowable.just(fallback(cacheKey, documentContents));
+        }
+        StringBuilder summary = new StringBuilder();
+        return deltas
+                .doOnNext(summary::append)
+                .doOnComplete(() -> responseCache.put(cacheKey, summary.toString(), sourceDocumentIds, false));
+    }
+
+    private Flowable<String> streamContent(Prompt prompt) {
+        // Fails fast while the circuit is open, before queueing for a scheduler slot
+        resilientClient.acquirePermission();
+        report(prompt);
+        // The slot is taken eagerly so a saturated scheduler surfaces as 429 before the SSE response starts
+        try {
+            scheduler.acquire(priority(prompt.operation()), cost(prompt));
+        } catch (LlmCapacityExceededException e) {
+            resilientClient.releasePermission();
+            throw e;
+        }
+        AtomicBoolean released = new AtomicBoolean();
+        AtomicBoolean firstToken = new AtomicBoolean();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Consumer<String> finish = outcome -> {
+            if (released.compareAndSet(false, true)) {
+                scheduler.release();
+                sample.stop(meterRegistry.timer("evidencebot.openai.requests",
+                        "operation", prompt.operation(), "mode", "stream", "outcome", outcome));
+            }
+        };
+        return openAiService.streamChatCompletion(prompt.request())
+                .doOnNext(chunk -> {
+                    if (firstToken.compareAndSet(false, true)) {
+                        sample.stop(meterRegistry.timer("evidencebot.openai.first-token", "operation", prompt.operation()));
+                    }
+                })
+                .doOnComplete(() -> {
+                    resilientClient.recordStreamOutcome(null);
+                    finish.accept("success");
+                })
+                .doOnError(error -> {
+                    resilientClient.recordStreamOutcome(error);
+                    countError(prompt, error);
+                    finish.accept("error");
+                })
+                .doOnCancel(() -> {
+                    resilientClient.releasePermission();
+                    finish.accept("cancelled");
+                })
+                .filter(chunk -> !chunk.getChoices().isEmpty())
+                .map(chunk -> chunk.getChoices().get(0).getMessage())
+                .filter(message -> message != null && message.getContent() != null)
+                .map(ChatMessage::getContent);
+    }
+
+    private String complete(Prompt prompt) {
+        report(prompt);
+        ChatCompletionResult result = scheduler.execute(priority(prompt.operation()), cost(prompt), () -> {
+            // Timed inside the scheduler so queueing for a slot is not counted as API latency
+            Timer.Sample sample = Timer.start(meterRegistry);
+            String outcome = "error";
+            try {
+                ChatCompletionResult completion = resilientClient.execute(prompt.operation(),
+                        () -> api.createChatCompletion(prompt.request()));
+                outcome = "success";
+                return completion;
+            } catch (RuntimeException e) {
+                countError(prompt, e);
+                throw e;
+            } finally {
+                sample.stop(meterRegistry.timer("evidencebot.openai.requests",
+                        "operation", prompt.operation(), "mode", "blocking", "outcome", outcome));
+            }
+        });
+        Usage usage = result.getUsage();
+        if (usage != null) {
+            promptPacker.recordCompletion(prompt.operation(), usage.getCompletionTokens());
+            meterRegistry.summary("evidencebot.openai.tokens", "operation", prompt.operation(), "type", "completion")
+                    .record(usage.getCompletionTokens());
+        }
+        return result.getChoices().get(0).getMessage().getContent();
+    }
+
+    private static LlmPriority priority(String operation) {
+        return switch (operation) {
+            case "chat", "evidence-summary" -> LlmPriority.INTERACTIVE;
+            case "compliance-findings", "compliance-merge" -> LlmPriority.BATCH;
+            default -> LlmPriority.STANDARD;
+        };
+    }
+
+    // OpenAI counts max_tokens against the TPM limit when the request is accepted
+    private static int cost(Prompt prompt) {
+        Integer maxTokens = prompt.request().getMaxTokens();
+        return prompt.promptTokens() + (maxTokens != null ? maxTokens : 0);
+    }
+
+    /**
+     * Answer used while OpenAI is unavailable: the last cached result for the
+     * same prompt even if expired, otherwise {@link #degradedAnswer}.
+     */
+    private String fallback(String cacheKey, List<String> documentContents) {
+        String stale = responseCache.getStale(cacheKey);
+        return stale != null ? stale : degradedAnswer(documentContents);
+    }
+
+    private String degradedAnswer(List<String> documentContents) {
+        meterRegistry.counter("evidencebot.openai.resilience", "event", "degraded").increment();
+        StringBuilder answer = new StringBuilder("The AI service is temporarily unavailable, so this answer was not generated. ");
+        if (documentContents.isEmpty()) {
+            return answer.append("Please try again shortly.").toString();
+        }
+        answer.append("The most relevant excerpts from your documents are:\n\n");
+        documentContents.stream()
+                .limit(3)
+                .forEach(passage -> answer.append(tokenCounter.truncate(passage, 120)).append("\n\n"));
+        return answer.toString().trim();
+    }
+
+    private void countError(Prompt prompt, Throwable error) {
+        // The client wraps transport failures in a bare RuntimeException
+        while (error.getClass() == RuntimeException.class && error.getCause() != null) {
+            error = error.getCause();
+        }
+        meterRegistry.counter("evidencebot.openai.errors",
+                "operation", prompt.operation(), "exception", error.getClass().getSimpleName()).increment();
+    }
+
+    private void report(Prompt prompt) {
+        PackedPassages passages = prompt.passages();
+        promptPacker.record(prompt.operation(), prompt.promptTokens(), passages);
+        meterRegistry.summary("evidencebot.openai.tokens", "operation", prompt.operation(), "type", "prompt")
+                .record(prompt.promptTokens());
+        log.info("{}: {} prompt tokens, {}/{} passages{}", prompt.operation(), prompt.promptTokens(),
+                passages.included(), passages.offered(), passages.truncated() ? " (truncated)" : "");
+    }
+
+    /**
+     * Embeds texts in requests of at most {@code embedding.openai.batch-size}
+     * inputs. Each request is scheduled as {@link LlmPriority#BATCH} work with
+     * its input tokens as cost, so ingestion draws on the same RPM/TPM budget
+     * as completions without crowding out chat.
+     */
+    public List<float[]> createEmbeddings(List<String> texts) {
+        List<float[]> vectors = new ArrayList<>(texts.size());
+        for (int from = 0; from < texts.size(); from += embeddingBatchSize) {
+            vectors.addAll(embed(texts.subList(from, Math.min(texts.size(), from + embeddingBatchSize))));
+        }
+        return vectors;
+    }
+
+    private List<float[]> embed(List<String> texts) {
+        EmbeddingRequest request = EmbeddingRequest.builder()
+                .model(embeddingModel)
+                .input(texts)
+                .build();
+        int cost = texts.stream().mapToInt(tokenCounter::count).sum();
+        EmbeddingResult result = scheduler.execute(LlmPriority.BATCH, cost, () -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            String outcome = "error";
+            try {
+                EmbeddingResult embeddings = resilientClient.execute("embedding", () -> api.createEmbeddings(request));
+                outcome = "success";
+                return embeddings;
+            } finally {
+                sample.stop(meterRegistry.timer("evidencebot.openai.requests",
+                        "operation", "embedding", "mode", "blocking", "outcome", outcome));
+            }
+        });
+        return result.getData()
+                .stream()
+                .sorted(Comparator.comparingInt(Embedding::getIndex))
+                .map(Embedding::getEmbedding)
+                .map(OpenAIService::toNormalizedVector)
+                .collect(Collectors.toList());
+    }
+
+    private static float[] toNormalizedVector(List<Double> values) {
+        float[] vector = new float[values.size()];
+        double norm = 0;
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = values.get(i).floatValue();
+            norm += vector[i] * vector[i];
+        }
+        if (norm > 0) {
+            float scale = (float) (1.0 / Math.sqrt(norm));
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] *= scale;
+            }
         }
+        return vector;
     }
-}
\ No newline at end of file
+}
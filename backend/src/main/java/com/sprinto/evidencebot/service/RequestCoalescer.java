@@ -0,0 +1,87 @@
+package com.sprinto.evidencebot.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight execution: concurrent calls with the same operation and
+ * normalized key share one computation and receive the same result (or
+ * exception). Keys include the document-set version, which moves on every
+ * upload and delete, so a request arriving after a change never joins a
+ * computation started before it.
+ *
+ * Only in-flight work is shared; completed results are not retained here.
+ */
+@Service
+public class RequestCoalescer {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong documentSetVersion = new AtomicLong();
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    @EventListener
+    public void onDocumentChanged(DocumentChangedEvent event) {
+        documentSetVersion.incrementAndGet();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String operation, String key, Supplier<T> computation) {
+        String flightKey = operation + '|' + documentSetVersion.get() + '|' + normalize(key);
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(flightKey, flight);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            meterRegistry.counter("evidencebot.coalesced", "operation", operation).increment();
+            try {
+                return (T) existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+
+        executions.incrementAndGet();
+        try {
+            T result = computation.get();
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, flight);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long total = executions.get() + coalesced.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("inFlight", inFlight.size());
+        stats.put("executions", executions.get());
+        stats.put("coalesced", coalesced.get());
+        stats.put("coalescedRatio", total == 0 ? 0.0 : coalesced.get() / (double) total);
+        stats.put("documentSetVersion", documentSetVersion.get());
+        return stats;
+    }
+
+    private static String normalize(String key) {
+        return key == null ? "" : key.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,477 @@
+package com.sprinto.evidencebot.service;
+
+import com.theokanning.openai.service.OpenAiService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.reactivex.Single;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import retrofit2.HttpException;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Resilience layer for blocking OpenAI calls.
+ *
+ * Each attempt gets a timeout of {@code p99-multiplier} times the observed
+ * p99 latency of its operation (clamped to {@code timeout.min-ms} ..
+ * {@code timeout.max-ms}); until {@code latency.min-samples} calls have been
+ * seen the maximum applies. An attempt still pending after the operation's p95
+ * is hedged with one duplicate request and the first answer wins, the loser
+ * being cancelled; hedges are capped at {@code hedge.max-ratio} of calls so
+ * they add little spend. Timeouts, I/O errors, 429 and 5xx are retried with
+ * full-jitter exponential backoff (honouring {@code Retry-After}) within an
+ * overall {@code deadline-ms}.
+ *
+ * A count-based circuit breaker opens when at least {@code breaker.failure-rate}
+ * of the last {@code breaker.window} calls failed after their retries; while open, calls fail fast
+ * with {@link LlmUnavailableException} and after {@code breaker.open-ms} a
+ * single probe call decides whether to close it again.
+ */
+@Component
+public class ResilientLlmClient {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final long minTimeoutMs;
+    private final long maxTimeoutMs;
+    private final double p99Multiplier;
+    private final long deadlineMs;
+    private final int latencyWindow;
+    private final int minSamples;
+    private final int maxAttempts;
+    private final long backoffBaseMs;
+    private final long backoffMaxMs;
+    private final boolean hedgeEnabled;
+    private final double hedgeMaxRatio;
+    private final CircuitBreaker breaker;
+    private final Map<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+    private final AtomicLong shortCircuited = new AtomicLong();
+
+    public ResilientLlmClient(@Value("${llm.resilience.timeout.min-ms:2000}") long minTimeoutMs,
+                              @Value("${llm.resilience.timeout.max-ms:60000}") long maxTimeoutMs,
+                              @Value("${llm.resilience.timeout.p99-multiplier:2.0}") double p99Multiplier,
+                              @Value("${llm.resilience.deadline-ms:60000}") long deadlineMs,
+                              @Value("${llm.resilience.latency.window:200}") int latencyWindow,
+                              @Value("${llm.resilience.latency.min-samples:20}") int minSamples,
+                              @Value("${llm.resilience.retry.max-attempts:3}") int maxAttempts,
+                              @Value("${llm.resilience.retry.backoff-base-ms:250}") long backoffBaseMs,
+                              @Value("${llm.resilience.retry.backoff-max-ms:4000}") long backoffMaxMs,
+                              @Value("${llm.resilience.hedge.enabled:true}") boolean hedgeEnabled,
+                              @Value("${llm.resilience.hedge.max-ratio:0.05}") double hedgeMaxRatio,
+                              @Value("${llm.resilience.breaker.window:20}") int breakerWindow,
+                              @Value("${llm.resilience.breaker.min-calls:10}") int breakerMinCalls,
+                              @Value("${llm.resilience.breaker.failure-rate:0.5}") double breakerFailureRate,
+                              @Value("${llm.resilience.breaker.open-ms:30000}") long breakerOpenMs) {
+        this.minTimeoutMs = minTimeoutMs;
+        this.maxTimeoutMs = maxTimeoutMs;
+        this.p99Multiplier = p99Multiplier;
+        this.deadlineMs = deadlineMs;
+        this.latencyWindow = Math.max(1, latencyWindow);
+        this.minSamples = Math.max(1, minSamples);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffBaseMs = backoffBaseMs;
+        this.backoffMaxMs = backoffMaxMs;
+        this.hedgeEnabled = hedgeEnabled;
+        this.hedgeMaxRatio = hedgeMaxRatio;
+        this.breaker = new CircuitBreaker(Math.max(1, breakerWindow), breakerMinCalls, breakerFailureRate, breakerOpenMs);
+    }
+
+    @PostConstruct
+    void registerGauges() {
+        meterRegistry.gauge("evidencebot.openai.circuit.state", breaker, b -> b.state().ordinal());
+    }
+
+    public long getMaxTimeoutMs() {
+        return maxTimeoutMs;
+    }
+
+    /**
+     * Runs {@code call} with adaptive timeouts, hedging and retries. The
+     * supplier is invoked once per request sent, so it must return a fresh
+     * cold {@link Single}; disposing it must cancel the HTTP call.
+     */
+    public <T> T execute(String operation, Supplier<Single<T>> call) {
+        acquirePermission();
+        calls.incrementAndGet();
+        LatencyWindow window = latencies.computeIfAbsent(operation, op -> new LatencyWindow(latencyWindow));
+        long deadline = System.currentTimeMillis() + deadlineMs;
+        for (int attempt = 1; ; attempt++) {
+            long timeoutMs = Math.min(timeoutFor(window), deadline - System.currentTimeMillis());
+            try {
+                Outcome<T> outcome = race(operation, call, timeoutMs, hedgeDelayFor(window, timeoutMs));
+                window.record(outcome.latencyMs());
+                breaker.onSuccess();
+                return outcome.value();
+            } catch (Throwable error) {
+                boolean retryable = isRetryable(error);
+                long backoffMs = retryable ? backoff(attempt, error) : 0;
+                if (!retryable || attempt >= maxAttempts || breaker.state() == State.OPEN
+                        || System.currentTimeMillis() + backoffMs >= deadline) {
+                    // The breaker judges calls, not attempts: a call that succeeded on retry was served
+                    if (retryable) {
+                        breaker.onFailure();
+                    } else {
+                        breaker.onIgnored();
+                    }
+                    throw propagate(error);
+                }
+                count(operation, "retry", retries);
+                sleep(backoffMs);
+            }
+        }
+    }
+
+    /**
+     * Gate for streamed completions, which this layer does not time or
+     * retry: the stream is refused while the breaker is open, and its outcome
+     * must be reported with {@link #recordStreamOutcome}.
+     */
+    public void acquirePermission() {
+        if (!breaker.tryAcquire()) {
+            shortCircuited.incrementAndGet();
+            meterRegistry.counter("evidencebot.openai.resilience", "event", "short-circuit").increment();
+            throw new LlmUnavailableException("The AI service is temporarily unavailable, please retry shortly",
+                    Math.max(1, breaker.remainingOpenMs() / 1000));
+        }
+    }
+
+    /**
+     * Ends a permitted stream that was rejected or cancelled before OpenAI
+     * answered; it says nothing about OpenAI's health.
+     */
+    public void releasePermission() {
+        breaker.onIgnored();
+    }
+
+    /**
+     * @param error the stream's failure, or {@code null} when it completed
+     */
+    public void recordStreamOutcome(Throwable error) {
+        if (error == null) {
+            breaker.onSuccess();
+        } else if (isRetryable(error)) {
+            breaker.onFailure();
+        } else {
+            breaker.onIgnored();
+        }
+    }
+
+    private record Outcome<T>(T value, long latencyMs, boolean hedge) {}
+
+    private <T> Outcome<T> race(String operation, Supplier<Single<T>> call, long timeoutMs, long hedgeAfterMs) throws Throwable {
+        CompletableFuture<Outcome<T>> winner = new CompletableFuture<>();
+        AtomicInteger running = new AtomicInteger(1);
+        List<Disposable> requests = new CopyOnWriteArrayList<>();
+        long start = System.nanoTime();
+        requests.add(send(call, winner, running, false));
+        try {
+            if (hedgeAfterMs > 0) {
+                try {
+                    return winner.get(hedgeAfterMs, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    if (tryHedge()) {
+                        running.incrementAndGet();
+                        requests.add(send(call, winner, running, true));
+                        count(operation, "hedge", hedges);
+                    }
+                }
+            }
+            long remainingMs = timeoutMs - (System.nanoTime() - start) / 1_000_000;
+            Outcome<T> outcome = winner.get(Math.max(0, remainingMs), TimeUnit.MILLISECONDS);
+            if (outcome.hedge()) {
+                count(operation, "hedge-win", hedgeWins);
+            }
+            return outcome;
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        } catch (TimeoutException e) {
+            count(operation, "timeout", timeouts);
+            throw new TimeoutException("No response from OpenAI within " + timeoutMs + " ms");
+        } finally {
+            // Cancels whichever request is still running
+            requests.forEach(Disposable::dispose);
+        }
+    }
+
+    private <T> Disposable send(Supplier<Single<T>> call, CompletableFuture<Outcome<T>> winner,
+                                AtomicInteger running, boolean hedge) {
+        long sent = System.nanoTime();
+        return call.get()
+                .subscribeOn(Schedulers.io())
+                .subscribe(
+                        value -> winner.complete(new Outcome<>(value, (System.nanoTime() - sent) / 1_000_000, hedge)),
+                        error -> {
+                            // Fail only once every request in the race has failed
+                            if (running.decrementAndGet() == 0) {
+                                winner.completeExceptionally(error);
+                            }
+                        });
+    }
+
+    private boolean tryHedge() {
+        return hedgeEnabled && hedges.get() + 1 <= calls.get() * hedgeMaxRatio;
+    }
+
+    private long timeoutFor(LatencyWindow window) {
+        long p99 = window.percentile(0.99, minSamples);
+        if (p99 < 0) {
+            return maxTimeoutMs;
+        }
+        return Math.max(minTimeoutMs, Math.min(maxTimeoutMs, (long) (p99 * p99Multiplier)));
+    }
+
+    private long hedgeDelayFor(LatencyWindow window, long timeoutMs) {
+        long p95 = window.percentile(0.95, minSamples);
+        return hedgeEnabled && p95 > 0 && p95 < timeoutMs ? p95 : 0;
+    }
+
+    private long backoff(int attempt, Throwable error) {
+        long ceiling = Math.min(backoffMaxMs, backoffBaseMs << Math.min(attempt - 1, 20));
+        long jittered = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        return Math.max(jittered, retryAfterMs(error));
+    }
+
+    private static long retryAfterMs(Throwable error) {
+        if (error instanceof HttpException http && http.response() != null) {
+            String retryAfter = http.response().headers().get("Retry-After");
+            if (retryAfter != null) {
+                try {
+                    return Long.parseLong(retryAfter.trim()) * 1000;
+                } catch (NumberFormatException e) {
+                    // HTTP-date form; fall back to the jittered backoff
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static boolean isRetryable(Throwable error) {
+        while (error.getClass() == RuntimeException.class && error.getCause() != null) {
+            error = error.getCause();
+        }
+        if (error instanceof HttpException http) {
+            return http.code() == 408 || http.code() == 429 || http.code() >= 500;
+        }
+        return error instanceof IOException || error instanceof TimeoutException;
+    }
+
+    private static RuntimeException propagate(Throwable error) {
+        if (error instanceof HttpException http) {
+            // Same OpenAiHttpException, with the parsed API error, as OpenAiService.execute throws
+            try {
+                OpenAiService.execute(Single.error(http));
+            } catch (RuntimeException converted) {
+                return converted;
+            }
+        }
+        if (error instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        if (error instanceof Error fatal) {
+            throw fatal;
+        }
+        return new RuntimeException(error);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LlmCapacityExceededException("Interrupted while waiting to retry an AI request");
+        }
+    }
+
+    private void count(String operation, String event, AtomicLong counter) {
+        counter.incrementAndGet();
+        meterRegistry.counter("evidencebot.openai.resilience", "operation", operation, "event", event).increment();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("calls", calls.get());
+        stats.put("retries", retries.get());
+        stats.put("timeouts", timeouts.get());
+        stats.put("hedges", hedges.get());
+        stats.put("hedgeWins", hedgeWins.get());
+        stats.put("shortCircuited", shortCircuited.get());
+        stats.put("circuit", breaker.getStats());
+        Map<String, Object> operations = new LinkedHashMap<>();
+        latencies.forEach((operation, window) -> {
+            Map<String, Object> latency = new LinkedHashMap<>();
+            latency.put("samples", window.size());
+            latency.put("p50Ms", window.percentile(0.50, 1));
+            latency.put("p95Ms", window.percentile(0.95, 1));
+            latency.put("p99Ms", window.percentile(0.99, 1));
+            latency.put("timeoutMs", timeoutFor(window));
+            latency.put("hedgeAfterMs", hedgeDelayFor(window, timeoutFor(window)));
+            operations.put(operation, latency);
+        });
+        stats.put("operations", operations);
+        return stats;
+    }
+
+    /** Latencies of the most recent successful calls of one operation. */
+    private static final class LatencyWindow {
+        private final long[] samples;
+        private int next;
+        private int size;
+
+        LatencyWindow(int capacity) {
+            this.samples = new long[capacity];
+        }
+
+        synchronized void record(long latencyMs) {
+            samples[next] = latencyMs;
+            next = (next + 1) % samples.length;
+            size = Math.min(size + 1, samples.length);
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        /** Nearest-rank percentile, or -1 with fewer than {@code minSamples} samples. */
+        synchronized long percentile(double quantile, int minSamples) {
+            if (size < minSamples) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            return sorted[Math.max(0, (int) Math.ceil(quantile * size) - 1)];
+        }
+    }
+
+    enum State { CLOSED, HALF_OPEN, OPEN }
+
+    private static final class CircuitBreaker {
+        private final boolean[] failures;
+        private final int minCalls;
+        private final double failureRate;
+        private final long openMs;
+        private int next;
+        private int recorded;
+        private int failed;
+        private State state = State.CLOSED;
+        private long openedAt;
+        private boolean probing;
+        private long opened;
+
+        CircuitBreaker(int window, int minCalls, double failureRate, long openMs) {
+            this.failures = new boolean[window];
+            this.minCalls = Math.min(Math.max(1, minCalls), window);
+            this.failureRate = failureRate;
+            this.openMs = openMs;
+        }
+
+        synchronized boolean tryAcquire() {
+            if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMs) {
+                state = State.HALF_OPEN;
+                probing = false;
+            }
+            if (state == State.HALF_OPEN) {
+                if (probing) {
+                    return false;
+                }
+                probing = true;
+                return true;
+            }
+            return state == State.CLOSED;
+        }
+
+        synchronized void onSuccess() {
+            if (state == State.HALF_OPEN) {
+                reset();
+                state = State.CLOSED;
+            } else if (state == State.CLOSED) {
+                record(false);
+            }
+        }
+
+        synchronized void onFailure() {
+            if (state == State.HALF_OPEN) {
+                open();
+            } else if (state == State.CLOSED) {
+                record(true);
+                if (recorded >= minCalls && failed >= failureRate * recorded) {
+                    open();
+                }
+            }
+        }
+
+        // Client errors say nothing about OpenAI's health, but must end a probe
+        synchronized void onIgnored() {
+            if (state == State.HALF_OPEN) {
+                probing = false;
+            }
+        }
+
+        synchronized State state() {
+            return state;
+        }
+
+        synchronized long remainingOpenMs() {
+            return state == State.OPEN ? Math.max(0, openMs - (System.currentTimeMillis() - openedAt)) : 0;
+        }
+
+        private void record(boolean failure) {
+            if (recorded == failures.length) {
+                failed -= failures[next] ? 1 : 0;
+            } else {
+                recorded++;
+            }
+            failures[next] = failure;
+            failed += failure ? 1 : 0;
+            next = (next + 1) % failures.length;
+        }
+
+        private void open() {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            opened++;
+            reset();
+        }
+
+        private void reset() {
+            Arrays.fill(failures, false);
+            next = 0;
+            recorded = 0;
+            failed = 0;
+        }
+
+        synchronized Map<String, Object> getStats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("state", state.name());
+            stats.put("recentCalls", recorded);
+            stats.put("recentFailures", failed);
+            stats.put("timesOpened", opened);
+            stats.put("retryAfterMs", remainingOpenMs());
+            return stats;
+        }
+    }
+}
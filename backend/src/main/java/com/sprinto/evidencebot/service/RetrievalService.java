@@ -0,0 +1,222 @@
+package com.sprinto.evidencebot.service;
+
+import com.sprinto.evidencebot.model.Document;
+import com.sprinto.evidencebot.search.DocumentChunk;
+import com.sprinto.evidencebot.search.EmbeddingProvider;
+import com.sprinto.evidencebot.search.HnswIndex;
+import com.sprinto.evidencebot.search.SnapshotInput;
+import com.sprinto.evidencebot.search.SnapshotOutput;
+import com.sprinto.evidencebot.search.TextChunker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Splits documents into overlapping chunks at ingest, embeds them and serves
+ * the most relevant chunks for a query from the vector index.
+ *
+ * Vector node ids change when the index purges removed nodes, so lookups take
+ * a read lock and index changes a write lock; embedding happens outside both.
+ */
+@Service
+public class RetrievalService {
+
+    @Autowired
+    private TextChunker textChunker;
+
+    @Autowired
+    private EmbeddingProvider embeddingProvider;
+
+    @Autowired
+    private HnswIndex vectorIndex;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<Integer, DocumentChunk> chunksByNode = new ConcurrentHashMap<>();
+    private final Map<Long, List<Integer>> nodesByDocument = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** A document's chunks and their embeddings, ready to be added. */
+    public record EmbeddedChunks(Long documentId, List<DocumentChunk> chunks, List<float[]> vectors) {}
+
+    public void indexDocument(Document document) {
+        add(embed(document));
+    }
+
+    /**
+     * Chunks and embeds a document without touching the index. Embedding may
+     * be a remote call, so callers do this before taking any locks.
+     */
+    public EmbeddedChunks embed(Document document) {
+        List<DocumentChunk> chunks = textChunker.chunk(document.getId(), document.getFilename(), document.getContent());
+        List<float[]> vectors = chunks.isEmpty() ? List.of() : embeddingProvider.embedAll(
+                chunks.stream().map(DocumentChunk::text).collect(Collectors.toList()));
+        return new EmbeddedChunks(document.getId(), chunks, vectors);
+    }
+
+    public void add(EmbeddedChunks embedded) {
+        List<DocumentChunk> chunks = embedded.chunks();
+        lock.writeLock().lock();
+        try {
+            removeNodes(embedded.documentId());
+            if (!chunks.isEmpty()) {
+                List<Integer> nodes = new ArrayList<>(chunks.size());
+                for (int i = 0; i < chunks.size(); i++) {
+                    int node = vectorIndex.add(embedded.vectors().get(i));
+                    chunksByNode.put(node, chunks.get(i));
+                    nodes.add(node);
+                }
+                nodesByDocument.put(embedded.documentId(), nodes);
+            }
+            purgeRemovedNodes();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeDocument(Long documentId) {
+        lock.writeLock().lock();
+        try {
+            removeNodes(documentId);
+            purgeRemovedNodes();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeNodes(Long documentId) {
+        List<Integer> nodes = nodesByDocument.remove(documentId);
+        if (nodes == null) {
+            return;
+        }
+        for (Integer node : nodes) {
+            vectorIndex.remove(node);
+            chunksByNode.remove(node);
+        }
+    }
+
+    private void purgeRemovedNodes() {
+        int[] ids = vectorIndex.purgeIfNeeded();
+        if (ids == null) {
+            return;
+        }
+        Map<Integer, DocumentChunk> chunks = Map.copyOf(chunksByNode);
+        chunksByNode.clear();
+        for (Map.Entry<Integer, DocumentChunk> entry : chunks.entrySet()) {
+            chunksByNode.put(ids[entry.getKey()], entry.getValue());
+        }
+        nodesByDocument.replaceAll((documentId, nodes) -> nodes.stream().map(node -> ids[node]).collect(Collectors.toList()));
+    }
+
+    /**
+     * Returns the {@code k} chunks across the whole corpus closest to the query.
+     */
+    public List<DocumentChunk> retrieve(String query, int k) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        float[] queryVector = embeddingProvider.embed(query);
+        lock.readLock().lock();
+        try {
+            List<HnswIndex.Neighbor> neighbors = vectorIndex.search(queryVector, k);
+            sample.stop(meterRegistry.timer("evidencebot.search", "index", "vector"));
+            return neighbors.stream()
+                    .map(neighbor -> chunksByNode.get(neighbor.id()))
+                    .filter(chunk -> chunk != null)
+                    .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the {@code k} chunks closest to the query, restricted to the
+     * given documents. The candidate set is small, so it is scored exactly.
+     */
+    public List<DocumentChunk> retrieve(String query, int k, Collection<Long> documentIds) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        float[] queryVector = embeddingProvider.embed(query);
+        lock.readLock().lock();
+        try {
+            List<HnswIndex.Neighbor> scored = new ArrayList<>();
+            for (Long documentId : documentIds) {
+                for (Integer node : nodesByDocument.getOrDefault(documentId, List.of())) {
+                    scored.add(new HnswIndex.Neighbor(node, vectorIndex.similarity(queryVector, node)));
+                }
+            }
+            List<HnswIndex.Neighbor> top = scored.stream()
+                    .sorted(Comparator.comparingDouble(HnswIndex.Neighbor::similarity).reversed())
+                    .limit(k)
+                    .collect(Collectors.toList());
+            sample.stop(meterRegistry.timer("evidencebot.search", "index", "vector-exact"));
+            return top.stream()
+                    .map(neighbor -> chunksByNode.get(neighbor.id()))
+                    .filter(chunk -> chunk != null)
+                    .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the chunks and the vector node each is stored under. The vector
+     * index is written separately; callers keep both consistent by excluding
+     * indexing while the snapshot is taken.
+     */
+    public void writeChunks(SnapshotOutput out) throws IOException {
+        lock.readLock().lock();
+        try {
+            out.writeInt(nodesByDocument.size());
+            for (Map.Entry<Long, List<Integer>> entry : nodesByDocument.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeInt(entry.getValue().size());
+                for (Integer node : entry.getValue()) {
+                    DocumentChunk chunk = chunksByNode.get(node);
+                    out.writeInt(node);
+                    out.writeString(chunk.filename());
+                    out.writeInt(chunk.chunkIndex());
+                    out.writeString(chunk.text());
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void readChunks(SnapshotInput in) {
+        clearChunks();
+        int documents = in.readInt();
+        for (int d = 0; d < documents; d++) {
+            Long documentId = in.readLong();
+            int count = in.readInt();
+            List<Integer> nodes = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int node = in.readInt();
+                chunksByNode.put(node, new DocumentChunk(documentId, in.readString(), in.readInt(), in.readString()));
+                nodes.add(node);
+            }
+            nodesByDocument.put(documentId, nodes);
+        }
+    }
+
+    public void clearChunks() {
+        chunksByNode.clear();
+        nodesByDocument.clear();
+    }
+
+    public static List<String> toPassages(List<DocumentChunk> chunks) {
+        return chunks.stream()
+                .map(chunk -> "[" + chunk.filename() + ", part " + (chunk.chunkIndex() + 1) + "]\n" + chunk.text())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,320 @@
+package com.sprinto.evidencebot.service;
+
+import com.sprinto.evidencebot.search.EmbeddingProvider;
+import com.sprinto.evidencebot.search.HnswIndex;
+import com.sprinto.evidencebot.search.InvertedIndex;
+import com.sprinto.evidencebot.search.NearDuplicateIndex;
+import com.sprinto.evidencebot.search.SnapshotInput;
+import com.sprinto.evidencebot.search.SnapshotOutput;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Persists the search structures derived from document content (BM25
+ * postings and document lengths, MinHash fingerprints, retrieval chunks and
+ * the vector graph) so that a restart maps them back in instead of
+ * re-tokenizing and re-embedding every document.
+ *
+ * The snapshot is one file of CRC-checked sections, written to a temporary
+ * file and moved into place. Its header carries a format version and a
+ * signature of the settings the structures depend on; a snapshot with a
+ * different version or signature, or a damaged one, is ignored and the
+ * indexes are rebuilt from the database as before. A snapshot is written
+ * every {@code interval-seconds} when documents have changed, and on shutdown.
+ */
+@Service
+public class SearchSnapshotService {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchSnapshotService.class);
+
+    /** Bump when the layout of any section, or the tokenizer, changes. */
+    static final int FORMAT_VERSION = 1;
+
+    private static final long MAGIC = 0x45424F54534E4150L; // "EBOTSNAP"
+
+    @Autowired
+    private InvertedIndex invertedIndex;
+
+    @Autowired
+    private NearDuplicateIndex nearDuplicateIndex;
+
+    @Autowired
+    private HnswIndex vectorIndex;
+
+    @Autowired
+    private RetrievalService retrievalService;
+
+    @Autowired
+    private EmbeddingProvider embeddingProvider;
+
+    @Value("${retrieval.chunk.size:800}")
+    private int chunkSize;
+
+    @Value("${retrieval.chunk.overlap:150}")
+    private int chunkOverlap;
+
+    @Value("${retrieval.hnsw.m:16}")
+    private int hnswM;
+
+    private final boolean enabled;
+    private final Path file;
+    private final long intervalSeconds;
+    // Index mutations share the read side; taking a snapshot excludes them
+    private final ReentrantReadWriteLock gate = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService writer =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("search-snapshot-"));
+
+    private volatile boolean dirty;
+    private long generation;
+    private long lastWrittenAt;
+    private long lastWriteMs;
+    private long lastSizeBytes;
+    private long restoredDocuments;
+    private long restoreMs = -1;
+    private String lastError;
+
+    public SearchSnapshotService(@Value("${search.snapshot.enabled:false}") boolean enabled,
+                                 @Value("${search.snapshot.dir:data/snapshots}") String directory,
+                                 @Value("${search.snapshot.interval-seconds:300}") long intervalSeconds) {
+        this.enabled = enabled;
+        this.file = Path.of(directory).resolve("search-index.v" + FORMAT_VERSION + ".snap");
+        this.intervalSeconds = intervalSeconds;
+    }
+
+    @PostConstruct
+    void schedule() {
+        if (enabled) {
+            writer.scheduleWithFixedDelay(this::writeIfDirty, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Runs an index mutation; mutations may run concurrently with each other
+     * but not while a snapshot is being written. A waiting snapshot holds up
+     * every later mutation, so the mutation should only apply results that
+     * were computed (tokenized, embedded) before the call.
+     */
+    public void mutate(Runnable mutation) {
+        gate.readLock().lock();
+        try {
+            mutation.run();
+        } finally {
+            gate.readLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onDocumentChanged(DocumentChangedEvent event) {
+        dirty = true;
+    }
+
+    public void markDirty() {
+        dirty = true;
+    }
+
+    /**
+     * Loads the snapshot into the indexes. Returns the ids of the documents it
+     * covers, or {@code null} when there is no usable snapshot, in which case
+     * the indexes are left empty.
+     */
+    public long[] restore() {
+        if (!enabled || !Files.isRegularFile(file)) {
+            return null;
+        }
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), 4096));
+            if (header.getLong() != MAGIC || header.getInt() != FORMAT_VERSION) {
+                log.warn("Ignoring search snapshot {}: unknown format", file);
+                return null;
+            }
+            String signature = new SnapshotInput(header).readString();
+            if (!signature.equals(signature())) {
+                log.warn("Ignoring search snapshot {}: written with different settings ({})", file, signature);
+                return null;
+            }
+            long snapshotGeneration = header.getLong();
+            long position = header.position();
+
+            Map<String, MappedByteBuffer> sections = new LinkedHashMap<>();
+            while (position < channel.size()) {
+                ByteBuffer sectionHeader = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(channel.size() - position, 256));
+                String name = new SnapshotInput(sectionHeader).readString();
+                long length = sectionHeader.getLong();
+                long checksum = sectionHeader.getLong();
+                long offset = position + sectionHeader.position();
+                MappedByteBuffer body = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+                CRC32 crc = new CRC32();
+                crc.update(body.duplicate());
+                if (crc.getValue() != checksum) {
+                    log.warn("Ignoring search snapshot {}: section {} is damaged", file, name);
+                    return null;
+                }
+                sections.put(name, body);
+                position = offset + length;
+            }
+            if (!sections.keySet().containsAll(java.util.List.of("postings", "fingerprints", "chunks", "vectors"))) {
+                log.warn("Ignoring search snapshot {}: incomplete", file);
+                return null;
+            }
+
+            long[] documentIds;
+            try {
+                documentIds = invertedIndex.readFrom(new SnapshotInput(sections.get("postings")));
+                nearDuplicateIndex.readFrom(new SnapshotInput(sections.get("fingerprints")));
+                retrievalService.readChunks(new SnapshotInput(sections.get("chunks")));
+                vectorIndex.readFrom(new SnapshotInput(sections.get("vectors")));
+            } catch (RuntimeException e) {
+                // Leave nothing half-loaded behind for the full rebuild
+                invertedIndex.clear();
+                nearDuplicateIndex.clear();
+                retrievalService.clearChunks();
+                vectorIndex.clear();
+                throw e;
+            }
+            synchronized (this) {
+                generation = snapshotGeneration;
+                restoredDocuments = documentIds.length;
+                restoreMs = (System.nanoTime() - start) / 1_000_000;
+            }
+            return documentIds;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not restore search snapshot {}", file, e);
+            return null;
+        }
+    }
+
+    private void writeIfDirty() {
+        if (dirty) {
+            try {
+                write();
+            } catch (IOException | RuntimeException e) {
+                log.error("Could not write search snapshot {}", file, e);
+                synchronized (this) {
+                    lastError = e.getMessage();
+                }
+            }
+        }
+    }
+
+    public synchronized void write() throws IOException {
+        long start = System.nanoTime();
+        Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        gate.writeLock().lock();
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            dirty = false;
+            OutputStream stream = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+            SnapshotOutput header = new SnapshotOutput(stream);
+            header.writeLong(MAGIC);
+            header.writeInt(FORMAT_VERSION);
+            header.writeString(signature());
+            header.writeLong(generation + 1);
+            header.flush();
+            writeSection(channel, stream, "postings", invertedIndex::writeTo);
+            writeSection(channel, stream, "fingerprints", nearDuplicateIndex::writeTo);
+            writeSection(channel, stream, "chunks", retrievalService::writeChunks);
+            writeSection(channel, stream, "vectors", vectorIndex::writeTo);
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            dirty = true;
+            throw e;
+        } finally {
+            gate.writeLock().unlock();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        generation++;
+        lastWrittenAt = System.currentTimeMillis();
+        lastWriteMs = (System.nanoTime() - start) / 1_000_000;
+        lastSizeBytes = Files.size(file);
+        lastError = null;
+    }
+
+    private interface SectionWriter {
+        void write(SnapshotOutput out) throws IOException;
+    }
+
+    // Section layout: name, body length, CRC32 of the body, body
+    private static void writeSection(FileChannel channel, OutputStream stream, String name, SectionWriter body) throws IOException {
+        SnapshotOutput out = new SnapshotOutput(stream);
+        out.writeString(name);
+        out.flush();
+        long lengthPosition = channel.position();
+        out.writeLong(0);
+        out.writeLong(0);
+        out.flush();
+        long bodyStart = channel.position();
+        CRC32 crc = new CRC32();
+        SnapshotOutput checked = new SnapshotOutput(new CheckedOutputStream(stream, crc));
+        body.write(checked);
+        checked.flush();
+        long bodyEnd = channel.position();
+        channel.write(ByteBuffer.allocate(2 * Long.BYTES).putLong(bodyEnd - bodyStart).putLong(crc.getValue()).flip(),
+                lengthPosition);
+        channel.position(bodyEnd);
+    }
+
+    // Settings that change what the snapshot would contain for the same documents
+    private String signature() {
+        return "chunk=" + chunkSize + "/" + chunkOverlap +
+                ",embedding=" + embeddingProvider.getClass().getSimpleName() + "/" + embeddingProvider.dimensions() +
+                ",hnsw.m=" + hnswM;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("file", file.toAbsolutePath().toString());
+        stats.put("formatVersion", FORMAT_VERSION);
+        stats.put("generation", generation);
+        stats.put("dirty", dirty);
+        stats.put("restoredDocuments", restoredDocuments);
+        stats.put("restoreMs", restoreMs);
+        stats.put("lastWrittenAt", lastWrittenAt == 0 ? null : java.time.Instant.ofEpochMilli(lastWrittenAt).toString());
+        stats.put("lastWriteMs", lastWriteMs);
+        stats.put("sizeBytes", lastSizeBytes);
+        stats.put("lastError", lastError);
+        return stats;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        writer.shutdownNow();
+        if (enabled) {
+            writeIfDirty();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.sprinto.evidencebot.prompt;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PromptPackerTest {
+
+    private final TokenCounter tokenCounter = new TokenCounter("gpt-3.5-turbo");
+    private PromptPacker packer;
+
+    @BeforeEach
+    void setUp() {
+        packer = new PromptPacker(16385, 64);
+        ReflectionTestUtils.setField(packer, "tokenCounter", tokenCounter);
+    }
+
+    private static String passage(String word, int words) {
+        return (word + " ").repeat(words).trim();
+    }
+
+    @Test
+    void passagesThatFitAreIncludedWholeInOrder() {
+        PackedPassages packed = packer.pack(List.of("Access is reviewed quarterly.", "Backups run nightly."), 1000);
+
+        assertEquals(2, packed.included());
+        assertEquals(2, packed.offered());
+        assertFalse(packed.truncated());
+        assertEquals("Document 1:\nAccess is reviewed quarterly.\n\nDocument 2:\nBackups run nightly.\n\n", packed.text());
+        // Parts are counted separately, so the total may overstate the block but never understate it
+        assertTrue(packed.tokens() >= tokenCounter.count(packed.text()));
+    }
+
+    @Test
+    void lastPassageIsCutToTheRemainingBudget() {
+        List<String> passages = List.of(passage("encryption", 100), passage("backup", 500), passage("access", 100));
+
+        PackedPassages packed = packer.pack(passages, 300);
+
+        assertEquals(2, packed.included());
+        assertTrue(packed.truncated());
+        assertTrue(packed.text().contains("backup backup"));
+        assertFalse(packed.text().contains("access"));
+        assertTrue(packed.tokens() <= 300, "packed " + packed.tokens());
+        assertTrue(tokenCounter.count(packed.text()) <= 300, "actual " + tokenCounter.count(packed.text()));
+    }
+
+    @Test
+    void remainderTooSmallForAUsefulPartialIsDropped() {
+        List<String> passages = List.of(passage("encryption", 200), passage("backup", 200));
+
+        PackedPassages packed = packer.pack(passages, 250);
+
+        assertEquals(1, packed.included());
+        assertTrue(packed.truncated());
+        assertFalse(packed.text().contains("backup"));
+    }
+
+    @Test
+    void passageBudgetReservesCompletionAndFixedPrompt() {
+        assertEquals(6000, packer.passageBudget(6000, 500, 1000));
+        assertEquals(16385 - 4000 - 2000, packer.passageBudget(20000, 2000, 4000));
+        assertEquals(0, packer.passageBudget(6000, 16000, 1000));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void recordsPerOperationStats() {
+        PackedPassages truncated = packer.pack(List.of(passage("policy", 500)), 100);
+        packer.record("chat", 400, truncated);
+        packer.record("chat", 200, packer.pack(List.of("short"), 100));
+        packer.recordCompletion("chat", 50);
+
+        Map<String, Object> chat = (Map<String, Object>) ((Map<String, Object>) packer.getStats().get("operations")).get("chat");
+        assertEquals(2L, chat.get("requests"));
+        assertEquals(300L, chat.get("averagePromptTokens"));
+        assertEquals(400L, chat.get("maxPromptTokens"));
+        assertEquals(50L, chat.get("completionTokens"));
+        assertEquals(1L, chat.get("truncatedRequests"));
+    }
+}
@@ -0,0 +1,98 @@
+package com.sprinto.evidencebot.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HnswIndexTest {
+
+    private static float[][] randomVectors(int count, int dimensions, long seed) {
+        Random random = new Random(seed);
+        float[][] vectors = new float[count][dimensions];
+        for (float[] vector : vectors) {
+            for (int i = 0; i < dimensions; i++) {
+                vector[i] = (float) random.nextGaussian();
+            }
+            VectorMath.normalize(vector);
+        }
+        return vectors;
+    }
+
+    @Test
+    void searchFindsInsertedVectorFirst() {
+        HnswIndex index = new HnswIndex(16, 100, 64);
+        float[][] vectors = randomVectors(500, 32, 1);
+        for (float[] vector : vectors) {
+            index.add(vector);
+        }
+
+        for (int id = 0; id < vectors.length; id += 25) {
+            List<HnswIndex.Neighbor> neighbors = index.search(vectors[id], 3);
+            assertEquals(3, neighbors.size());
+            assertEquals(id, neighbors.get(0).id());
+            assertEquals(1.0f, neighbors.get(0).similarity(), 1e-4);
+            assertTrue(neighbors.get(0).similarity() >= neighbors.get(1).similarity());
+        }
+        assertEquals(500, index.size());
+    }
+
+    @Test
+    void removedNodesAreNotReturned() {
+        HnswIndex index = new HnswIndex(16, 100, 64);
+        float[][] vectors = randomVectors(100, 16, 2);
+        for (float[] vector : vectors) {
+            index.add(vector);
+        }
+
+        index.remove(7);
+        index.remove(7);
+
+        assertEquals(99, index.size());
+        for (HnswIndex.Neighbor neighbor : index.search(vectors[7], 10)) {
+            assertNotEquals(7, neighbor.id());
+        }
+    }
+
+    @Test
+    void emptyIndexReturnsNothing() {
+        HnswIndex index = new HnswIndex(16, 100, 64);
+        assertTrue(index.search(new float[]{1f, 0f}, 5).isEmpty());
+    }
+
+    @Test
+    void purgeRebuildsFromLiveNodesOnceTombstonesDominate() {
+        HnswIndex index = new HnswIndex(16, 100, 64);
+        float[][] vectors = randomVectors(1000, 32, 3);
+        for (float[] vector : vectors) {
+            index.add(vector);
+        }
+        for (int id = 0; id < 400; id++) {
+            index.remove(id);
+        }
+        assertNull(index.purgeIfNeeded(), "fewer tombstones than live nodes");
+
+        for (int id = 400; id < 1000; id++) {
+            if (id % 5 != 0) {
+                index.remove(id);
+            }
+        }
+        int[] ids = index.purgeIfNeeded();
+
+        assertNotNull(ids);
+        assertEquals(1000, ids.length);
+        assertEquals(120, index.size());
+        assertEquals(-1, ids[0]);
+        assertEquals(-1, ids[401]);
+        for (int id = 400; id < 1000; id += 5) {
+            assertEquals(ids[id], index.search(vectors[id], 1).get(0).id());
+        }
+        assertNull(index.purgeIfNeeded());
+    }
+}
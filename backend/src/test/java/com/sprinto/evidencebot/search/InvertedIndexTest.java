@@ -0,0 +1,125 @@
+package com.sprinto.evidencebot.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InvertedIndexTest {
+
+    private static List<Long> ids(List<SearchHit> hits) {
+        return hits.stream().map(SearchHit::documentId).toList();
+    }
+
+    @Test
+    void ranksByTermFrequencyAndRarity() {
+        InvertedIndex index = new InvertedIndex(1.2, 0.75);
+        index.add(1L, "encryption policy for data at rest");
+        index.add(2L, "encryption encryption encryption key management policy");
+        index.add(3L, "access review policy");
+
+        assertEquals(List.of(2L, 1L), ids(index.search("encryption", 10)));
+        // "review" is rarer than "policy", so the document with both ranks first
+        assertEquals(3L, index.search("policy review", 10).get(0).documentId());
+        assertEquals(3, index.search("policy", 10).size());
+    }
+
+    @Test
+    void hugeLimitIsBoundedByTheMatches() {
+        InvertedIndex index = new InvertedIndex(1.2, 0.75);
+        index.add(1L, "encryption policy");
+        index.add(2L, "access review");
+
+        assertEquals(List.of(1L), ids(index.search("encryption", Integer.MAX_VALUE - 1)));
+    }
+
+    @Test
+    void shorterDocumentsRankHigherForTheSameFrequency() {
+        InvertedIndex index = new InvertedIndex(1.2, 0.75);
+        index.add(1L, "backup schedule with many other unrelated words about retention and storage tiers");
+        index.add(2L, "backup schedule");
+
+        assertEquals(List.of(2L, 1L), ids(index.search("backup", 10)));
+    }
+
+    @Test
+    void limitKeepsTheBestHits() {
+        InvertedIndex index = new InvertedIndex(1.2, 0.75);
+        for (long id = 1; id <= 20; id++) {
+            index.add(id, "incident " + "response ".repeat((int) id));
+        }
+
+        List<SearchHit> hits = index.search("response", 3);
+
+        assertEquals(3, hits.size());
+        assertTrue(hits.get(0).score() >= hits.get(1).score() && hits.get(1).score() >= hits.get(2).score());
+        assertEquals(20L, hits.get(0).documentId());
+    }
+
+    @Test
+    void removedAndReplacedDocumentsStopMatching() {
+        InvertedIndex index = new InvertedIndex(1.2, 0.75);
+        index.add(1L, "vendor risk assessment");
+        index.add(2L, "vendor onboarding");
+        index.remove(1L);
+        index.add(2L, "change management");
+
+        assertTrue(index.search("vendor", 10).isEmpty());
+        assertEquals(List.of(2L), ids(index.search("change", 10)));
+        assertEquals(1, index.size());
+        index.remove(99L);
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void rankingSurvivesCompaction() {
+        InvertedIndex index = new InvertedIndex(1.2, 0.75);
+        for (long id = 0; id < 1000; id++) {
+            index.add(id, "control " + id + (id % 7 == 0 ? " encryption" : ""));
+        }
+        for (long id = 0; id < 1000; id++) {
+            if (id % 10 != 0) {
+                index.remove(id);
+            }
+        }
+
+        assertEquals(100, index.size());
+        List<SearchHit> hits = index.search("encryption", 100);
+        assertEquals(List.of(0L, 70L, 140L, 210L, 280L, 350L, 420L, 490L, 560L, 630L, 700L, 770L, 840L, 910L, 980L),
+                ids(hits).stream().sorted().toList());
+
+        index.remove(70L);
+        index.add(5000L, "encryption");
+        List<Long> afterChanges = ids(index.search("encryption", 100));
+        assertTrue(afterChanges.contains(5000L));
+        assertFalse(afterChanges.contains(70L));
+        assertEquals(List.of(500L), ids(index.search("500", 10)));
+    }
+
+    @Test
+    void snapshotRoundTripPreservesRanking() throws IOException {
+        InvertedIndex index = new InvertedIndex(1.2, 0.75);
+        index.add(1L, "encryption policy");
+        index.add(2L, "encryption encryption standard");
+        index.add(3L, "removed document");
+        index.remove(3L);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SnapshotOutput out = new SnapshotOutput(bytes);
+        index.writeTo(out);
+        out.flush();
+
+        InvertedIndex restored = new InvertedIndex(1.2, 0.75);
+        long[] documentIds = restored.readFrom(new SnapshotInput(ByteBuffer.wrap(bytes.toByteArray())));
+
+        assertEquals(2, documentIds.length);
+        assertEquals(ids(index.search("encryption", 10)), ids(restored.search("encryption", 10)));
+        assertTrue(restored.search("removed", 10).isEmpty());
+    }
+}
@@ -0,0 +1,85 @@
+package com.sprinto.evidencebot.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NearDuplicateIndexTest {
+
+    private static String policy(String replacement) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            text.append(i == 100 ? replacement : "clause" + i).append(' ');
+        }
+        return text.toString();
+    }
+
+    private static final String ORIGINAL = policy("clause100");
+    private static final String REVISION = policy("amended");
+    private static final String UNRELATED = "Incident response runbook: page the on-call engineer, open a ticket, "
+            + "notify customers within seventy two hours and record a post-incident review.";
+
+    @Test
+    void signatureIsDeterministicAndSurvivesSerialization() {
+        int[] signature = MinHash.signature(ORIGINAL);
+
+        assertArrayEquals(signature, MinHash.signature(ORIGINAL));
+        assertEquals(1.0, MinHash.similarity(signature, MinHash.signature(ORIGINAL)));
+        assertArrayEquals(signature, MinHash.fromBytes(MinHash.toBytes(signature)));
+        assertNull(MinHash.fromBytes(new byte[12]));
+        assertNull(MinHash.signature("a . ,"));
+    }
+
+    @Test
+    void similarityTracksShingleOverlap() {
+        double revision = MinHash.similarity(MinHash.signature(ORIGINAL), MinHash.signature(REVISION));
+        double unrelated = MinHash.similarity(MinHash.signature(ORIGINAL), MinHash.signature(UNRELATED));
+
+        // One word in 200 changes 3 of 198 shingles: Jaccard about 0.97
+        assertTrue(revision >= 0.85, "revision similarity " + revision);
+        assertTrue(unrelated <= 0.1, "unrelated similarity " + unrelated);
+    }
+
+    @Test
+    void reportsDocumentsAtOrAboveThreshold() {
+        NearDuplicateIndex index = new NearDuplicateIndex(0.8);
+        index.add(1L, MinHash.signature(ORIGINAL));
+        index.add(2L, MinHash.signature(UNRELATED));
+
+        List<SearchHit> hits = index.findSimilar(MinHash.signature(REVISION), null);
+
+        assertEquals(1, hits.size());
+        assertEquals(1L, hits.get(0).documentId());
+        assertTrue(hits.get(0).score() >= 0.8);
+    }
+
+    @Test
+    void thresholdAboveTheSimilarityExcludesTheDocument() {
+        double similarity = MinHash.similarity(MinHash.signature(ORIGINAL), MinHash.signature(REVISION));
+        NearDuplicateIndex strict = new NearDuplicateIndex(Math.min(1.0, similarity + 1.0 / MinHash.NUM_HASHES));
+        strict.add(1L, MinHash.signature(ORIGINAL));
+
+        assertTrue(strict.findSimilar(MinHash.signature(REVISION), null).isEmpty());
+        assertEquals(1, strict.findSimilar(MinHash.signature(ORIGINAL), null).size());
+    }
+
+    @Test
+    void excludesTheQueriedDocumentAndRemovedOnes() {
+        NearDuplicateIndex index = new NearDuplicateIndex(0.8);
+        index.add(1L, MinHash.signature(ORIGINAL));
+        index.add(2L, MinHash.signature(REVISION));
+        index.add(3L, null);
+
+        assertEquals(List.of(2L), index.findSimilar(index.getSignature(1L), 1L).stream().map(SearchHit::documentId).toList());
+        assertNull(index.getSignature(3L));
+
+        index.remove(2L);
+        assertTrue(index.findSimilar(index.getSignature(1L), 1L).isEmpty());
+        assertTrue(index.findSimilar(null, null).isEmpty());
+    }
+}
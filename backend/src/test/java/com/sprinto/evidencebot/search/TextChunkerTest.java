@@ -0,0 +1,66 @@
+package com.sprinto.evidencebot.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TextChunkerTest {
+
+    @Test
+    void shortTextIsOneChunk() {
+        List<DocumentChunk> chunks = new TextChunker(100, 20).chunk(1L, "policy.txt", "  Access is reviewed quarterly.  ");
+
+        assertEquals(1, chunks.size());
+        assertEquals(new DocumentChunk(1L, "policy.txt", 0, "Access is reviewed quarterly."), chunks.get(0));
+    }
+
+    @Test
+    void blankTextHasNoChunks() {
+        TextChunker chunker = new TextChunker(100, 20);
+        assertTrue(chunker.chunk(1L, "a.txt", null).isEmpty());
+        assertTrue(chunker.chunk(1L, "a.txt", "   \n ").isEmpty());
+    }
+
+    @Test
+    void chunksOverlapAndDoNotSplitWords() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            text.append("word").append(i).append(' ');
+        }
+        List<DocumentChunk> chunks = new TextChunker(100, 30).chunk(2L, "long.txt", text.toString());
+
+        assertTrue(chunks.size() > 1);
+        for (int i = 0; i < chunks.size(); i++) {
+            DocumentChunk chunk = chunks.get(i);
+            assertEquals(i, chunk.chunkIndex());
+            assertTrue(chunk.text().length() <= 100);
+            for (String word : chunk.text().split(" ")) {
+                assertTrue(word.matches("word\\d+"), "split word: " + word);
+            }
+        }
+        for (int i = 1; i < chunks.size(); i++) {
+            String[] previous = chunks.get(i - 1).text().split(" ");
+            String lastWord = previous[previous.length - 1];
+            assertTrue((" " + chunks.get(i).text() + " ").contains(" " + lastWord + " "),
+                    "chunk " + i + " does not overlap the previous one");
+        }
+        assertTrue(chunks.get(chunks.size() - 1).text().endsWith("word199"));
+    }
+
+    @Test
+    void textWithoutSpacesIsCutAtChunkSize() {
+        List<DocumentChunk> chunks = new TextChunker(10, 2).chunk(3L, "blob.txt", "x".repeat(25));
+
+        assertEquals(List.of(10, 10, 9), chunks.stream().map(c -> c.text().length()).toList());
+    }
+
+    @Test
+    void overlapMustBeSmallerThanChunkSize() {
+        assertThrows(IllegalArgumentException.class, () -> new TextChunker(10, 10));
+        assertThrows(IllegalArgumentException.class, () -> new TextChunker(0, 0));
+    }
+}
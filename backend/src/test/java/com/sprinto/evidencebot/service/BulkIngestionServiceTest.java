@@ -0,0 +1,207 @@
+package com.sprinto.evidencebot.service;
+
+import com.sprinto.evidencebot.model.BulkIngestionResult;
+import com.sprinto.evidencebot.model.BulkIngestionResult.FileResult;
+import com.sprinto.evidencebot.model.BulkIngestionResult.Status;
+import com.sprinto.evidencebot.model.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BulkIngestionServiceTest {
+
+    private static final int MB = 1024 * 1024;
+
+    private final DocumentService documentService = Mockito.mock(DocumentService.class);
+    private final List<BulkIngestionService> services = new ArrayList<>();
+    private final AtomicInteger created = new AtomicInteger();
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        doCallRealMethod().when(documentService).spool(any());
+        doCallRealMethod().when(documentService).contentHash(any());
+        when(documentService.findByContentHash(anyString())).thenReturn(Optional.empty());
+        when(documentService.extractText(any(), any())).thenAnswer(invocation -> Files.readString(invocation.getArgument(0)));
+        when(documentService.createDocument(anyString(), anyString(), anyString(), anyLong(), anyString())).thenAnswer(invocation -> {
+            created.incrementAndGet();
+            Document document = new Document(invocation.getArgument(0), invocation.getArgument(1),
+                    invocation.getArgument(2), invocation.getArgument(3));
+            document.setContentHash(invocation.getArgument(4));
+            return document;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        services.forEach(BulkIngestionService::shutdown);
+    }
+
+    private BulkIngestionService service(int threads, int batchSize, int maxEntries, long maxEntrySizeMb, long maxExpandedSizeMb) {
+        BulkIngestionService service = new BulkIngestionService(threads, batchSize, maxEntries, maxEntrySizeMb, maxExpandedSizeMb);
+        ReflectionTestUtils.setField(service, "documentService", documentService);
+        services.add(service);
+        return service;
+    }
+
+    private List<Document> assignIds(List<Document> documents) {
+        documents.forEach(document -> document.setId(nextId.getAndIncrement()));
+        return documents;
+    }
+
+    private static MultipartFile text(String name, String content) {
+        return new MockMultipartFile("files", name, "text/plain", content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static MultipartFile zip(Map<String, byte[]> entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                out.putNextEntry(new ZipEntry(entry.getKey()));
+                out.write(entry.getValue());
+                out.closeEntry();
+            }
+        }
+        return new MockMultipartFile("files", "archive.zip", "application/zip", bytes.toByteArray());
+    }
+
+    private static Map<String, Status> statuses(BulkIngestionResult result) {
+        Map<String, Status> statuses = new LinkedHashMap<>();
+        for (FileResult file : result.files()) {
+            statuses.put(file.filename(), file.status());
+        }
+        return statuses;
+    }
+
+    @Test
+    void extractionStaysWithinTheWindowAheadOfInserts() throws IOException {
+        // 2 threads x batches of 3: at most 6 extracted documents wait beyond the batch being filled
+        BulkIngestionService service = service(2, 3, 100, 1, 10);
+        AtomicInteger saved = new AtomicInteger();
+        List<Integer> aheadAtFlush = new ArrayList<>();
+        when(documentService.saveDocuments(anyList())).thenAnswer(invocation -> {
+            List<Document> documents = invocation.getArgument(0);
+            aheadAtFlush.add(created.get() - saved.get() - documents.size());
+            saved.addAndGet(documents.size());
+            return assignIds(documents);
+        });
+        List<MultipartFile> files = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            files.add(text("file-" + i + ".txt", "document number " + i));
+        }
+
+        BulkIngestionResult result = service.ingest(files);
+
+        assertEquals(30, result.succeeded());
+        assertEquals(10, aheadAtFlush.size());
+        aheadAtFlush.forEach(ahead -> assertTrue(ahead <= 6, "extracted ahead of inserts: " + ahead));
+        verify(documentService, times(30)).indexDocument(any());
+    }
+
+    @Test
+    void zipEntriesOverTheSizeLimitFailAndTheRestAreStored() throws IOException {
+        BulkIngestionService service = service(1, 10, 100, 1, 10);
+        when(documentService.saveDocuments(anyList())).thenAnswer(invocation -> assignIds(invocation.getArgument(0)));
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("policies/access.txt", "Access reviews run quarterly.".getBytes(StandardCharsets.UTF_8));
+        entries.put("policies/huge.txt", new byte[MB + 1]);
+        entries.put("__MACOSX/._access.txt", new byte[10]);
+
+        BulkIngestionResult result = service.ingest(List.of(zip(entries)));
+
+        assertEquals(Map.of("access.txt", Status.STORED, "huge.txt", Status.FAILED), statuses(result));
+        assertEquals(2, result.total());
+    }
+
+    @Test
+    void zipExpandingPastTheUploadLimitIsRejected() throws IOException {
+        BulkIngestionService service = service(1, 10, 100, 1, 1);
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("a.txt", new byte[600 * 1024]);
+        entries.put("b.txt", new byte[600 * 1024]);
+
+        IOException error = assertThrows(IOException.class, () -> service.ingest(List.of(zip(entries))));
+
+        assertTrue(error.getMessage().contains("expands to more than 1 MB"), error.getMessage());
+        verify(documentService, never()).saveDocuments(anyList());
+    }
+
+    @Test
+    void zipWithTooManyEntriesIsRejected() throws IOException {
+        BulkIngestionService service = service(1, 10, 2, 1, 10);
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        for (int i = 0; i < 3; i++) {
+            entries.put("file-" + i + ".txt", ("content " + i).getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertThrows(IOException.class, () -> service.ingest(List.of(zip(entries))));
+        verify(documentService, never()).saveDocuments(anyList());
+    }
+
+    @Test
+    void failedBatchInsertFallsBackToSavingEachFile() throws IOException {
+        BulkIngestionService service = service(1, 10, 100, 1, 10);
+        when(documentService.saveDocuments(anyList())).thenAnswer(invocation -> {
+            // The rolled-back insert leaves ids assigned
+            assignIds(invocation.getArgument(0));
+            throw new IllegalStateException("batch rejected");
+        });
+        when(documentService.saveDocument(any())).thenAnswer(invocation -> {
+            Document document = invocation.getArgument(0);
+            assertNull(document.getId());
+            return switch (document.getFilename()) {
+                case "raced.txt" -> throw new DataIntegrityViolationException("duplicate content hash");
+                case "broken.txt" -> throw new IllegalStateException("value too long");
+                default -> assignIds(List.of(document)).get(0);
+            };
+        });
+        String racedHash = "7d0a5a3c2c0f3e10f6a58bd8bdfb7bd0aee2d7a3d5b2a5a0b3a4f8e1a2b3c4d5";
+        doAnswer(invocation -> Files.readString((Path) invocation.getArgument(0)).startsWith("raced")
+                ? racedHash : invocation.callRealMethod()).when(documentService).contentHash(any());
+        // Not yet stored when extracted; stored by a concurrent upload by the time the insert fails
+        when(documentService.findByContentHash(racedHash)).thenReturn(Optional.empty(), Optional.of(99L));
+
+        BulkIngestionResult result = service.ingest(List.of(
+                text("ok.txt", "ok content"), text("raced.txt", "raced content"), text("broken.txt", "broken content")));
+
+        assertEquals(Map.of("ok.txt", Status.STORED, "raced.txt", Status.DUPLICATE, "broken.txt", Status.FAILED), statuses(result));
+        FileResult raced = result.files().stream().filter(file -> file.filename().equals("raced.txt")).findFirst().orElseThrow();
+        assertEquals(99L, raced.documentId());
+        verify(documentService, times(1)).indexDocument(any());
+    }
+}
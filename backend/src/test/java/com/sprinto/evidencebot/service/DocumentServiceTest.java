@@ -0,0 +1,123 @@
+package com.sprinto.evidencebot.service;
+
+import com.sprinto.evidencebot.model.Document;
+import com.sprinto.evidencebot.model.DocumentHit;
+import com.sprinto.evidencebot.model.DocumentPage;
+import com.sprinto.evidencebot.search.EmbeddingProvider;
+import com.sprinto.evidencebot.search.HashingEmbeddingProvider;
+import com.sprinto.evidencebot.search.HnswIndex;
+import com.sprinto.evidencebot.search.InvertedIndex;
+import com.sprinto.evidencebot.search.NearDuplicateIndex;
+import com.sprinto.evidencebot.search.TextChunker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DocumentServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private final DocumentService documentService = new DocumentService();
+    private final InvertedIndex invertedIndex = new InvertedIndex(1.2, 0.75);
+
+    @BeforeEach
+    void setUp() {
+        invertedIndex.add(1L, "encryption policy");
+        ReflectionTestUtils.setField(documentService, "invertedIndex", invertedIndex);
+        ReflectionTestUtils.setField(documentService, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(documentService, "maxSearchRank", 1000);
+    }
+
+    @Test
+    void searchCursorsOutsideTheRankWindowAreRejected() {
+        for (String cursor : new String[]{"-1", "abc", "1001", "1000000000", "3000000000", "99999999999999999999"}) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> documentService.searchDocumentHits("encryption", cursor, 200, false), cursor);
+        }
+    }
+
+    @Test
+    void cursorAtTheLastRankReturnsAnEmptyFinalPage() {
+        DocumentPage<DocumentHit> page = documentService.searchDocumentHits("encryption", "1000", 200, false);
+
+        assertTrue(page.items().isEmpty());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void snapshotDoesNotWaitForAnEmbeddingInProgress() throws Exception {
+        CountDownLatch embedding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        HashingEmbeddingProvider hashing = new HashingEmbeddingProvider(64);
+        EmbeddingProvider slow = new EmbeddingProvider() {
+            @Override
+            public int dimensions() {
+                return hashing.dimensions();
+            }
+
+            @Override
+            public float[] embed(String text) {
+                embedding.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return hashing.embed(text);
+            }
+        };
+        HnswIndex vectorIndex = new HnswIndex(16, 100, 64);
+        NearDuplicateIndex nearDuplicateIndex = new NearDuplicateIndex(0.8);
+        RetrievalService retrievalService = new RetrievalService();
+        ReflectionTestUtils.setField(retrievalService, "textChunker", new TextChunker(200, 20));
+        ReflectionTestUtils.setField(retrievalService, "embeddingProvider", slow);
+        ReflectionTestUtils.setField(retrievalService, "vectorIndex", vectorIndex);
+        ReflectionTestUtils.setField(retrievalService, "meterRegistry", new SimpleMeterRegistry());
+        SearchSnapshotService snapshots = new SearchSnapshotService(true, directory.toString(), 300);
+        ReflectionTestUtils.setField(snapshots, "invertedIndex", invertedIndex);
+        ReflectionTestUtils.setField(snapshots, "nearDuplicateIndex", nearDuplicateIndex);
+        ReflectionTestUtils.setField(snapshots, "vectorIndex", vectorIndex);
+        ReflectionTestUtils.setField(snapshots, "retrievalService", retrievalService);
+        ReflectionTestUtils.setField(snapshots, "embeddingProvider", hashing);
+        ReflectionTestUtils.setField(documentService, "retrievalService", retrievalService);
+        ReflectionTestUtils.setField(documentService, "nearDuplicateIndex", nearDuplicateIndex);
+        ReflectionTestUtils.setField(documentService, "searchSnapshot", snapshots);
+        ReflectionTestUtils.setField(documentService, "complianceStatsService", new ComplianceStatsService());
+        ReflectionTestUtils.setField(documentService, "eventPublisher", (ApplicationEventPublisher) event -> {});
+
+        String content = "Backups are taken nightly and restore tests run monthly.";
+        Document document = new Document("backup.txt", content, "text/plain", (long) content.length());
+        document.setId(2L);
+        CompletableFuture<Void> indexing = CompletableFuture.runAsync(() -> documentService.indexDocument(document));
+        assertTrue(embedding.await(5, TimeUnit.SECONDS));
+
+        // Would block until the embedding finished if it ran under the snapshot gate
+        CompletableFuture.runAsync(() -> {
+            try {
+                snapshots.write();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).get(5, TimeUnit.SECONDS);
+        release.countDown();
+        indexing.get(5, TimeUnit.SECONDS);
+
+        assertEquals(2L, invertedIndex.search("backups", 10).get(0).documentId());
+    }
+}
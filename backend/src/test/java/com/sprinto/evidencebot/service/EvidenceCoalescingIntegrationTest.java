@@ -0,0 +1,117 @@
+package com.sprinto.evidencebot.service;
+
+import com.sprinto.evidencebot.model.Document;
+import com.sprinto.evidencebot.model.DocumentHit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * Coalesced evidence requests against real, lazily loaded entities. The
+ * callers run on plain threads with no open session, as joined callers do
+ * once the leader's request has finished.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+class EvidenceCoalescingIntegrationTest {
+
+    private static final String ACCESS = "Access reviews are performed quarterly by system owners and signed off by security.";
+    private static final String BACKUP = "Backups are taken nightly and restore tests run monthly.";
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private EvidenceService evidenceService;
+
+    @Autowired
+    private RequestCoalescer requestCoalescer;
+
+    @MockBean
+    private OpenAIService openAIService;
+
+    private final ExecutorService callers = Executors.newFixedThreadPool(8);
+    private final List<Long> documentIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (String content : List.of(ACCESS, BACKUP)) {
+            Document document = documentService.createDocument("doc" + documentIds.size() + ".txt", content,
+                    "text/plain", (long) content.length(), "hash-" + content.hashCode());
+            Document saved = documentService.saveDocument(document);
+            documentService.indexDocument(saved);
+            documentIds.add(saved.getId());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        documentIds.forEach(documentService::deleteDocument);
+    }
+
+    private long coalesced() {
+        return (Long) requestCoalescer.getStats().get("coalesced");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void joinedCallersReadTheSharedDocumentsOnTheirOwnThreads() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger summaries = new AtomicInteger();
+        when(openAIService.generateEvidenceSummary(anyString(), anyList(), any())).thenAnswer(invocation -> {
+            summaries.incrementAndGet();
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return "summary";
+        });
+        long coalescedBefore = coalesced();
+
+        Future<Map<String, Object>> leader = callers.submit(() -> evidenceService.generateEvidence("quarterly access reviews", false));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        List<Future<Map<String, Object>>> joined = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            joined.add(callers.submit(() -> evidenceService.generateEvidence("Quarterly  Access Reviews", true)));
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (coalesced() < coalescedBefore + 4 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(coalescedBefore + 4, coalesced());
+        release.countDown();
+
+        List<DocumentHit> leaderHits = (List<DocumentHit>) leader.get(5, TimeUnit.SECONDS).get("documents");
+        assertEquals(documentIds.get(0), leaderHits.get(0).id());
+        assertNull(leaderHits.get(0).content());
+        for (Future<Map<String, Object>> call : joined) {
+            Map<String, Object> evidence = call.get(5, TimeUnit.SECONDS);
+            List<DocumentHit> hits = (List<DocumentHit>) evidence.get("documents");
+            assertEquals("summary", evidence.get("summary"));
+            assertEquals(documentIds.get(0), hits.get(0).id());
+            assertEquals(ACCESS, hits.get(0).content());
+            assertTrue(hits.get(0).snippet().contains("quarterly"));
+        }
+        assertEquals(1, summaries.get());
+    }
+}
@@ -0,0 +1,70 @@
+package com.sprinto.evidencebot.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class EvidenceServiceTest {
+
+    @Mock
+    private DocumentService documentService;
+
+    @Mock
+    private ComplianceStatsService complianceStatsService;
+
+    @Mock
+    private RequestCoalescer requestCoalescer;
+
+    @InjectMocks
+    private EvidenceService evidenceService;
+
+    @BeforeEach
+    void joinFirstFlightPerOperation() {
+        // Every later call joins the first call's flight, as concurrent callers would
+        Map<String, Object> flights = new ConcurrentHashMap<>();
+        when(requestCoalescer.execute(anyString(), anyString(), any())).thenAnswer(invocation ->
+                flights.computeIfAbsent(invocation.getArgument(0), operation -> ((Supplier<?>) invocation.getArgument(2)).get()));
+    }
+
+    @Test
+    void joinedEvidenceCallersGetTheirOwnQueryBack() {
+        when(documentService.searchDocuments(anyString())).thenReturn(List.of());
+
+        Map<String, Object> leader = evidenceService.generateEvidence("Access Reviews", false);
+        Map<String, Object> joined = evidenceService.generateEvidence("access   reviews", true);
+
+        assertEquals("Access Reviews", leader.get("query"));
+        assertEquals("access   reviews", joined.get("query"));
+        assertEquals("No documents found for the query: access   reviews", joined.get("summary"));
+        assertEquals("No evidence found for the query: access   reviews", joined.get("basicSummary"));
+        verify(documentService, times(1)).searchDocuments(anyString());
+        verify(documentService).toHits(List.of(), "access   reviews", true);
+    }
+
+    @Test
+    void joinedReportCallersGetTheirOwnDomainBack() {
+        Map<String, Object> leader = evidenceService.getComplianceReport("SOC2");
+        Map<String, Object> joined = evidenceService.getComplianceReport("soc2");
+
+        assertEquals("SOC2", leader.get("domain"));
+        assertEquals("soc2", joined.get("domain"));
+        assertEquals(leader.get("lastUpdated"), joined.get("lastUpdated"));
+        verify(complianceStatsService, times(1)).getTotalDocuments();
+    }
+}
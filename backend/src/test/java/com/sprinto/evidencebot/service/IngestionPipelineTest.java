@@ -0,0 +1,128 @@
+package com.sprinto.evidencebot.service;
+
+import com.sprinto.evidencebot.model.Document;
+import com.sprinto.evidencebot.model.IngestionJob;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IngestionPipelineTest {
+
+    @TempDir
+    Path directory;
+
+    private final DocumentService documentService = Mockito.mock(DocumentService.class);
+    private final CountDownLatch entered = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private IngestionPipeline pipeline;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        pipeline = new IngestionPipeline(1, 1, 1, 10, 60);
+        ReflectionTestUtils.setField(pipeline, "documentService", documentService);
+        when(documentService.contentHash(any())).thenReturn("hash");
+        when(documentService.findByContentHash(anyString())).thenReturn(Optional.empty());
+        when(documentService.extractText(any(), any())).thenReturn("Access reviews run quarterly.");
+        when(documentService.createDocument(anyString(), anyString(), anyString(), anyLong(), anyString()))
+                .thenAnswer(invocation -> new Document(invocation.getArgument(0), invocation.getArgument(1),
+                        invocation.getArgument(2), invocation.getArgument(3)));
+        when(documentService.findNearDuplicates(any())).thenReturn(List.of());
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        pipeline.shutdown();
+    }
+
+    private IngestionJob submit() throws IOException {
+        Path spooled = Files.writeString(directory.resolve("upload.txt"), "Access reviews run quarterly.");
+        return pipeline.submit(spooled, "access.txt", "text/plain", 29);
+    }
+
+    // Blocks the stage that calls it until the test releases it
+    private <T> T blockThen(T result) throws InterruptedException {
+        entered.countDown();
+        release.await(5, TimeUnit.SECONDS);
+        return result;
+    }
+
+    private static void awaitFinished(IngestionJob job) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!job.isFinished() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(job.isFinished(), "job stuck in " + job.getStatus());
+    }
+
+    @Test
+    void completesThroughAllStages() throws Exception {
+        when(documentService.saveDocument(any())).thenAnswer(invocation -> {
+            Document document = invocation.getArgument(0);
+            document.setId(7L);
+            return document;
+        });
+
+        IngestionJob job = submit();
+        awaitFinished(job);
+
+        assertEquals(IngestionJob.Status.COMPLETED, job.getStatus());
+        assertEquals(7L, job.getDocumentId());
+    }
+
+    @Test
+    void jobFailsWhenPersistenceCannotStartAfterShutdown() throws Exception {
+        when(documentService.extractText(any(), any())).thenAnswer(invocation -> blockThen("Access reviews run quarterly."));
+
+        IngestionJob job = submit();
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        pipeline.shutdown();
+        release.countDown();
+        awaitFinished(job);
+
+        assertEquals(IngestionJob.Status.FAILED, job.getStatus());
+        assertTrue(job.getError().startsWith("persistence failed"), job.getError());
+        verify(documentService, never()).saveDocument(any());
+    }
+
+    @Test
+    void jobFailsWhenIndexingCannotStartAfterShutdown() throws Exception {
+        when(documentService.saveDocument(any())).thenAnswer(invocation -> {
+            Document document = invocation.getArgument(0);
+            document.setId(7L);
+            return blockThen(document);
+        });
+
+        IngestionJob job = submit();
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        pipeline.shutdown();
+        release.countDown();
+        awaitFinished(job);
+
+        assertEquals(IngestionJob.Status.FAILED, job.getStatus());
+        assertTrue(job.getError().startsWith("indexing failed"), job.getError());
+        assertFalse(job.isDuplicate());
+        verify(documentService, never()).indexDocument(any());
+    }
+}
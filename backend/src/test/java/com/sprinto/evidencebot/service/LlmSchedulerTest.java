@@ -0,0 +1,121 @@
+package com.sprinto.evidencebot.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LlmSchedulerTest {
+
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private final List<LlmScheduler> schedulers = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        schedulers.forEach(LlmScheduler::shutdown);
+    }
+
+    private LlmScheduler scheduler(int maxInFlight, long tokensPerMinute, int batchMaxQueued, long batchMaxWaitMs) {
+        LlmScheduler scheduler = new LlmScheduler(maxInFlight, 0, tokensPerMinute,
+                16, 16, 5000,
+                4, 16, 5000, 0.25,
+                1, batchMaxQueued, batchMaxWaitMs, 0.5);
+        ReflectionTestUtils.setField(scheduler, "meterRegistry", new SimpleMeterRegistry());
+        schedulers.add(scheduler);
+        return scheduler;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int queued(LlmScheduler scheduler, String priority) {
+        Map<String, Object> classes = (Map<String, Object>) scheduler.getStats().get("classes");
+        return (Integer) ((Map<String, Object>) classes.get(priority)).get("queued");
+    }
+
+    private static void awaitQueued(LlmScheduler scheduler, String priority, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (queued(scheduler, priority) < expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, queued(scheduler, priority));
+    }
+
+    @Test
+    void backloggedCallsAreServedByWeightedFinishTime() throws Exception {
+        LlmScheduler scheduler = scheduler(1, 0, 16, 5000);
+        List<String> order = new CopyOnWriteArrayList<>();
+        List<Future<?>> calls = new ArrayList<>();
+        scheduler.acquire(LlmPriority.INTERACTIVE, 100);
+
+        // Queued lowest priority first, so arrival order alone would serve batch first
+        for (int i = 1; i <= 3; i++) {
+            String name = "batch-" + i;
+            calls.add(callers.submit(() -> scheduler.execute(LlmPriority.BATCH, 100, () -> order.add(name))));
+            awaitQueued(scheduler, "batch", i);
+        }
+        calls.add(callers.submit(() -> scheduler.execute(LlmPriority.STANDARD, 100, () -> order.add("standard"))));
+        awaitQueued(scheduler, "standard", 1);
+        calls.add(callers.submit(() -> scheduler.execute(LlmPriority.INTERACTIVE, 100, () -> order.add("interactive"))));
+        awaitQueued(scheduler, "interactive", 1);
+
+        scheduler.release();
+        for (Future<?> call : calls) {
+            call.get(5, TimeUnit.SECONDS);
+        }
+
+        assertEquals(List.of("interactive", "standard", "batch-1", "batch-2", "batch-3"), order);
+    }
+
+    @Test
+    void batchLeavesItsReserveForInteractiveCalls() {
+        LlmScheduler scheduler = scheduler(8, 1000, 16, 100);
+
+        scheduler.acquire(LlmPriority.BATCH, 400);
+        // 600 tokens left: another batch call would eat into the 500-token reserve
+        assertThrows(LlmCapacityExceededException.class, () -> scheduler.acquire(LlmPriority.BATCH, 400));
+        scheduler.acquire(LlmPriority.INTERACTIVE, 400);
+
+        assertEquals(2, scheduler.getStats().get("inFlight"));
+    }
+
+    @Test
+    void fullQueueRejectsImmediately() throws Exception {
+        LlmScheduler scheduler = scheduler(1, 0, 1, 5000);
+        scheduler.acquire(LlmPriority.INTERACTIVE, 10);
+        Future<?> queuedCall = callers.submit(() -> scheduler.execute(LlmPriority.BATCH, 10, () -> null));
+        awaitQueued(scheduler, "batch", 1);
+
+        assertThrows(LlmCapacityExceededException.class, () -> scheduler.acquire(LlmPriority.BATCH, 10));
+
+        scheduler.release();
+        queuedCall.get(5, TimeUnit.SECONDS);
+        assertEquals(0, scheduler.getStats().get("inFlight"));
+    }
+
+    @Test
+    void callWaitingPastMaxWaitIsRejectedAndFreesItsPlace() throws Exception {
+        LlmScheduler scheduler = scheduler(1, 0, 16, 50);
+        scheduler.acquire(LlmPriority.INTERACTIVE, 10);
+
+        Future<?> timedOut = callers.submit(() -> scheduler.execute(LlmPriority.BATCH, 10, () -> null));
+        Exception error = assertThrows(Exception.class, () -> timedOut.get(5, TimeUnit.SECONDS));
+
+        assertInstanceOf(LlmCapacityExceededException.class, error.getCause());
+        assertEquals(0, queued(scheduler, "batch"));
+        scheduler.release();
+        assertEquals("ok", scheduler.execute(LlmPriority.BATCH, 10, () -> "ok"));
+    }
+}
@@ -0,0 +1,163 @@
+package com.sprinto.evidencebot.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestCoalescerTest {
+
+    private RequestCoalescer coalescer;
+    private ExecutorService callers;
+
+    @BeforeEach
+    void setUp() {
+        coalescer = new RequestCoalescer();
+        ReflectionTestUtils.setField(coalescer, "meterRegistry", new SimpleMeterRegistry());
+        callers = Executors.newFixedThreadPool(8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+    }
+
+    private long coalesced() {
+        return (Long) coalescer.getStats().get("coalesced");
+    }
+
+    private void awaitCoalesced(long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (coalesced() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, coalesced());
+    }
+
+    // Computation that blocks until released, counting how often it runs
+    private static Supplier<Object> blocking(CountDownLatch started, CountDownLatch release, AtomicInteger runs, Object result) {
+        return () -> {
+            runs.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return result;
+        };
+    }
+
+    @Test
+    void concurrentCallsWithTheSameNormalizedKeyShareOneComputation() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        Object result = new Object();
+
+        Future<Object> leader = callers.submit(() -> coalescer.execute("evidence", "Access Reviews",
+                blocking(started, release, runs, result)));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        List<Future<Object>> followers = new ArrayList<>();
+        for (String key : List.of("access reviews", "  ACCESS   reviews ", "Access Reviews")) {
+            followers.add(callers.submit(() -> coalescer.execute("evidence", key, () -> {
+                runs.incrementAndGet();
+                return new Object();
+            })));
+        }
+        awaitCoalesced(3);
+        release.countDown();
+
+        assertSame(result, leader.get(5, TimeUnit.SECONDS));
+        for (Future<Object> follower : followers) {
+            assertSame(result, follower.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, runs.get());
+        assertEquals(1L, coalescer.getStats().get("executions"));
+        assertEquals(0, coalescer.getStats().get("inFlight"));
+    }
+
+    @Test
+    void differentOperationsOrKeysDoNotShare() {
+        AtomicInteger runs = new AtomicInteger();
+        coalescer.execute("evidence", "encryption", runs::incrementAndGet);
+        coalescer.execute("compliance-report", "encryption", runs::incrementAndGet);
+        coalescer.execute("evidence", "backups", runs::incrementAndGet);
+
+        assertEquals(3, runs.get());
+        assertEquals(0L, coalesced());
+    }
+
+    @Test
+    void completedResultsAreNotRetained() {
+        AtomicInteger runs = new AtomicInteger();
+        assertEquals(1, coalescer.execute("evidence", "encryption", runs::incrementAndGet));
+        assertEquals(2, coalescer.execute("evidence", "encryption", runs::incrementAndGet));
+    }
+
+    @Test
+    void failureIsRethrownToEveryJoinedCaller() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<Object> leader = callers.submit(() -> coalescer.execute("evidence", "encryption", () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IllegalStateException("model unavailable");
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<Object> follower = callers.submit(() -> coalescer.execute("evidence", "encryption", Object::new));
+        awaitCoalesced(1);
+        release.countDown();
+
+        for (Future<Object> caller : List.of(leader, follower)) {
+            Exception e = assertThrows(Exception.class, () -> caller.get(5, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof IllegalStateException);
+            assertEquals("model unavailable", e.getCause().getMessage());
+        }
+        assertEquals(0, coalescer.getStats().get("inFlight"));
+    }
+
+    @Test
+    void documentChangeStartsANewFlight() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+
+        Future<Object> before = callers.submit(() -> coalescer.execute("evidence", "encryption",
+                blocking(started, release, runs, "stale")));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        coalescer.onDocumentChanged(new DocumentChangedEvent(DocumentChangedEvent.Type.UPLOADED, 1L));
+
+        Object after = coalescer.execute("evidence", "encryption", () -> {
+            runs.incrementAndGet();
+            return "fresh";
+        });
+        release.countDown();
+
+        assertEquals("fresh", after);
+        assertEquals("stale", before.get(5, TimeUnit.SECONDS));
+        assertEquals(2, runs.get());
+        assertEquals(0L, coalesced());
+    }
+}
@@ -0,0 +1,147 @@
+package com.sprinto.evidencebot.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.reactivex.Single;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import retrofit2.HttpException;
+import retrofit2.Response;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ResilientLlmClientTest {
+
+    private static final long OPEN_MS = 200;
+
+    private static ResilientLlmClient client(int maxAttempts, long maxTimeoutMs) {
+        ResilientLlmClient client = new ResilientLlmClient(50, maxTimeoutMs, 2.0, 5000, 20, 20,
+                maxAttempts, 1, 5, false, 0.05, 4, 4, 0.5, OPEN_MS);
+        ReflectionTestUtils.setField(client, "meterRegistry", new SimpleMeterRegistry());
+        return client;
+    }
+
+    private static HttpException http(int code) {
+        String body = "{\"error\":{\"message\":\"status " + code + "\",\"type\":\"server_error\"}}";
+        return new HttpException(Response.error(code, ResponseBody.create(body, MediaType.get("application/json"))));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String circuitState(ResilientLlmClient client) {
+        return (String) ((Map<String, Object>) client.getStats().get("circuit")).get("state");
+    }
+
+    private static <T> Single<T> failing(Throwable error) {
+        return Single.error(error);
+    }
+
+    @Test
+    void retriesTransientErrorsUntilSuccess() {
+        ResilientLlmClient client = client(3, 1000);
+        AtomicInteger sent = new AtomicInteger();
+
+        String answer = client.execute("chat", () -> sent.incrementAndGet() < 3
+                ? failing(sent.get() == 1 ? new IOException("connection reset") : http(503))
+                : Single.just("ok"));
+
+        assertEquals("ok", answer);
+        assertEquals(3, sent.get());
+        assertEquals(2L, client.getStats().get("retries"));
+        assertEquals("CLOSED", circuitState(client));
+    }
+
+    @Test
+    void clientErrorsAreNotRetried() {
+        ResilientLlmClient client = client(3, 1000);
+        AtomicInteger sent = new AtomicInteger();
+        IllegalArgumentException invalid = new IllegalArgumentException("bad request");
+
+        assertSame(invalid, assertThrows(IllegalArgumentException.class,
+                () -> client.execute("chat", () -> {
+                    sent.incrementAndGet();
+                    return failing(invalid);
+                })));
+        assertThrows(RuntimeException.class, () -> client.execute("chat", () -> {
+            sent.incrementAndGet();
+            return failing(http(400));
+        }));
+
+        assertEquals(2, sent.get());
+        assertEquals(0L, client.getStats().get("retries"));
+    }
+
+    @Test
+    void unansweredAttemptsTimeOutAndAreRetried() {
+        ResilientLlmClient client = client(2, 100);
+        AtomicInteger sent = new AtomicInteger();
+
+        RuntimeException error = assertThrows(RuntimeException.class, () -> client.execute("chat", () -> {
+            sent.incrementAndGet();
+            return Single.never();
+        }));
+
+        assertInstanceOf(TimeoutException.class, error.getCause());
+        assertEquals(2, sent.get());
+        assertEquals(2L, client.getStats().get("timeouts"));
+    }
+
+    @Test
+    void breakerOpensFailsFastAndClosesAfterASuccessfulProbe() throws InterruptedException {
+        ResilientLlmClient client = client(1, 1000);
+        for (int i = 0; i < 4; i++) {
+            assertThrows(RuntimeException.class, () -> client.execute("chat", () -> failing(http(500))));
+        }
+        assertEquals("OPEN", circuitState(client));
+
+        AtomicInteger sent = new AtomicInteger();
+        assertThrows(LlmUnavailableException.class, () -> client.execute("chat", () -> {
+            sent.incrementAndGet();
+            return Single.just("ok");
+        }));
+        assertEquals(0, sent.get());
+        assertEquals(1L, client.getStats().get("shortCircuited"));
+
+        Thread.sleep(OPEN_MS + 50);
+        assertEquals("ok", client.execute("chat", () -> Single.just("ok")));
+        assertEquals("CLOSED", circuitState(client));
+    }
+
+    @Test
+    void failedProbeReopensAndOnlyOneProbeRunsAtATime() throws InterruptedException {
+        ResilientLlmClient client = client(1, 1000);
+        for (int i = 0; i < 4; i++) {
+            assertThrows(RuntimeException.class, () -> client.execute("chat", () -> failing(new IOException("reset"))));
+        }
+        Thread.sleep(OPEN_MS + 50);
+
+        client.acquirePermission();
+        assertEquals("HALF_OPEN", circuitState(client));
+        assertThrows(LlmUnavailableException.class, client::acquirePermission);
+
+        client.recordStreamOutcome(new IOException("reset"));
+        assertEquals("OPEN", circuitState(client));
+    }
+
+    @Test
+    void breakerIgnoresClientErrorsAndStaysClosedBelowTheFailureRate() {
+        ResilientLlmClient client = client(1, 1000);
+        for (int i = 0; i < 6; i++) {
+            assertThrows(RuntimeException.class, () -> client.execute("chat", () -> failing(http(400))));
+        }
+        client.execute("chat", () -> Single.just("ok"));
+        client.execute("chat", () -> Single.just("ok"));
+        client.execute("chat", () -> Single.just("ok"));
+        assertThrows(RuntimeException.class, () -> client.execute("chat", () -> failing(http(502))));
+
+        assertEquals("CLOSED", circuitState(client));
+    }
+}
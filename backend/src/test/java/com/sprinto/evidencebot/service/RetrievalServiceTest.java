@@ -0,0 +1,94 @@
+package com.sprinto.evidencebot.service;
+
+import com.sprinto.evidencebot.model.Document;
+import com.sprinto.evidencebot.search.DocumentChunk;
+import com.sprinto.evidencebot.search.HashingEmbeddingProvider;
+import com.sprinto.evidencebot.search.HnswIndex;
+import com.sprinto.evidencebot.search.TextChunker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetrievalServiceTest {
+
+    private RetrievalService retrievalService;
+
+    @BeforeEach
+    void setUp() {
+        retrievalService = new RetrievalService();
+        ReflectionTestUtils.setField(retrievalService, "textChunker", new TextChunker(200, 40));
+        ReflectionTestUtils.setField(retrievalService, "embeddingProvider", new HashingEmbeddingProvider(256));
+        ReflectionTestUtils.setField(retrievalService, "vectorIndex", new HnswIndex(16, 100, 64));
+        ReflectionTestUtils.setField(retrievalService, "meterRegistry", new SimpleMeterRegistry());
+    }
+
+    private static Document document(long id, String filename, String content) {
+        Document document = new Document(filename, content, "text/plain", (long) content.length());
+        document.setId(id);
+        return document;
+    }
+
+    @Test
+    void retrievesChunksOfTheMatchingDocument() {
+        retrievalService.indexDocument(document(1L, "encryption.txt",
+                "Customer data is encrypted at rest with AES-256 and in transit with TLS 1.2 or later."));
+        retrievalService.indexDocument(document(2L, "access.txt",
+                "Access reviews are performed quarterly by system owners and approved by security."));
+
+        List<DocumentChunk> chunks = retrievalService.retrieve("quarterly access reviews", 1);
+
+        assertEquals(1, chunks.size());
+        assertEquals(2L, chunks.get(0).documentId());
+        assertEquals("access.txt", chunks.get(0).filename());
+    }
+
+    @Test
+    void restrictedRetrievalOnlyScoresTheGivenDocuments() {
+        retrievalService.indexDocument(document(1L, "encryption.txt", "Data is encrypted at rest with AES-256."));
+        retrievalService.indexDocument(document(2L, "access.txt", "Access reviews are performed quarterly."));
+
+        List<DocumentChunk> chunks = retrievalService.retrieve("quarterly access reviews", 5, List.of(1L));
+
+        assertEquals(1, chunks.size());
+        assertEquals(1L, chunks.get(0).documentId());
+    }
+
+    @Test
+    void reindexingAndRemovalReplaceChunks() {
+        retrievalService.indexDocument(document(1L, "policy.txt", "Passwords rotate every ninety days."));
+        retrievalService.indexDocument(document(1L, "policy.txt", "Backups are tested monthly."));
+
+        List<DocumentChunk> chunks = retrievalService.retrieve("backups tested", 5);
+        assertEquals(1, chunks.size());
+        assertTrue(chunks.get(0).text().contains("Backups"));
+
+        retrievalService.removeDocument(1L);
+        assertTrue(retrievalService.retrieve("backups tested", 5).isEmpty());
+    }
+
+    @Test
+    void chunksSurviveVectorIndexPurge() {
+        for (long id = 1; id <= 400; id++) {
+            retrievalService.indexDocument(document(id, "doc" + id + ".txt", "Control number " + id + " covers topic t" + id));
+        }
+        for (long id = 1; id <= 400; id++) {
+            if (id % 10 != 0) {
+                retrievalService.removeDocument(id);
+            }
+        }
+
+        for (long id = 10; id <= 400; id += 10) {
+            List<DocumentChunk> chunks = retrievalService.retrieve("topic t" + id, 5, List.of(id));
+            assertFalse(chunks.isEmpty());
+            assertEquals(id, chunks.get(0).documentId());
+            assertEquals("doc" + id + ".txt", chunks.get(0).filename());
+        }
+    }
+}
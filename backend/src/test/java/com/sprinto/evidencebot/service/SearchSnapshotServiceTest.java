@@ -0,0 +1,151 @@
+package com.sprinto.evidencebot.service;
+
+import com.sprinto.evidencebot.model.Document;
+import com.sprinto.evidencebot.search.DocumentChunk;
+import com.sprinto.evidencebot.search.HashingEmbeddingProvider;
+import com.sprinto.evidencebot.search.HnswIndex;
+import com.sprinto.evidencebot.search.InvertedIndex;
+import com.sprinto.evidencebot.search.MinHash;
+import com.sprinto.evidencebot.search.NearDuplicateIndex;
+import com.sprinto.evidencebot.search.SearchHit;
+import com.sprinto.evidencebot.search.TextChunker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchSnapshotServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private static final String ENCRYPTION = "Customer data is encrypted at rest with AES-256 and keys rotate yearly.";
+    private static final String ACCESS = "Access reviews are performed quarterly by system owners.";
+    private static final String BACKUP = "Backups are taken nightly and restore tests run monthly.";
+
+    /** One application's worth of search structures around a snapshot service. */
+    private final class Indexes {
+        final InvertedIndex invertedIndex = new InvertedIndex(1.2, 0.75);
+        final NearDuplicateIndex nearDuplicateIndex = new NearDuplicateIndex(0.8);
+        final HnswIndex vectorIndex = new HnswIndex(16, 100, 64);
+        final RetrievalService retrievalService = new RetrievalService();
+        final SearchSnapshotService snapshots = new SearchSnapshotService(true, directory.toString(), 300);
+
+        Indexes(int chunkSize) {
+            ReflectionTestUtils.setField(retrievalService, "textChunker", new TextChunker(chunkSize, 20));
+            ReflectionTestUtils.setField(retrievalService, "embeddingProvider", new HashingEmbeddingProvider(128));
+            ReflectionTestUtils.setField(retrievalService, "vectorIndex", vectorIndex);
+            ReflectionTestUtils.setField(retrievalService, "meterRegistry", new SimpleMeterRegistry());
+            ReflectionTestUtils.setField(snapshots, "invertedIndex", invertedIndex);
+            ReflectionTestUtils.setField(snapshots, "nearDuplicateIndex", nearDuplicateIndex);
+            ReflectionTestUtils.setField(snapshots, "vectorIndex", vectorIndex);
+            ReflectionTestUtils.setField(snapshots, "retrievalService", retrievalService);
+            ReflectionTestUtils.setField(snapshots, "embeddingProvider", new HashingEmbeddingProvider(128));
+            ReflectionTestUtils.setField(snapshots, "chunkSize", chunkSize);
+            ReflectionTestUtils.setField(snapshots, "chunkOverlap", 20);
+            ReflectionTestUtils.setField(snapshots, "hnswM", 16);
+        }
+
+        void add(long id, String content) {
+            Document document = new Document("doc" + id + ".txt", content, "text/plain", (long) content.length());
+            document.setId(id);
+            RetrievalService.EmbeddedChunks chunks = retrievalService.embed(document);
+            snapshots.mutate(() -> {
+                invertedIndex.add(id, content);
+                retrievalService.add(chunks);
+                nearDuplicateIndex.add(id, MinHash.signature(content));
+            });
+        }
+
+        void remove(long id) {
+            snapshots.mutate(() -> {
+                invertedIndex.remove(id);
+                retrievalService.removeDocument(id);
+                nearDuplicateIndex.remove(id);
+            });
+        }
+    }
+
+    private Path snapshotFile() throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".snap")).findFirst().orElseThrow();
+        }
+    }
+
+    private static List<Long> ids(List<SearchHit> hits) {
+        return hits.stream().map(SearchHit::documentId).toList();
+    }
+
+    private Indexes written() throws IOException {
+        Indexes original = new Indexes(200);
+        original.add(1L, ENCRYPTION);
+        original.add(2L, ACCESS);
+        original.add(3L, BACKUP);
+        original.remove(3L);
+        original.snapshots.write();
+        return original;
+    }
+
+    @Test
+    void restoreReproducesTheWrittenIndexes() throws IOException {
+        Indexes original = written();
+
+        Indexes restored = new Indexes(200);
+        long[] documentIds = restored.snapshots.restore();
+
+        assertArrayEquals(new long[]{1L, 2L}, Arrays.stream(documentIds).sorted().toArray());
+        assertEquals(ids(original.invertedIndex.search("quarterly reviews", 10)),
+                ids(restored.invertedIndex.search("quarterly reviews", 10)));
+        assertTrue(restored.invertedIndex.search("backups", 10).isEmpty());
+        assertArrayEquals(original.nearDuplicateIndex.getSignature(1L), restored.nearDuplicateIndex.getSignature(1L));
+        assertNull(restored.nearDuplicateIndex.getSignature(3L));
+
+        List<DocumentChunk> chunks = restored.retrievalService.retrieve("encrypted at rest", 1);
+        assertEquals(original.retrievalService.retrieve("encrypted at rest", 1), chunks);
+        assertEquals(1L, chunks.get(0).documentId());
+        assertEquals(2L, restored.snapshots.getStats().get("restoredDocuments"));
+    }
+
+    @Test
+    void damagedSectionIsIgnored() throws IOException {
+        written();
+        Path file = snapshotFile();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The last byte belongs to the body of the final (vectors) section
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, channel.size() - 1);
+            last.put(0, (byte) (last.get(0) ^ 0xFF)).rewind();
+            channel.write(last, channel.size() - 1);
+        }
+
+        Indexes restored = new Indexes(200);
+
+        assertNull(restored.snapshots.restore());
+        assertEquals(0, restored.invertedIndex.size());
+        assertEquals(0, restored.vectorIndex.size());
+    }
+
+    @Test
+    void snapshotWrittenWithOtherSettingsIsIgnored() throws IOException {
+        written();
+
+        Indexes restored = new Indexes(300);
+
+        assertNull(restored.snapshots.restore());
+        assertEquals(0, restored.invertedIndex.size());
+    }
+}
@@ -0,0 +1,23 @@
+package com.sprinto.evidencebot.benchmarks;
+
+import java.lang.reflect.Field;
+
+/**
+ * Wires {@code @Autowired} fields of application components without starting
+ * a Spring context, so benchmarks measure the component and nothing else.
+ */
+final class Beans {
+
+    private Beans() {}
+
+    static <T> T inject(T target, String fieldName, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(fieldName);
+            field.setAccessible(true);
+            field.set(target, value);
+            return target;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot inject " + fieldName + " into " + target.getClass().getSimpleName(), e);
+        }
+    }
+}
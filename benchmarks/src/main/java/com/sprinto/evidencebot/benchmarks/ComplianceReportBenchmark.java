@@ -0,0 +1,56 @@
+package com.sprinto.evidencebot.benchmarks;
+
+import com.sprinto.evidencebot.model.DocumentCategory;
+import com.sprinto.evidencebot.service.ComplianceStatsService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The two halves of EvidenceService.getComplianceReport's document counts:
+ * classification, paid once per document at ingest, and reading the
+ * maintained counters when a report is requested.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComplianceReportBenchmark {
+
+    @Param({"1000", "10000"})
+    public int documents;
+
+    @Param({"400"})
+    public int wordsPerDocument;
+
+    private List<String> texts;
+    private ComplianceStatsService stats;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        texts = new CorpusGenerator(3).documents(documents, wordsPerDocument);
+        stats = new ComplianceStatsService();
+        for (int i = 0; i < texts.size(); i++) {
+            stats.documentAdded(DocumentCategory.classify("doc-" + i + ".txt", texts.get(i)));
+        }
+    }
+
+    @Benchmark
+    public long classifyDocument() {
+        next = (next + 1) % texts.size();
+        return DocumentCategory.classify("doc-" + next + ".txt", texts.get(next));
+    }
+
+    @Benchmark
+    public Map<DocumentCategory, Long> reportCounts() {
+        stats.getTotalDocuments();
+        stats.getCount(DocumentCategory.POLICY);
+        stats.getCount(DocumentCategory.PROCEDURE);
+        return stats.getCounts();
+    }
+}
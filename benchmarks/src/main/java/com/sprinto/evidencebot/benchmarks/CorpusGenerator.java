@@ -0,0 +1,90 @@
+package com.sprinto.evidencebot.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic synthetic compliance corpus. Words are drawn from a
+ * Zipf-like distribution over a vocabulary of compliance terms followed by
+ * generated filler terms, so term frequencies resemble real policy text.
+ */
+final class CorpusGenerator {
+
+    private static final String[] DOMAIN_TERMS = {
+        "policy", "procedure", "control", "access", "encryption", "audit", "risk", "incident", "response",
+        "vendor", "backup", "retention", "gdpr", "soc2", "iso27001", "hipaa", "pci", "privacy", "consent",
+        "password", "authentication", "logging", "monitoring", "training", "review", "approval", "asset",
+        "classification", "data", "security", "network", "firewall", "vulnerability", "patch", "change",
+        "management", "plan", "guideline", "evidence", "requirement", "employee", "customer", "processor"
+    };
+    private static final int VOCABULARY_SIZE = 5000;
+
+    private final SplittableRandom random;
+    private final String[] vocabulary = new String[VOCABULARY_SIZE];
+    private final double[] cumulative = new double[VOCABULARY_SIZE];
+
+    CorpusGenerator(long seed) {
+        this.random = new SplittableRandom(seed);
+        double total = 0;
+        for (int i = 0; i < VOCABULARY_SIZE; i++) {
+            vocabulary[i] = i < DOMAIN_TERMS.length ? DOMAIN_TERMS[i] : "term" + Integer.toString(i, 36);
+            total += 1.0 / (i + 1);
+            cumulative[i] = total;
+        }
+        for (int i = 0; i < VOCABULARY_SIZE; i++) {
+            cumulative[i] /= total;
+        }
+    }
+
+    String word() {
+        double r = random.nextDouble();
+        int low = 0;
+        int high = VOCABULARY_SIZE - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] < r) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return vocabulary[low];
+    }
+
+    String document(int words) {
+        StringBuilder text = new StringBuilder(words * 8);
+        for (int i = 0; i < words; i++) {
+            text.append(word());
+            text.append(i % 15 == 14 ? ".\n" : " ");
+        }
+        return text.toString();
+    }
+
+    List<String> documents(int count, int words) {
+        List<String> documents = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            documents.add(document(words));
+        }
+        return documents;
+    }
+
+    /**
+     * Queries of two or three terms, biased towards the domain vocabulary.
+     */
+    List<String> queries(int count) {
+        List<String> queries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int terms = 2 + random.nextInt(2);
+            StringBuilder query = new StringBuilder();
+            for (int t = 0; t < terms; t++) {
+                if (t > 0) {
+                    query.append(' ');
+                }
+                query.append(DOMAIN_TERMS[random.nextInt(DOMAIN_TERMS.length)]);
+            }
+            queries.add(query.toString());
+        }
+        return queries;
+    }
+}
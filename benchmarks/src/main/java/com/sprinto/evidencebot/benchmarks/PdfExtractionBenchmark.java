@@ -0,0 +1,77 @@
+package com.sprinto.evidencebot.benchmarks;
+
+import com.sprinto.evidencebot.extraction.PdfTextExtractor;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PDF text extraction as done by DocumentService.extractText, over
+ * generated documents of {@code pages} pages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PdfExtractionBenchmark {
+
+    private static final int LINES_PER_PAGE = 40;
+
+    @Param({"10", "100"})
+    public int pages;
+
+    @Param({"25"})
+    public int pagesPerTask;
+
+    private Path pdf;
+    private PdfTextExtractor extractor;
+
+    @Setup
+    public void setUp() throws IOException {
+        CorpusGenerator corpus = new CorpusGenerator(42);
+        pdf = Files.createTempFile("bench-", ".pdf");
+        PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+        try (PDDocument document = new PDDocument()) {
+            for (int p = 0; p < pages; p++) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.beginText();
+                    content.setFont(font, 10);
+                    content.setLeading(14);
+                    content.newLineAtOffset(50, 750);
+                    for (int line = 0; line < LINES_PER_PAGE; line++) {
+                        content.showText(corpus.document(12).replace('\n', ' '));
+                        content.newLine();
+                    }
+                    content.endText();
+                }
+            }
+            document.save(pdf.toFile());
+        }
+        extractor = new PdfTextExtractor(pagesPerTask, 0);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(pdf);
+    }
+
+    @Benchmark
+    public int extract() throws IOException {
+        StringWriter text = new StringWriter();
+        extractor.extract(pdf, text);
+        return text.getBuffer().length();
+    }
+}
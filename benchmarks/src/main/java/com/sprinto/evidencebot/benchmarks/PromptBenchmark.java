@@ -0,0 +1,59 @@
+package com.sprinto.evidencebot.benchmarks;
+
+import com.sprinto.evidencebot.prompt.PackedPassages;
+import com.sprinto.evidencebot.prompt.PromptPacker;
+import com.sprinto.evidencebot.prompt.TokenCounter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prompt construction as done by OpenAIService before each completion:
+ * token counting of the fixed prompt and packing ranked passages into the
+ * operation's budget.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromptBenchmark {
+
+    @Param({"8", "32"})
+    public int passages;
+
+    @Param({"4000", "10000"})
+    public int budget;
+
+    private TokenCounter tokenCounter;
+    private PromptPacker promptPacker;
+    private List<String> rankedPassages;
+    private String systemPrompt;
+
+    @Setup
+    public void setUp() {
+        tokenCounter = new TokenCounter("gpt-3.5-turbo");
+        promptPacker = Beans.inject(new PromptPacker(16385, 64), "tokenCounter", tokenCounter);
+        // Passages the size of a retrieval chunk (~800 characters)
+        rankedPassages = new CorpusGenerator(11).documents(passages, 110);
+        systemPrompt = "You are an expert compliance and evidence analyst. "
+                + "Your role is to analyze documents and provide clear, actionable evidence summaries for compliance purposes.";
+    }
+
+    @Benchmark
+    public PackedPassages packPassages() {
+        int fixedTokens = tokenCounter.countMessages(List.of(systemPrompt, "Query: access control review"));
+        return promptPacker.pack(rankedPassages, promptPacker.passageBudget(budget, fixedTokens, 1000));
+    }
+
+    @Benchmark
+    public int countPassageTokens() {
+        int total = 0;
+        for (String passage : rankedPassages) {
+            total += tokenCounter.count(passage);
+        }
+        return total;
+    }
+}
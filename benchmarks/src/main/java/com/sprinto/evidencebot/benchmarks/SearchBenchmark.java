@@ -0,0 +1,71 @@
+package com.sprinto.evidencebot.benchmarks;
+
+import com.sprinto.evidencebot.search.DocumentChunk;
+import com.sprinto.evidencebot.search.EmbeddingProvider;
+import com.sprinto.evidencebot.search.HashingEmbeddingProvider;
+import com.sprinto.evidencebot.search.HnswIndex;
+import com.sprinto.evidencebot.search.InvertedIndex;
+import com.sprinto.evidencebot.search.SearchHit;
+import com.sprinto.evidencebot.search.TextChunker;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The ranking step of DocumentService.searchDocuments (BM25) and of chunk
+ * retrieval (HNSW) over a generated corpus. Loading the matched rows from
+ * the repository is not included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+
+    @Param({"1000", "10000"})
+    public int documents;
+
+    @Param({"400"})
+    public int wordsPerDocument;
+
+    private InvertedIndex invertedIndex;
+    private HnswIndex vectorIndex;
+    private EmbeddingProvider embeddingProvider;
+    private List<String> queries;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        CorpusGenerator corpus = new CorpusGenerator(7);
+        invertedIndex = new InvertedIndex(1.2, 0.75);
+        vectorIndex = new HnswIndex(16, 100, 64);
+        embeddingProvider = new HashingEmbeddingProvider(384);
+        TextChunker chunker = new TextChunker(800, 150);
+        List<String> texts = corpus.documents(documents, wordsPerDocument);
+        for (int i = 0; i < texts.size(); i++) {
+            invertedIndex.add((long) i, texts.get(i));
+            for (DocumentChunk chunk : chunker.chunk((long) i, "doc-" + i + ".txt", texts.get(i))) {
+                vectorIndex.add(embeddingProvider.embed(chunk.text()));
+            }
+        }
+        queries = corpus.queries(256);
+    }
+
+    private String nextQuery() {
+        next = (next + 1) & 255;
+        return queries.get(next);
+    }
+
+    @Benchmark
+    public List<SearchHit> bm25Top20() {
+        return invertedIndex.search(nextQuery(), 20);
+    }
+
+    @Benchmark
+    public List<HnswIndex.Neighbor> vectorTop8() {
+        return vectorIndex.search(embeddingProvider.embed(nextQuery()), 8);
+    }
+}
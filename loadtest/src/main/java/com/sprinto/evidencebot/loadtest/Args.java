@@ -0,0 +1,67 @@
+package com.sprinto.evidencebot.loadtest;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@code --key=value} command line options.
+ */
+final class Args {
+
+    private final Map<String, String> values = new HashMap<>();
+
+    Args(String[] args, int from) {
+        for (int i = from; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --key=value but got: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            values.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+    }
+
+    String string(String key, String defaultValue) {
+        return values.getOrDefault(key, defaultValue);
+    }
+
+    int integer(String key, int defaultValue) {
+        return values.containsKey(key) ? Integer.parseInt(values.get(key)) : defaultValue;
+    }
+
+    double decimal(String key, double defaultValue) {
+        return values.containsKey(key) ? Double.parseDouble(values.get(key)) : defaultValue;
+    }
+
+    /**
+     * Durations are written as 500ms, 30s or 5m.
+     */
+    Duration duration(String key, Duration defaultValue) {
+        String value = values.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        } else if (value.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+        } else if (value.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        return Duration.ofSeconds(Long.parseLong(value));
+    }
+
+    /**
+     * Weights written as name:weight,name:weight.
+     */
+    Map<String, Integer> weights(String key, String defaultValue) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : string(key, defaultValue).split(",")) {
+            String[] parts = entry.trim().split(":");
+            weights.put(parts[0], parts.length > 1 ? Integer.parseInt(parts[1]) : 1);
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,55 @@
+package com.sprinto.evidencebot.loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Latencies and status codes recorded for one endpoint during the
+ * measurement window.
+ */
+final class EndpointStats {
+
+    private final String name;
+    private long[] latenciesMicros = new long[1024];
+    private int count;
+    private long errors;
+    private final Map<String, Long> statuses = new TreeMap<>();
+
+    EndpointStats(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @param status HTTP status, or -1 when the request failed without a response
+     */
+    synchronized void record(long latencyMicros, int status) {
+        if (count == latenciesMicros.length) {
+            latenciesMicros = Arrays.copyOf(latenciesMicros, count * 2);
+        }
+        latenciesMicros[count++] = latencyMicros;
+        if (status < 200 || status >= 300) {
+            errors++;
+        }
+        statuses.merge(status < 0 ? "io-error" : String.valueOf(status), 1L, Long::sum);
+    }
+
+    record Summary(String endpoint, long requests, long errors, double throughput,
+                   double p50Ms, double p90Ms, double p99Ms, double maxMs, Map<String, Long> statuses) {}
+
+    synchronized Summary summarize(double measuredSeconds) {
+        long[] sorted = Arrays.copyOf(latenciesMicros, count);
+        Arrays.sort(sorted);
+        return new Summary(name, count, errors, count / measuredSeconds,
+                percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                count == 0 ? 0 : sorted[count - 1] / 1000.0, new TreeMap<>(statuses));
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank))] / 1000.0;
+    }
+}
@@ -0,0 +1,33 @@
+package com.sprinto.evidencebot.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Log-normal latency described by its median and 99th percentile, which is
+ * how upstream latency is usually quoted. A p99 at or below the median gives
+ * a constant latency.
+ */
+final class LatencyDistribution {
+
+    private static final double Z_99 = 2.326;
+
+    private final double medianMs;
+    private final double sigma;
+
+    LatencyDistribution(double medianMs, double p99Ms) {
+        this.medianMs = Math.max(0, medianMs);
+        this.sigma = p99Ms > medianMs && medianMs > 0 ? Math.log(p99Ms / medianMs) / Z_99 : 0;
+    }
+
+    long sampleMs() {
+        if (sigma == 0) {
+            return Math.round(medianMs);
+        }
+        return Math.round(medianMs * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian()));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("p50=%.0fms p99=%.0fms", medianMs, medianMs * Math.exp(sigma * Z_99));
+    }
+}
@@ -0,0 +1,161 @@
+package com.sprinto.evidencebot.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Closed-loop load generator: {@code concurrency} virtual-thread workers
+ * each pick an endpoint by weight, send a request, wait for the full
+ * response and repeat until the run ends. Requests finishing during warmup
+ * are not recorded.
+ */
+final class LoadDriver {
+
+    static final String DEFAULT_MIX = "chat:5,evidence:3,upload:2";
+
+    private static final String[] QUERIES = {
+        "What are our data privacy policies?", "Show me information about access controls",
+        "What security procedures do we have?", "Are there any compliance gaps?",
+        "Show me our incident response procedures", "How do we handle sensitive data?",
+        "What audit evidence do we have?", "What are the requirements for GDPR compliance?"
+    };
+    private static final String[] WORDS = {
+        "policy", "procedure", "access", "control", "encryption", "audit", "risk", "incident", "response",
+        "vendor", "backup", "retention", "gdpr", "soc2", "privacy", "password", "logging", "training",
+        "review", "approval", "asset", "classification", "network", "firewall", "change", "management"
+    };
+
+    private final URI target;
+    private final int concurrency;
+    private final Duration warmup;
+    private final Duration duration;
+    private final Map<String, Integer> mix;
+    private final int uploadWords;
+    private final HttpClient client;
+    private final Map<String, EndpointStats> stats = new LinkedHashMap<>();
+    private final List<String> weightedEndpoints = new ArrayList<>();
+
+    LoadDriver(URI target, int concurrency, Duration warmup, Duration duration, Map<String, Integer> mix, int uploadWords) {
+        this.target = target;
+        this.concurrency = concurrency;
+        this.warmup = warmup;
+        this.duration = duration;
+        this.mix = mix;
+        this.uploadWords = uploadWords;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+            if (!List.of("chat", "chat-stream", "evidence", "upload").contains(entry.getKey())) {
+                throw new IllegalArgumentException("Unknown endpoint in mix: " + entry.getKey());
+            }
+            stats.put(entry.getKey(), new EndpointStats(entry.getKey()));
+            for (int i = 0; i < entry.getValue(); i++) {
+                weightedEndpoints.add(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Uploads documents so chat and evidence requests have something to retrieve.
+     */
+    void seed(int documents) throws IOException, InterruptedException {
+        for (int i = 0; i < documents; i++) {
+            client.send(upload(), HttpResponse.BodyHandlers.discarding());
+        }
+    }
+
+    List<EndpointStats.Summary> run() throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                workers.execute(() -> work(measureFrom, end));
+            }
+            workers.shutdown();
+            workers.awaitTermination(duration.plus(warmup).toSeconds() + 120, TimeUnit.SECONDS);
+        }
+        double measuredSeconds = duration.toMillis() / 1000.0;
+        List<EndpointStats.Summary> summaries = new ArrayList<>();
+        for (EndpointStats endpoint : stats.values()) {
+            summaries.add(endpoint.summarize(measuredSeconds));
+        }
+        return summaries;
+    }
+
+    private void work(long measureFrom, long end) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < end) {
+            String endpoint = weightedEndpoints.get(random.nextInt(weightedEndpoints.size()));
+            long started = System.nanoTime();
+            int status;
+            try {
+                status = client.send(request(endpoint), HttpResponse.BodyHandlers.discarding()).statusCode();
+            } catch (IOException e) {
+                status = -1;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long finished = System.nanoTime();
+            if (started >= measureFrom && finished <= end) {
+                stats.get(endpoint).record(TimeUnit.NANOSECONDS.toMicros(finished - started), status);
+            }
+        }
+    }
+
+    private HttpRequest request(String endpoint) {
+        String query = QUERIES[ThreadLocalRandom.current().nextInt(QUERIES.length)];
+        return switch (endpoint) {
+            case "chat" -> json("/api/ai/chat", "{\"query\":\"" + query + "\"}");
+            case "chat-stream" -> json("/api/ai/chat/stream", "{\"query\":\"" + query + "\"}");
+            case "evidence" -> json("/api/evidence/generate", "{\"query\":\"" + query + "\"}");
+            default -> upload();
+        };
+    }
+
+    private HttpRequest json(String path, String body) {
+        return HttpRequest.newBuilder(target.resolve(path))
+                .timeout(Duration.ofSeconds(120))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private HttpRequest upload() {
+        String boundary = "----loadtest" + UUID.randomUUID();
+        // Random words so uploads are not collapsed by content-hash deduplication
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder text = new StringBuilder(uploadWords * 8);
+        for (int i = 0; i < uploadWords; i++) {
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(i % 12 == 11 ? ".\n" : " ");
+        }
+        String body = "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"loadtest-" + random.nextInt(1_000_000) + ".txt\"\r\n"
+                + "Content-Type: text/plain\r\n\r\n"
+                + text + "\r\n"
+                + "--" + boundary + "--\r\n";
+        return HttpRequest.newBuilder(target.resolve("/api/documents/upload"))
+                .timeout(Duration.ofSeconds(120))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8))
+                .build();
+    }
+}
@@ -0,0 +1,110 @@
+package com.sprinto.evidencebot.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Entry point.
+ *
+ * <pre>
+ * stub  [--port=8089] [stub options]          run the OpenAI stand-in until killed
+ * drive [--target=http://localhost:8080] ...  run the load driver against a running backend
+ * run   [stub options] [driver options]       start the stub, then drive the backend
+ * </pre>
+ *
+ * Stub options: --first-token-p50-ms, --first-token-p99-ms, --token-interval-ms,
+ * --completion-tokens, --rate-limit-rate, --error-rate.
+ * Driver options: --concurrency, --warmup, --duration, --mix (e.g. chat:5,evidence:3,upload:2),
+ * --seed-documents, --upload-words, --report.
+ */
+public final class LoadTest {
+
+    private LoadTest() {}
+
+    public static void main(String[] argv) throws Exception {
+        if (argv.length == 0 || !List.of("stub", "drive", "run").contains(argv[0])) {
+            System.err.println("Usage: java -jar loadtest.jar stub|drive|run [--key=value ...]");
+            System.exit(2);
+        }
+        Args args = new Args(argv, 1);
+        switch (argv[0]) {
+            case "stub" -> {
+                OpenAiStub stub = startStub(args);
+                Thread.currentThread().join();
+            }
+            case "drive" -> drive(args, null);
+            default -> {
+                try (OpenAiStub stub = startStub(args)) {
+                    drive(args, stub);
+                }
+            }
+        }
+    }
+
+    private static OpenAiStub startStub(Args args) throws IOException {
+        OpenAiStub stub = new OpenAiStub(new OpenAiStub.Config(
+                args.integer("port", 8089),
+                new LatencyDistribution(args.decimal("first-token-p50-ms", 400), args.decimal("first-token-p99-ms", 2000)),
+                args.integer("token-interval-ms", 15),
+                args.integer("completion-tokens", 150),
+                args.decimal("rate-limit-rate", 0),
+                args.decimal("error-rate", 0)));
+        stub.start();
+        System.out.println("OpenAI stub on http://localhost:" + stub.port() + "/ (" + stub.describe() + ")");
+        return stub;
+    }
+
+    private static void drive(Args args, OpenAiStub stub) throws IOException, InterruptedException {
+        URI target = URI.create(args.string("target", "http://localhost:8080"));
+        Map<String, Integer> mix = args.weights("mix", LoadDriver.DEFAULT_MIX);
+        int concurrency = args.integer("concurrency", 16);
+        Duration warmup = args.duration("warmup", Duration.ofSeconds(10));
+        Duration duration = args.duration("duration", Duration.ofSeconds(60));
+        LoadDriver driver = new LoadDriver(target, concurrency, warmup, duration, mix, args.integer("upload-words", 800));
+
+        int seedDocuments = args.integer("seed-documents", 20);
+        System.out.println("Seeding " + seedDocuments + " documents into " + target);
+        driver.seed(seedDocuments);
+
+        System.out.println("Driving " + mix + " with " + concurrency + " workers: " + warmup.toSeconds() + "s warmup, "
+                + duration.toSeconds() + "s measured");
+        List<EndpointStats.Summary> summaries = driver.run();
+
+        System.out.printf("%n%-12s %9s %7s %9s %10s %10s %10s %10s  %s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms", "statuses");
+        for (EndpointStats.Summary s : summaries) {
+            System.out.printf("%-12s %9d %7d %9.1f %10.1f %10.1f %10.1f %10.1f  %s%n",
+                    s.endpoint(), s.requests(), s.errors(), s.throughput(), s.p50Ms(), s.p90Ms(), s.p99Ms(), s.maxMs(), s.statuses());
+        }
+        if (stub != null) {
+            System.out.println("Stub: " + stub.statsJson());
+        }
+
+        Path report = Path.of(args.string("report", "loadtest-result.json"));
+        Files.writeString(report, toJson(target, concurrency, duration, summaries, stub));
+        System.out.println("Report written to " + report.toAbsolutePath());
+    }
+
+    private static String toJson(URI target, int concurrency, Duration duration,
+                                 List<EndpointStats.Summary> summaries, OpenAiStub stub) {
+        String endpoints = summaries.stream()
+                .map(s -> String.format(java.util.Locale.ROOT,
+                        "{\"endpoint\":\"%s\",\"requests\":%d,\"errors\":%d,\"throughput\":%.2f,"
+                                + "\"p50Ms\":%.2f,\"p90Ms\":%.2f,\"p99Ms\":%.2f,\"maxMs\":%.2f,\"statuses\":{%s}}",
+                        s.endpoint(), s.requests(), s.errors(), s.throughput(), s.p50Ms(), s.p90Ms(), s.p99Ms(), s.maxMs(),
+                        s.statuses().entrySet().stream()
+                                .map(e -> "\"" + e.getKey() + "\":" + e.getValue())
+                                .collect(Collectors.joining(","))))
+                .collect(Collectors.joining(",\n    "));
+        return "{\n  \"target\":\"" + target + "\",\n  \"concurrency\":" + concurrency
+                + ",\n  \"durationSeconds\":" + duration.toSeconds()
+                + ",\n  \"stub\":" + (stub == null ? "null" : stub.statsJson())
+                + ",\n  \"endpoints\":[\n    " + endpoints + "\n  ]\n}\n";
+    }
+}
@@ -0,0 +1,192 @@
+package com.sprinto.evidencebot.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local stand-in for the OpenAI chat completions API.
+ *
+ * Latency is modelled as time to first token (log-normal) plus a fixed
+ * interval per generated token, for both blocking and streamed responses.
+ * A configurable share of requests fails with 429 or 500 before any latency
+ * is spent, as the real API does. Run the backend with
+ * {@code --openai.base-url=http://localhost:<port>/} to use it.
+ */
+public final class OpenAiStub implements AutoCloseable {
+
+    private static final Pattern STREAM = Pattern.compile("\"stream\"\\s*:\\s*true");
+    private static final Pattern MAX_TOKENS = Pattern.compile("\"max_tokens\"\\s*:\\s*(\\d+)");
+    private static final Pattern MODEL = Pattern.compile("\"model\"\\s*:\\s*\"([^\"]+)\"");
+    private static final String[] WORDS = {
+        "The", "documents", "show", "that", "access", "reviews", "are", "performed", "quarterly", "and",
+        "encryption", "is", "enforced", "at", "rest.", "A", "gap", "exists", "in", "vendor", "risk", "evidence."
+    };
+
+    record Config(int port, LatencyDistribution firstToken, long tokenIntervalMs, int completionTokens,
+                  double rateLimitRate, double errorRate) {}
+
+    private final Config config;
+    private final HttpServer server;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong streamed = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong inFlight = new AtomicLong();
+    private final AtomicLong maxInFlight = new AtomicLong();
+
+    public OpenAiStub(Config config) throws IOException {
+        this.config = config;
+        this.server = HttpServer.create(new InetSocketAddress(config.port()), 512);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/v1/chat/completions", this::chatCompletions);
+        server.createContext("/stub/stats", this::stats);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    public String describe() {
+        return String.format("first token %s, %dms/token, %d tokens, 429 rate %.3f, 500 rate %.3f",
+                config.firstToken(), config.tokenIntervalMs(), config.completionTokens(),
+                config.rateLimitRate(), config.errorRate());
+    }
+
+    public String statsJson() {
+        return String.format("{\"requests\":%d,\"streamed\":%d,\"rateLimited\":%d,\"failed\":%d,\"maxInFlight\":%d}",
+                requests.get(), streamed.get(), rateLimited.get(), failed.get(), maxInFlight.get());
+    }
+
+    private void chatCompletions(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try (exchange) {
+            String body = readBody(exchange);
+            double roll = ThreadLocalRandom.current().nextDouble();
+            if (roll < config.rateLimitRate()) {
+                rateLimited.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                sendJson(exchange, 429, error("Rate limit reached for requests", "requests", "rate_limit_exceeded"));
+                return;
+            }
+            if (roll < config.rateLimitRate() + config.errorRate()) {
+                failed.incrementAndGet();
+                sendJson(exchange, 500, error("The server had an error while processing your request.", "server_error", null));
+                return;
+            }
+
+            Matcher maxTokens = MAX_TOKENS.matcher(body);
+            int tokens = maxTokens.find() ? Math.min(config.completionTokens(), Integer.parseInt(maxTokens.group(1))) : config.completionTokens();
+            Matcher modelMatcher = MODEL.matcher(body);
+            String model = modelMatcher.find() ? modelMatcher.group(1) : "gpt-3.5-turbo";
+            // Rough prompt size: about four characters per token
+            int promptTokens = Math.max(1, body.length() / 4);
+
+            sleep(config.firstToken().sampleMs());
+            if (STREAM.matcher(body).find()) {
+                streamed.incrementAndGet();
+                stream(exchange, model, tokens);
+            } else {
+                sleep(config.tokenIntervalMs() * tokens);
+                sendJson(exchange, 200, completion(model, tokens, promptTokens));
+            }
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private void stream(HttpExchange exchange, String model, int tokens) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        long created = System.currentTimeMillis() / 1000;
+        for (int i = 0; i < tokens; i++) {
+            if (i > 0) {
+                sleep(config.tokenIntervalMs());
+            }
+            String role = i == 0 ? "\"role\":\"assistant\"," : "";
+            String delta = "{" + role + "\"content\":\"" + WORDS[i % WORDS.length] + " \"}";
+            writeEvent(out, chunk(model, created, delta, "null"));
+        }
+        writeEvent(out, chunk(model, created, "{}", "\"stop\""));
+        writeEvent(out, "[DONE]");
+    }
+
+    private void stats(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            readBody(exchange);
+            sendJson(exchange, 200, statsJson());
+        }
+    }
+
+    private static String completion(String model, int tokens, int promptTokens) {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < tokens; i++) {
+            content.append(WORDS[i % WORDS.length]).append(' ');
+        }
+        return "{\"id\":\"chatcmpl-stub\",\"object\":\"chat.completion\",\"created\":" + System.currentTimeMillis() / 1000
+                + ",\"model\":\"" + model + "\",\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":\""
+                + content.toString().trim() + "\"},\"finish_reason\":\"stop\"}],\"usage\":{\"prompt_tokens\":" + promptTokens
+                + ",\"completion_tokens\":" + tokens + ",\"total_tokens\":" + (promptTokens + tokens) + "}}";
+    }
+
+    private static String chunk(String model, long created, String delta, String finishReason) {
+        return "{\"id\":\"chatcmpl-stub\",\"object\":\"chat.completion.chunk\",\"created\":" + created
+                + ",\"model\":\"" + model + "\",\"choices\":[{\"index\":0,\"delta\":" + delta
+                + ",\"finish_reason\":" + finishReason + "}]}";
+    }
+
+    private static String error(String message, String type, String code) {
+        return "{\"error\":{\"message\":\"" + message + "\",\"type\":\"" + type + "\",\"param\":null,\"code\":"
+                + (code == null ? "null" : "\"" + code + "\"") + "}}";
+    }
+
+    private static void writeEvent(OutputStream out, String data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}